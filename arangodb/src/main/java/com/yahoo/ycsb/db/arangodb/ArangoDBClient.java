@@ -17,8 +17,12 @@
 package com.yahoo.ycsb.db.arangodb;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -34,6 +38,9 @@ import com.arangodb.ArangoDB;
 import com.arangodb.ArangoDBException;
 import com.arangodb.Protocol;
 import com.arangodb.entity.BaseDocument;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.EdgeDefinition;
+import com.arangodb.entity.MultiDocumentEntity;
 import com.arangodb.model.DocumentCreateOptions;
 import com.arangodb.model.TransactionOptions;
 import com.arangodb.util.MapBuilder;
@@ -45,6 +52,8 @@ import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
 
 /**
  * ArangoDB binding for YCSB framework using the ArangoDB Inc. <a
@@ -73,6 +82,13 @@ public class ArangoDBClient extends DB {
   private Boolean dropDBBeforeRun;
   private Boolean waitForSync = false;
   private Boolean transactionUpdate = false;
+  private Boolean graph = false;
+  private String graphName;
+  private int graphMaxDepth;
+  private int batchSize;
+
+  /** Inserts not sent yet, by collection. */
+  private final Map<String, List<BaseDocument>> batches = new HashMap<String, List<BaseDocument>>();
 
   /**
    * Initialize any state for this DB. Called once per DB instance; there is
@@ -108,6 +124,14 @@ public class ArangoDBClient extends DB {
       // Set if transaction for update
       String transactionUpdateStr = props.getProperty("arangodb.transactionUpdate", "false");
       transactionUpdate = Boolean.parseBoolean(transactionUpdateStr);
+
+      // Set if the graph workload is stored in a named graph
+      graph = Boolean.parseBoolean(props.getProperty("arangodb.graph", "false"));
+      graphName = props.getProperty("arangodb.graph.name", "ycsb");
+      graphMaxDepth = Integer.parseInt(props.getProperty("arangodb.graph.maxdepth", "0"));
+
+      // Set the number of inserts sent together
+      batchSize = Integer.parseInt(props.getProperty("arangodb.batchsize", "1"));
       
       // Init ArangoDB connection
       try {
@@ -139,12 +163,23 @@ public class ArangoDBClient extends DB {
         } catch (ArangoDBException e) {
           logger.error("Failed to create collection: {} with ex: {}", collectionName, e.toString());
         }
+        if (graph) {
+          // also creates the vertex and the edge collection
+          EdgeDefinition edgeDefinition = new EdgeDefinition().collection(Edge.EDGE_IDENTIFIER)
+              .from(Node.NODE_IDENTIFIER).to(Node.NODE_IDENTIFIER);
+          try {
+            arangoDB.db(databaseName).createGraph(graphName, Collections.singleton(edgeDefinition));
+            logger.info("Graph created: " + graphName);
+          } catch (ArangoDBException e) {
+            logger.error("Failed to create graph: {} with ex: {}", graphName, e.toString());
+          }
+        }
         logger.info("ArangoDB client connection created to {}:{}", ip, port);
 
         // Log the configuration
         logger.info("Arango Configuration: dropDBBeforeRun: {}; address: {}:{}; databaseName: {};"
-                    + " waitForSync: {}; transactionUpdate: {};",
-                    dropDBBeforeRun, ip, port, databaseName, waitForSync, transactionUpdate);
+                    + " waitForSync: {}; transactionUpdate: {}; graph: {}; batchSize: {};",
+                    dropDBBeforeRun, ip, port, databaseName, waitForSync, transactionUpdate, graph, batchSize);
       }
     }
   }
@@ -158,6 +193,11 @@ public class ArangoDBClient extends DB {
    */
   @Override
   public void cleanup() throws DBException {
+    for (String table : batches.keySet()) {
+      if (flush(table) != Status.OK) {
+        throw new DBException("Failed to insert the last batch into " + table);
+      }
+    }
     if (INIT_COUNT.decrementAndGet() == 0) {
       arangoDB.shutdown();
       arangoDB = null;
@@ -168,7 +208,8 @@ public class ArangoDBClient extends DB {
   /**
    * Insert a record in the database. Any field/value pairs in the specified
    * values HashMap will be written into the record with the specified record
-   * key.
+   * key. With a batch size above one the record is only sent together with
+   * the next inserts into the same table.
    * 
    * @param table
    *      The name of the table
@@ -183,8 +224,17 @@ public class ArangoDBClient extends DB {
   public Status insert(String table, String key, Map<String, ByteIterator> values) {
     try {
       BaseDocument toInsert = new BaseDocument(key);
-      for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-        toInsert.addAttribute(entry.getKey(), byteIteratorToString(entry.getValue()));
+      for (Map.Entry<String, String> entry : toAttributes(table, values).entrySet()) {
+        toInsert.addAttribute(entry.getKey(), entry.getValue());
+      }
+      if (batchSize > 1) {
+        List<BaseDocument> batch = batches.get(table);
+        if (batch == null) {
+          batch = new ArrayList<BaseDocument>(batchSize);
+          batches.put(table, batch);
+        }
+        batch.add(toInsert);
+        return batch.size() < batchSize ? Status.BATCHED_OK : flush(table);
       }
       DocumentCreateOptions options = new DocumentCreateOptions().waitForSync(waitForSync);
       arangoDB.db(databaseName).collection(table).insertDocument(toInsert, options);
@@ -242,8 +292,8 @@ public class ArangoDBClient extends DB {
     try {
       if (!transactionUpdate) {
         BaseDocument updateDoc = new BaseDocument();
-        for (Entry<String, ByteIterator> field : values.entrySet()) {
-          updateDoc.addAttribute(field.getKey(), byteIteratorToString(field.getValue()));
+        for (Entry<String, String> field : toAttributes(table, values).entrySet()) {
+          updateDoc.addAttribute(field.getKey(), field.getValue());
         }
         arangoDB.db(databaseName).collection(table).updateDocument(key, updateDoc);
         return Status.OK;
@@ -254,7 +304,7 @@ public class ArangoDBClient extends DB {
             + "var db = require('internal').db;"
               // collection.update(document, data, overwrite, keepNull, waitForSync)
             + String.format("db._update(id, %s, true, false, %s);}",
-                mapToJson(values), Boolean.toString(waitForSync).toLowerCase());
+                mapToJson(toAttributes(table, values)), Boolean.toString(waitForSync).toLowerCase());
         TransactionOptions options = new TransactionOptions();
         options.writeCollections(table);
         options.params(createDocumentHandle(table, key));
@@ -280,6 +330,11 @@ public class ArangoDBClient extends DB {
   @Override
   public Status delete(String table, String key) {
     try {
+      if (graph && Node.NODE_IDENTIFIER.equals(table)) {
+        // through the graph, which also deletes the edges of the vertex
+        arangoDB.db(databaseName).graph(graphName).vertexCollection(table).deleteVertex(key);
+        return Status.OK;
+      }
       arangoDB.db(databaseName).collection(table).deleteDocument(key);
       return Status.OK;
     } catch (ArangoDBException e) {
@@ -290,7 +345,9 @@ public class ArangoDBClient extends DB {
 
   /**
    * Perform a range scan for a set of records in the database. Each
-   * field/value pair from the result will be stored in a HashMap.
+   * field/value pair from the result will be stored in a HashMap. In graph
+   * mode a scan of the nodes is a breadth first traversal of the outgoing
+   * edges from the start node instead.
    * 
    * @param table
    *      The name of the table
@@ -311,11 +368,24 @@ public class ArangoDBClient extends DB {
       Vector<HashMap<String, ByteIterator>> result) {
     ArangoCursor<VPackSlice> cursor = null;
     try {
-      String aqlQuery = String.format(
-          "FOR target IN %s FILTER target._key >= @key SORT target._key ASC LIMIT %d RETURN %s ", table,
-          recordcount, constructReturnForAQL(fields, "target"));
-
-      Map<String, Object> bindVars = new MapBuilder().put("key", startkey).get();
+      String aqlQuery;
+      Map<String, Object> bindVars;
+      if (graph && Node.NODE_IDENTIFIER.equals(table)) {
+        // the start node is at depth 0, so recordcount - 1 hops reach every node the scan can return
+        int depth = recordcount - 1;
+        if (graphMaxDepth > 0) {
+          depth = Math.min(depth, graphMaxDepth);
+        }
+        aqlQuery = String.format(
+            "FOR target IN 0..%d OUTBOUND @start GRAPH @graph OPTIONS {bfs: true, uniqueVertices: 'global'} "
+            + "LIMIT %d RETURN %s ", depth, recordcount, constructReturnForAQL(fields, "target"));
+        bindVars = new MapBuilder().put("start", createDocumentHandle(table, startkey)).put("graph", graphName).get();
+      } else {
+        aqlQuery = String.format(
+            "FOR target IN %s FILTER target._key >= @key SORT target._key ASC LIMIT %d RETURN %s ", table,
+            recordcount, constructReturnForAQL(fields, "target"));
+        bindVars = new MapBuilder().put("key", startkey).get();
+      }
       cursor = arangoDB.db(databaseName).query(aqlQuery, bindVars, null, VPackSlice.class);
       while (cursor.hasNext()) {
         VPackSlice aDocument = cursor.next();
@@ -340,6 +410,54 @@ public class ArangoDBClient extends DB {
     return Status.ERROR;
   }
 
+  /**
+   * Sends the inserts collected for the table with one request.
+   */
+  private Status flush(String table) {
+    List<BaseDocument> batch = batches.get(table);
+    if (batch == null || batch.isEmpty()) {
+      return Status.OK;
+    }
+    try {
+      DocumentCreateOptions options = new DocumentCreateOptions().waitForSync(waitForSync);
+      MultiDocumentEntity<DocumentCreateEntity<BaseDocument>> created =
+          arangoDB.db(databaseName).collection(table).insertDocuments(batch, options);
+      if (!created.getErrors().isEmpty()) {
+        logger.error("Failed to insert {} of {} documents into {}, first error: {}", created.getErrors().size(),
+            batch.size(), table, created.getErrors().iterator().next().getErrorMessage());
+        return Status.ERROR;
+      }
+      return Status.OK;
+    } catch (ArangoDBException e) {
+      logger.error("Exception while trying insert {} documents into {} with ex {}", batch.size(), table,
+          e.toString());
+    } finally {
+      batch.clear();
+    }
+    return Status.ERROR;
+  }
+
+  /**
+   * Converts the values to the attributes of a document. In graph mode an
+   * edge also gets the handles of its start and end node as
+   * <code>_from</code> and <code>_to</code>.
+   */
+  private Map<String, String> toAttributes(String table, Map<String, ByteIterator> values) {
+    Map<String, String> attributes = new LinkedHashMap<String, String>(values.size() + 2);
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      attributes.put(entry.getKey(), byteIteratorToString(entry.getValue()));
+    }
+    if (graph && Edge.EDGE_IDENTIFIER.equals(table)) {
+      if (attributes.containsKey(Edge.START_IDENTIFIER)) {
+        attributes.put("_from", createDocumentHandle(Node.NODE_IDENTIFIER, attributes.get(Edge.START_IDENTIFIER)));
+      }
+      if (attributes.containsKey(Edge.END_IDENTIFIER)) {
+        attributes.put("_to", createDocumentHandle(Node.NODE_IDENTIFIER, attributes.get(Edge.END_IDENTIFIER)));
+      }
+    }
+    return attributes;
+  }
+
   private String createDocumentHandle(String collection, String documentKey) throws ArangoDBException {
     validateCollectionName(collection);
     return collection + "/" + documentKey;
@@ -419,10 +537,10 @@ public class ArangoDBClient extends DB {
     return new StringByteIterator(content);
   }
   
-  private String mapToJson(Map<String, ByteIterator> values) {
+  private String mapToJson(Map<String, String> values) {
     VPackBuilder builder = new VPackBuilder().add(ValueType.OBJECT);
-    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-      builder.add(entry.getKey(), byteIteratorToString(entry.getValue()));
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      builder.add(entry.getKey(), entry.getValue());
     }
     builder.close();
     return arangoDB.util().deserialize(builder.slice(), String.class);
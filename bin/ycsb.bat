@@ -75,8 +75,13 @@ SET YCSB_COMMAND=
 SET YCSB_CLASS=com.yahoo.ycsb.CommandLine
 GOTO gotCommand
 :noShell
+IF NOT "selftest" == "%1" GOTO noSelfTest
+SET YCSB_COMMAND=
+SET YCSB_CLASS=com.yahoo.ycsb.SelfTest
+GOTO gotCommand
+:noSelfTest
 ECHO [ERROR] Found unknown command '%1'
-ECHO [ERROR] Expected one of 'load', 'run', or 'shell'. Exiting.
+ECHO [ERROR] Expected one of 'load', 'run', 'shell' or 'selftest'. Exiting.
 GOTO exit
 :gotCommand
 
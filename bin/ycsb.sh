@@ -86,9 +86,12 @@ elif [ "run" = "$1" ] ; then
 elif [ "shell" = "$1" ] ; then
   YCSB_COMMAND=
   YCSB_CLASS=com.yahoo.ycsb.CommandLine
+elif [ "selftest" = "$1" ] ; then
+  YCSB_COMMAND=
+  YCSB_CLASS=com.yahoo.ycsb.SelfTest
 else
   echo "[ERROR] Found unknown command '$1'"
-  echo "[ERROR] Expected one of 'load', 'run', or 'shell'. Exiting."
+  echo "[ERROR] Expected one of 'load', 'run', 'shell' or 'selftest'. Exiting."
   exit 1;
 fi
 
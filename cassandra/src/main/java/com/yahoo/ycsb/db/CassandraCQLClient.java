@@ -24,10 +24,15 @@ import com.datastax.driver.core.Host;
 import com.datastax.driver.core.HostDistance;
 import com.datastax.driver.core.Metadata;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
 import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.querybuilder.Select;
@@ -37,6 +42,9 @@ import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 
 import java.nio.ByteBuffer;
 import java.util.HashMap;
@@ -46,6 +54,7 @@ import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -117,6 +126,28 @@ public class CassandraCQLClient extends DB {
   public static final String USE_SSL_CONNECTION = "cassandra.useSSL";
   private static final String DEFAULT_USE_SSL_CONNECTION = "false";
 
+  public static final String TOKEN_AWARE_PROPERTY = "cassandra.tokenaware";
+  public static final String TOKEN_AWARE_PROPERTY_DEFAULT = "true";
+  public static final String LOCAL_DC_PROPERTY = "cassandra.localdc";
+
+  /**
+   * Whether writes are sent with executeAsync instead of waiting for each of them.
+   */
+  public static final String ASYNC_PROPERTY = "cassandra.async";
+  public static final String ASYNC_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The maximum number of asynchronous writes a client thread has in flight.
+   */
+  public static final String MAX_IN_FLIGHT_PROPERTY = "cassandra.async.maxinflight";
+  public static final String MAX_IN_FLIGHT_PROPERTY_DEFAULT = "128";
+
+  /**
+   * Whether the graph of the graph workload is stored with one partition per node, see {@link CassandraGraph}.
+   */
+  public static final String GRAPH_PROPERTY = "cassandra.graph";
+  public static final String GRAPH_PROPERTY_DEFAULT = "false";
+
   /**
    * Count the number of times initialized to teardown on the last
    * {@link #cleanup()}.
@@ -126,7 +157,14 @@ public class CassandraCQLClient extends DB {
   private static boolean debug = false;
 
   private static boolean trace = false;
-  
+
+  private static CassandraGraph graph = null;
+
+  private boolean async;
+  private int maxInFlight;
+  private Semaphore inFlight;
+  private Measurements measurements;
+
   /**
    * Initialize any state for this DB. Called once per DB instance; there is one
    * DB instance per client thread.
@@ -134,6 +172,12 @@ public class CassandraCQLClient extends DB {
   @Override
   public void init() throws DBException {
 
+    async = Boolean.parseBoolean(getProperties().getProperty(ASYNC_PROPERTY, ASYNC_PROPERTY_DEFAULT));
+    maxInFlight = Integer.parseInt(getProperties().getProperty(MAX_IN_FLIGHT_PROPERTY,
+        MAX_IN_FLIGHT_PROPERTY_DEFAULT));
+    inFlight = new Semaphore(maxInFlight);
+    measurements = Measurements.getMeasurements();
+
     // Keep track of number of calls to init (for later cleanup)
     INIT_COUNT.incrementAndGet();
 
@@ -177,18 +221,29 @@ public class CassandraCQLClient extends DB {
         Boolean useSSL = Boolean.parseBoolean(getProperties().getProperty(USE_SSL_CONNECTION,
             DEFAULT_USE_SSL_CONNECTION));
 
+        Cluster.Builder clusterBuilder = Cluster.builder().withPort(Integer.valueOf(port))
+            .addContactPoints(hosts);
         if ((username != null) && !username.isEmpty()) {
-          Cluster.Builder clusterBuilder = Cluster.builder().withCredentials(username, password)
-              .withPort(Integer.valueOf(port)).addContactPoints(hosts);
+          clusterBuilder = clusterBuilder.withCredentials(username, password);
           if (useSSL) {
             clusterBuilder = clusterBuilder.withSSL();
-          } 
-          cluster = clusterBuilder.build();
-        } else {
-          cluster = Cluster.builder().withPort(Integer.valueOf(port))
-              .addContactPoints(hosts).build();
+          }
         }
 
+        // Token aware routing sends each statement straight to a replica of its
+        // key instead of to a coordinator that has to forward it.
+        DCAwareRoundRobinPolicy.Builder dcPolicy = DCAwareRoundRobinPolicy.builder();
+        String localDc = getProperties().getProperty(LOCAL_DC_PROPERTY);
+        if (localDc != null) {
+          dcPolicy = dcPolicy.withLocalDc(localDc);
+        }
+        LoadBalancingPolicy loadBalancingPolicy = dcPolicy.build();
+        if (Boolean.parseBoolean(getProperties().getProperty(TOKEN_AWARE_PROPERTY,
+            TOKEN_AWARE_PROPERTY_DEFAULT))) {
+          loadBalancingPolicy = new TokenAwarePolicy(loadBalancingPolicy);
+        }
+        cluster = clusterBuilder.withLoadBalancingPolicy(loadBalancingPolicy).build();
+
         String maxConnections = getProperties().getProperty(
             MAX_CONNECTIONS_PROPERTY);
         if (maxConnections != null) {
@@ -231,6 +286,10 @@ public class CassandraCQLClient extends DB {
 
         session = cluster.connect(keyspace);
 
+        if (Boolean.parseBoolean(getProperties().getProperty(GRAPH_PROPERTY, GRAPH_PROPERTY_DEFAULT))) {
+          graph = new CassandraGraph(session, readConsistencyLevel, writeConsistencyLevel, trace);
+        }
+
       } catch (Exception e) {
         throw new DBException(e);
       }
@@ -243,6 +302,9 @@ public class CassandraCQLClient extends DB {
    */
   @Override
   public void cleanup() throws DBException {
+    // Wait for the asynchronous writes of this client
+    inFlight.acquireUninterruptibly(maxInFlight);
+
     synchronized (INIT_COUNT) {
       final int curInitCount = INIT_COUNT.decrementAndGet();
       if (curInitCount <= 0) {
@@ -253,6 +315,7 @@ public class CassandraCQLClient extends DB {
         readAllStmt.set(null);
         scanAllStmt.set(null);
         deleteStmt.set(null);
+        graph = null;
         session.close();
         cluster.close();
         cluster = null;
@@ -284,6 +347,10 @@ public class CassandraCQLClient extends DB {
   public Status read(String table, String key, Set<String> fields,
       Map<String, ByteIterator> result) {
     try {
+      if (graph != null && CassandraGraph.isGraphTable(table)) {
+        return graph.read(table, key, fields, result);
+      }
+
       PreparedStatement stmt = (fields == null) ? readAllStmt.get() : readStmts.get(fields);
 
       // Prepare statement on demand
@@ -371,6 +438,10 @@ public class CassandraCQLClient extends DB {
       Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
 
     try {
+      if (graph != null && CassandraGraph.isGraphTable(table)) {
+        return graph.scan(table, startkey, recordcount, fields, result);
+      }
+
       PreparedStatement stmt = (fields == null) ? scanAllStmt.get() : scanStmts.get(fields);
 
       // Prepare statement on demand
@@ -467,6 +538,11 @@ public class CassandraCQLClient extends DB {
   public Status update(String table, String key, Map<String, ByteIterator> values) {
 
     try {
+      if (graph != null && CassandraGraph.isGraphTable(table)) {
+        Statement graphStmt = graph.update(table, key, values);
+        return graphStmt == null ? Status.NOT_FOUND : execute("UPDATE", graphStmt);
+      }
+
       Set<String> fields = values.keySet();
       PreparedStatement stmt = updateStmts.get(fields);
 
@@ -512,9 +588,7 @@ public class CassandraCQLClient extends DB {
       // Add key
       boundStmt.setString(vars.size() - 1, key);
 
-      session.execute(boundStmt);
-
-      return Status.OK;
+      return execute("UPDATE", boundStmt);
     } catch (Exception e) {
       logger.error(MessageFormatter.format("Error updating key: {}", key).getMessage(), e);
     }
@@ -539,6 +613,10 @@ public class CassandraCQLClient extends DB {
   public Status insert(String table, String key, Map<String, ByteIterator> values) {
 
     try {
+      if (graph != null && CassandraGraph.isGraphTable(table)) {
+        return execute("INSERT", graph.insert(table, key, values));
+      }
+
       Set<String> fields = values.keySet();
       PreparedStatement stmt = insertStmts.get(fields);
 
@@ -583,9 +661,7 @@ public class CassandraCQLClient extends DB {
         boundStmt.setString(i, values.get(vars.getName(i)).toString());
       }
 
-      session.execute(boundStmt);
-
-      return Status.OK;
+      return execute("INSERT", boundStmt);
     } catch (Exception e) {
       logger.error(MessageFormatter.format("Error inserting key: {}", key).getMessage(), e);
     }
@@ -606,6 +682,11 @@ public class CassandraCQLClient extends DB {
   public Status delete(String table, String key) {
 
     try {
+      if (graph != null && CassandraGraph.isGraphTable(table)) {
+        Statement graphStmt = graph.delete(table, key);
+        return graphStmt == null ? Status.NOT_FOUND : execute("DELETE", graphStmt);
+      }
+
       PreparedStatement stmt = deleteStmt.get();
 
       // Prepare statement on demand
@@ -626,9 +707,7 @@ public class CassandraCQLClient extends DB {
       logger.debug(stmt.getQueryString());
       logger.debug("key = {}", key);
 
-      session.execute(stmt.bind(key));
-
-      return Status.OK;
+      return execute("DELETE", stmt.bind(key));
     } catch (Exception e) {
       logger.error(MessageFormatter.format("Error deleting key: {}", key).getMessage(), e);
     }
@@ -636,4 +715,60 @@ public class CassandraCQLClient extends DB {
     return Status.ERROR;
   }
 
+  /**
+   * Executes a write. In async mode, the write is only sent and {@link Status#BATCHED_OK} is returned; its
+   * latency is measured as "&lt;operation&gt;-ASYNC" once it completes. If the maximum number of writes is in
+   * flight already, this waits for one of them to complete first.
+   */
+  private Status execute(String operation, Statement stmt) {
+    if (!async) {
+      session.execute(stmt);
+      return Status.OK;
+    }
+
+    inFlight.acquireUninterruptibly();
+    try {
+      ResultSetFuture future = session.executeAsync(stmt);
+      Futures.addCallback(future, new AsyncCallback(operation + "-ASYNC", System.nanoTime()));
+    } catch (RuntimeException e) {
+      inFlight.release();
+      throw e;
+    }
+    return Status.BATCHED_OK;
+  }
+
+  /**
+   * Records the latency and the result of an asynchronous write and frees its slot.
+   */
+  private final class AsyncCallback implements FutureCallback<ResultSet> {
+    private final String operation;
+    private final long startTimeNanos;
+
+    private AsyncCallback(String operation, long startTimeNanos) {
+      this.operation = operation;
+      this.startTimeNanos = startTimeNanos;
+    }
+
+    @Override
+    public void onSuccess(ResultSet rs) {
+      complete(Status.OK);
+    }
+
+    @Override
+    public void onFailure(Throwable t) {
+      logger.error("Error in asynchronous " + operation, t);
+      complete(Status.ERROR);
+    }
+
+    private void complete(Status status) {
+      try {
+        String measurementName = status.isOk() ? operation : operation + "-FAILED";
+        measurements.measure(measurementName, (int) ((System.nanoTime() - startTimeNanos) / 1000));
+        measurements.reportStatus(operation, status);
+      } finally {
+        inFlight.release();
+      }
+    }
+  }
+
 }
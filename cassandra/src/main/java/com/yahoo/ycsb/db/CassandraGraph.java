@@ -0,0 +1,331 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.db;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.utils.Bytes;
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * Stores the graph of the {@code GraphWorkload} with one partition per node. The label and value of a node are
+ * static columns of its partition and its outgoing edges are the rows of the partition, clustered by edge id,
+ * so a node and its neighbours are read with a single partition query. The edges are also stored by their id,
+ * as the workload reads and updates them by id only.
+ */
+final class CassandraGraph {
+
+  private static final String NODE_TABLE = "node";
+  private static final String EDGE_TABLE = "edge";
+
+  private static final String NODE_ID = "node_id";
+  private static final String NODE_LABEL = "node_label";
+  private static final String NODE_VALUE = "node_value";
+  private static final String EDGE_ID = "edge_id";
+  private static final String EDGE_LABEL = "edge_label";
+  private static final String START_ID = "start_id";
+  private static final String END_ID = "end_id";
+
+  private final Session session;
+  private final ConsistencyLevel writeConsistencyLevel;
+
+  private final PreparedStatement insertNode;
+  private final PreparedStatement updateNodeLabel;
+  private final PreparedStatement updateNodeValue;
+  private final PreparedStatement deleteNode;
+  private final PreparedStatement readNode;
+  private final PreparedStatement readNeighbourhood;
+  private final PreparedStatement insertAdjacency;
+  private final PreparedStatement deleteAdjacency;
+  private final PreparedStatement scanAdjacency;
+  private final PreparedStatement insertEdge;
+  private final PreparedStatement deleteEdge;
+  private final PreparedStatement readEdge;
+
+  /**
+   * Creates the tables of the graph in the keyspace of the session if they do not exist and prepares the
+   * statements on them.
+   */
+  CassandraGraph(Session session, ConsistencyLevel readConsistencyLevel, ConsistencyLevel writeConsistencyLevel,
+      boolean trace) {
+    this.session = session;
+    this.writeConsistencyLevel = writeConsistencyLevel;
+
+    session.execute("CREATE TABLE IF NOT EXISTS " + NODE_TABLE + " ("
+        + NODE_ID + " bigint, "
+        + EDGE_ID + " bigint, "
+        + NODE_LABEL + " text static, "
+        + NODE_VALUE + " blob static, "
+        + EDGE_LABEL + " text, "
+        + END_ID + " bigint, "
+        + "PRIMARY KEY (" + NODE_ID + ", " + EDGE_ID + "))");
+    session.execute("CREATE TABLE IF NOT EXISTS " + EDGE_TABLE + " ("
+        + EDGE_ID + " bigint PRIMARY KEY, "
+        + EDGE_LABEL + " text, "
+        + START_ID + " bigint, "
+        + END_ID + " bigint)");
+
+    insertNode = prepare("INSERT INTO " + NODE_TABLE + " (" + NODE_ID + ", " + NODE_LABEL + ", " + NODE_VALUE
+        + ") VALUES (?, ?, ?)", writeConsistencyLevel, trace);
+    updateNodeLabel = prepare("UPDATE " + NODE_TABLE + " SET " + NODE_LABEL + " = ? WHERE " + NODE_ID + " = ?",
+        writeConsistencyLevel, trace);
+    updateNodeValue = prepare("UPDATE " + NODE_TABLE + " SET " + NODE_VALUE + " = ? WHERE " + NODE_ID + " = ?",
+        writeConsistencyLevel, trace);
+    deleteNode = prepare("DELETE " + NODE_LABEL + ", " + NODE_VALUE + " FROM " + NODE_TABLE + " WHERE "
+        + NODE_ID + " = ?", writeConsistencyLevel, trace);
+    readNode = prepare("SELECT " + NODE_LABEL + ", " + NODE_VALUE + " FROM " + NODE_TABLE + " WHERE "
+        + NODE_ID + " = ? LIMIT 1", readConsistencyLevel, trace);
+    readNeighbourhood = prepare("SELECT " + NODE_LABEL + ", " + NODE_VALUE + ", " + END_ID + " FROM "
+        + NODE_TABLE + " WHERE " + NODE_ID + " = ?", readConsistencyLevel, trace);
+    insertAdjacency = prepare("INSERT INTO " + NODE_TABLE + " (" + NODE_ID + ", " + EDGE_ID + ", " + EDGE_LABEL
+        + ", " + END_ID + ") VALUES (?, ?, ?, ?)", writeConsistencyLevel, trace);
+    deleteAdjacency = prepare("DELETE FROM " + NODE_TABLE + " WHERE " + NODE_ID + " = ? AND " + EDGE_ID + " = ?",
+        writeConsistencyLevel, trace);
+    scanAdjacency = prepare("SELECT " + EDGE_ID + ", " + EDGE_LABEL + ", " + END_ID + " FROM " + NODE_TABLE
+        + " WHERE " + NODE_ID + " = ? AND " + EDGE_ID + " >= ? LIMIT ?", readConsistencyLevel, trace);
+    insertEdge = prepare("INSERT INTO " + EDGE_TABLE + " (" + EDGE_ID + ", " + EDGE_LABEL + ", " + START_ID + ", "
+        + END_ID + ") VALUES (?, ?, ?, ?)", writeConsistencyLevel, trace);
+    deleteEdge = prepare("DELETE FROM " + EDGE_TABLE + " WHERE " + EDGE_ID + " = ?", writeConsistencyLevel, trace);
+    readEdge = prepare("SELECT " + EDGE_LABEL + ", " + START_ID + ", " + END_ID + " FROM " + EDGE_TABLE
+        + " WHERE " + EDGE_ID + " = ?", readConsistencyLevel, trace);
+  }
+
+  private PreparedStatement prepare(String query, ConsistencyLevel consistencyLevel, boolean trace) {
+    PreparedStatement stmt = session.prepare(query);
+    stmt.setConsistencyLevel(consistencyLevel);
+    if (trace) {
+      stmt.enableTracing();
+    }
+    return stmt;
+  }
+
+  /**
+   * @return Whether the records of the table are stored in the graph tables.
+   */
+  static boolean isGraphTable(String table) {
+    return Node.NODE_IDENTIFIER.equals(table) || Edge.EDGE_IDENTIFIER.equals(table);
+  }
+
+  /**
+   * @return The statement writing the node or edge.
+   */
+  Statement insert(String table, String key, Map<String, ByteIterator> values) {
+    long id = Long.parseLong(key);
+    if (Node.NODE_IDENTIFIER.equals(table)) {
+      return insertNode.bind(id, string(values.get(Node.LABEL_IDENTIFIER)), blob(values.get(Node.VALUE_IDENTIFIER)));
+    }
+    return writeEdge(id, string(values.get(Edge.LABEL_IDENTIFIER)), parse(values.get(Edge.START_IDENTIFIER)),
+        parse(values.get(Edge.END_IDENTIFIER)), null);
+  }
+
+  /**
+   * @return The statement updating the node or edge, or null if the edge does not exist. Updating an edge reads
+   * it first, to find the partition it is stored in.
+   */
+  Statement update(String table, String key, Map<String, ByteIterator> values) {
+    long id = Long.parseLong(key);
+    if (Node.NODE_IDENTIFIER.equals(table)) {
+      // the updates of the static columns of one partition are applied together
+      BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+      batch.setConsistencyLevel(writeConsistencyLevel);
+      if (values.containsKey(Node.LABEL_IDENTIFIER)) {
+        batch.add(updateNodeLabel.bind(string(values.get(Node.LABEL_IDENTIFIER)), id));
+      }
+      if (values.containsKey(Node.VALUE_IDENTIFIER)) {
+        batch.add(updateNodeValue.bind(blob(values.get(Node.VALUE_IDENTIFIER)), id));
+      }
+      return batch;
+    }
+
+    Row row = session.execute(readEdge.bind(id)).one();
+    if (row == null) {
+      return null;
+    }
+    String label = values.containsKey(Edge.LABEL_IDENTIFIER) ?
+                   string(values.get(Edge.LABEL_IDENTIFIER)) : row.getString(EDGE_LABEL);
+    Long start = values.containsKey(Edge.START_IDENTIFIER) ?
+                 parse(values.get(Edge.START_IDENTIFIER)) : nullableLong(row, START_ID);
+    Long end = values.containsKey(Edge.END_IDENTIFIER) ?
+               parse(values.get(Edge.END_IDENTIFIER)) : nullableLong(row, END_ID);
+    return writeEdge(id, label, start, end, nullableLong(row, START_ID));
+  }
+
+  /**
+   * Writes an edge both by its id and into the partition of its start node. If the edge is moved to another
+   * start node, it is removed from the partition of the previous one.
+   */
+  private Statement writeEdge(long id, String label, Long start, Long end, Long previousStart) {
+    BatchStatement batch = new BatchStatement();
+    batch.setConsistencyLevel(writeConsistencyLevel);
+    batch.add(insertEdge.bind(id, label, start, end));
+    if (previousStart != null && !previousStart.equals(start)) {
+      batch.add(deleteAdjacency.bind(previousStart, id));
+    }
+    if (start != null) {
+      batch.add(insertAdjacency.bind(start, id, label, end));
+    }
+    return batch;
+  }
+
+  /**
+   * @return The statement deleting the node or edge, or null if the edge does not exist. The outgoing edges of
+   * a deleted node remain.
+   */
+  Statement delete(String table, String key) {
+    long id = Long.parseLong(key);
+    if (Node.NODE_IDENTIFIER.equals(table)) {
+      return deleteNode.bind(id);
+    }
+
+    Row row = session.execute(readEdge.bind(id)).one();
+    if (row == null) {
+      return null;
+    }
+    BatchStatement batch = new BatchStatement();
+    batch.setConsistencyLevel(writeConsistencyLevel);
+    batch.add(deleteEdge.bind(id));
+    Long start = nullableLong(row, START_ID);
+    if (start != null) {
+      batch.add(deleteAdjacency.bind(start, id));
+    }
+    return batch;
+  }
+
+  Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    long id = Long.parseLong(key);
+    if (Node.NODE_IDENTIFIER.equals(table)) {
+      Row row = session.execute(readNode.bind(id)).one();
+      // a partition holding only outgoing edges does not make a node
+      if (row == null || (row.isNull(NODE_LABEL) && row.isNull(NODE_VALUE))) {
+        return Status.NOT_FOUND;
+      }
+      putNode(id, row, fields, result);
+      return Status.OK;
+    }
+
+    Row row = session.execute(readEdge.bind(id)).one();
+    if (row == null) {
+      return Status.NOT_FOUND;
+    }
+    putEdge(id, row.getString(EDGE_LABEL), nullableLong(row, START_ID), nullableLong(row, END_ID), fields, result);
+    return Status.OK;
+  }
+
+  /**
+   * A scan of {@link Node} traverses the graph breadth first from the start node along the outgoing edges,
+   * reading each node together with its edges from its partition. A scan of {@link Edge} returns the edges of
+   * the start node of the given edge, beginning with that edge.
+   */
+  Status scan(String table, String startkey, int recordcount, Set<String> fields,
+      Vector<HashMap<String, ByteIterator>> result) {
+    long startId = Long.parseLong(startkey);
+    if (Node.NODE_IDENTIFIER.equals(table)) {
+      Queue<Long> queue = new ArrayDeque<>();
+      Set<Long> visited = new HashSet<>();
+      queue.add(startId);
+      visited.add(startId);
+
+      while (!queue.isEmpty() && result.size() < recordcount) {
+        long nodeId = queue.poll();
+        ResultSet rs = session.execute(readNeighbourhood.bind(nodeId));
+        Row row = rs.one();
+        if (row == null || (row.isNull(NODE_LABEL) && row.isNull(NODE_VALUE))) {
+          continue;
+        }
+        HashMap<String, ByteIterator> node = new HashMap<>();
+        putNode(nodeId, row, fields, node);
+        result.add(node);
+
+        for (; row != null; row = rs.one()) {
+          if (!row.isNull(END_ID) && visited.add(row.getLong(END_ID))) {
+            queue.add(row.getLong(END_ID));
+          }
+        }
+      }
+      return Status.OK;
+    }
+
+    Row edge = session.execute(readEdge.bind(startId)).one();
+    if (edge == null || edge.isNull(START_ID)) {
+      return Status.NOT_FOUND;
+    }
+    long nodeId = edge.getLong(START_ID);
+    for (Row row : session.execute(scanAdjacency.bind(nodeId, startId, recordcount))) {
+      HashMap<String, ByteIterator> values = new HashMap<>();
+      putEdge(row.getLong(EDGE_ID), row.getString(EDGE_LABEL), nodeId, nullableLong(row, END_ID), fields, values);
+      result.add(values);
+    }
+    return Status.OK;
+  }
+
+  private static void putNode(long id, Row row, Set<String> fields, Map<String, ByteIterator> result) {
+    put(fields, result, Node.ID_IDENTIFIER, String.valueOf(id));
+    put(fields, result, Node.LABEL_IDENTIFIER, row.getString(NODE_LABEL));
+    if (fields == null || fields.contains(Node.VALUE_IDENTIFIER)) {
+      ByteBuffer value = row.getBytes(NODE_VALUE);
+      result.put(Node.VALUE_IDENTIFIER, value == null ? null : new ByteArrayByteIterator(Bytes.getArray(value)));
+    }
+  }
+
+  private static void putEdge(long id, String label, Long start, Long end, Set<String> fields,
+      Map<String, ByteIterator> result) {
+    put(fields, result, Edge.ID_IDENTIFIER, String.valueOf(id));
+    put(fields, result, Edge.LABEL_IDENTIFIER, label);
+    put(fields, result, Edge.START_IDENTIFIER, start == null ? null : String.valueOf(start));
+    put(fields, result, Edge.END_IDENTIFIER, end == null ? null : String.valueOf(end));
+  }
+
+  private static void put(Set<String> fields, Map<String, ByteIterator> result, String field, String value) {
+    if (fields == null || fields.contains(field)) {
+      result.put(field, value == null ? null : new StringByteIterator(value));
+    }
+  }
+
+  private static Long nullableLong(Row row, String column) {
+    return row.isNull(column) ? null : row.getLong(column);
+  }
+
+  private static String string(ByteIterator value) {
+    return value == null ? null : value.toString();
+  }
+
+  private static ByteBuffer blob(ByteIterator value) {
+    return value == null ? null : ByteBuffer.wrap(value.toArray());
+  }
+
+  private static Long parse(ByteIterator value) {
+    return value == null ? null : Long.valueOf(value.toString());
+  }
+}
@@ -226,6 +226,39 @@ public class CassandraCQLClientTest {
     assertThat(row, nullValue());
   }
 
+  @Test
+  public void testAsyncInsert() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("hosts", HOST);
+    p.setProperty("port", Integer.toString(PORT));
+    p.setProperty("table", TABLE);
+    p.setProperty(CassandraCQLClient.ASYNC_PROPERTY, "true");
+    p.setProperty(CassandraCQLClient.MAX_IN_FLIGHT_PROPERTY, "2");
+    final CassandraCQLClient asyncClient = new CassandraCQLClient();
+    asyncClient.setProperties(p);
+    asyncClient.init();
+
+    final Map<String, String> input = new HashMap<String, String>();
+    input.put("field0", "value1");
+    for (int i = 0; i < 10; i++) {
+      final Status status = asyncClient.insert(TABLE, "key" + i, StringByteIterator.getByteIteratorMap(input));
+      assertThat(status, is(Status.BATCHED_OK));
+    }
+    // waits for the pending inserts
+    asyncClient.cleanup();
+
+    for (int i = 0; i < 10; i++) {
+      final Select selectStmt =
+          QueryBuilder.select("field0")
+              .from(TABLE)
+              .where(QueryBuilder.eq(CassandraCQLClient.YCSB_KEY, "key" + i))
+              .limit(1);
+      final Row row = session.execute(selectStmt).one();
+      assertThat(row, notNullValue());
+      assertThat(row.getString("field0"), is("value1"));
+    }
+  }
+
   @Test
   public void testPreparedStatements() throws Exception {
     final int LOOP_COUNT = 3;
@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2019 YCSB contributors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import com.google.common.collect.Sets;
+
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import org.cassandraunit.CassandraCQLUnit;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * Integration tests for the graph mode of the Cassandra client
+ */
+public class CassandraGraphTest {
+  // Change the default Cassandra timeout from 10s to 120s for slow CI machines
+  private final static long timeout = 120000L;
+
+  private final static String HOST = "localhost";
+  private final static int PORT = 9142;
+
+  private CassandraCQLClient client;
+
+  @ClassRule
+  public static CassandraCQLUnit cassandraUnit = new CassandraCQLUnit(
+    new ClassPathCQLDataSet("ycsb.cql", "ycsb"), null, timeout);
+
+  @Before
+  public void setUp() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("hosts", HOST);
+    p.setProperty("port", Integer.toString(PORT));
+    p.setProperty(CassandraCQLClient.GRAPH_PROPERTY, "true");
+
+    Measurements.setProperties(p);
+    client = new CassandraCQLClient();
+    client.setProperties(p);
+    client.init();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (client != null) {
+      client.cleanup();
+    }
+    client = null;
+    cassandraUnit.getSession().execute("TRUNCATE node");
+    cassandraUnit.getSession().execute("TRUNCATE edge");
+  }
+
+  private static Map<String, ByteIterator> node(long id) {
+    Map<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    values.put(Node.ID_IDENTIFIER, new StringByteIterator(String.valueOf(id)));
+    values.put(Node.LABEL_IDENTIFIER, new StringByteIterator("Product"));
+    values.put(Node.VALUE_IDENTIFIER, new ByteArrayByteIterator(new byte[] {(byte) id, (byte) 0xff}));
+    return values;
+  }
+
+  private static Map<String, ByteIterator> edge(long id, long start, long end) {
+    Map<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    values.put(Edge.ID_IDENTIFIER, new StringByteIterator(String.valueOf(id)));
+    values.put(Edge.LABEL_IDENTIFIER, new StringByteIterator("contains"));
+    values.put(Edge.START_IDENTIFIER, new StringByteIterator(String.valueOf(start)));
+    values.put(Edge.END_IDENTIFIER, new StringByteIterator(String.valueOf(end)));
+    return values;
+  }
+
+  /**
+   * Inserts the tree 0 -> (1 -> (3, 4), 2 -> 5) and the single node 6.
+   */
+  private void insertTree() {
+    for (long i = 0; i <= 6; i++) {
+      assertThat(client.insert(Node.NODE_IDENTIFIER, String.valueOf(i), node(i)), is(Status.OK));
+    }
+    long[][] edges = {{0, 1}, {0, 2}, {1, 3}, {1, 4}, {2, 5}};
+    for (int i = 0; i < edges.length; i++) {
+      assertThat(client.insert(Edge.EDGE_IDENTIFIER, String.valueOf(i), edge(i, edges[i][0], edges[i][1])),
+          is(Status.OK));
+    }
+  }
+
+  private Set<String> scan(String table, String start, int count, String field) {
+    Vector<HashMap<String, ByteIterator>> result = new Vector<HashMap<String, ByteIterator>>();
+    assertThat(client.scan(table, start, count, null, result), is(Status.OK));
+    Set<String> ids = new HashSet<String>();
+    for (HashMap<String, ByteIterator> values : result) {
+      ids.add(values.get(field).toString());
+    }
+    return ids;
+  }
+
+  @Test
+  public void testReadAndUpdateNode() throws Exception {
+    insertTree();
+
+    Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertThat(client.read(Node.NODE_IDENTIFIER, "3", null, result), is(Status.OK));
+    assertThat(result.get(Node.LABEL_IDENTIFIER).toString(), is("Product"));
+    assertThat(Arrays.equals(result.get(Node.VALUE_IDENTIFIER).toArray(), new byte[] {3, (byte) 0xff}), is(true));
+
+    Map<String, ByteIterator> update = new HashMap<String, ByteIterator>();
+    update.put(Node.VALUE_IDENTIFIER, new ByteArrayByteIterator(new byte[] {42}));
+    assertThat(client.update(Node.NODE_IDENTIFIER, "3", update), is(Status.OK));
+    result.clear();
+    assertThat(client.read(Node.NODE_IDENTIFIER, "3", null, result), is(Status.OK));
+    assertThat(result.get(Node.LABEL_IDENTIFIER).toString(), is("Product"));
+    assertThat(Arrays.equals(result.get(Node.VALUE_IDENTIFIER).toArray(), new byte[] {42}), is(true));
+
+    assertThat(client.read(Node.NODE_IDENTIFIER, "7", null, result), is(Status.NOT_FOUND));
+  }
+
+  @Test
+  public void testScanTraversesSubtree() throws Exception {
+    insertTree();
+
+    assertThat(scan(Node.NODE_IDENTIFIER, "0", 10, Node.ID_IDENTIFIER),
+        is((Set<String>) Sets.newHashSet("0", "1", "2", "3", "4", "5")));
+    assertThat(scan(Node.NODE_IDENTIFIER, "1", 10, Node.ID_IDENTIFIER),
+        is((Set<String>) Sets.newHashSet("1", "3", "4")));
+    // breadth first, the children before the grandchildren
+    assertThat(scan(Node.NODE_IDENTIFIER, "0", 3, Node.ID_IDENTIFIER),
+        is((Set<String>) Sets.newHashSet("0", "1", "2")));
+    assertThat(scan(Node.NODE_IDENTIFIER, "6", 10, Node.ID_IDENTIFIER),
+        is((Set<String>) Sets.newHashSet("6")));
+  }
+
+  @Test
+  public void testUpdateAndDeleteEdge() throws Exception {
+    insertTree();
+
+    assertThat(client.update(Edge.EDGE_IDENTIFIER, "3", edge(3, 6, 4)), is(Status.OK));
+    assertThat(scan(Node.NODE_IDENTIFIER, "1", 10, Node.ID_IDENTIFIER),
+        is((Set<String>) Sets.newHashSet("1", "3")));
+    assertThat(scan(Node.NODE_IDENTIFIER, "6", 10, Node.ID_IDENTIFIER),
+        is((Set<String>) Sets.newHashSet("6", "4")));
+
+    Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertThat(client.read(Edge.EDGE_IDENTIFIER, "3", null, result), is(Status.OK));
+    assertThat(result.get(Edge.START_IDENTIFIER).toString(), is("6"));
+
+    // the edges of node 0, starting with edge 0
+    assertThat(scan(Edge.EDGE_IDENTIFIER, "0", 10, Edge.ID_IDENTIFIER),
+        is((Set<String>) Sets.newHashSet("0", "1")));
+
+    assertThat(client.delete(Edge.EDGE_IDENTIFIER, "1"), is(Status.OK));
+    assertThat(scan(Node.NODE_IDENTIFIER, "0", 10, Node.ID_IDENTIFIER),
+        is((Set<String>) Sets.newHashSet("0", "1", "3")));
+    assertThat(client.delete(Edge.EDGE_IDENTIFIER, "1"), is(Status.NOT_FOUND));
+  }
+}
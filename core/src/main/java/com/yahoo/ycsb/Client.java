@@ -149,6 +149,18 @@ public final class Client {
    */
   public static final String LABEL_PROPERTY = "label";
 
+  /**
+   * The maximum throughput (ops/sec) the client itself can generate for this configuration, as reported by
+   * {@link SelfTest}. If set, the run is flagged when its throughput comes close to this ceiling.
+   */
+  public static final String CLIENT_CEILING_PROPERTY = "clientceiling";
+
+  /**
+   * How close (in percent of the client ceiling) the throughput must come to the ceiling to be flagged.
+   */
+  public static final String CLIENT_CEILING_MARGIN_PROPERTY = "clientceiling.margin";
+  public static final String CLIENT_CEILING_MARGIN_PROPERTY_DEFAULT = "10";
+
   /**
    * An optional thread used to track progress and measure JVM stats.
    */
@@ -184,6 +196,10 @@ public final class Client {
     System.out.println("          values in the propertyfile");
     System.out.println("  -s:  show status during run (default: no status)");
     System.out.println("  -l label:  use label for status (e.g. to label one experiment out of a whole batch)");
+    System.out.println("  -p " + RunPlan.RUN_PLAN_PROPERTY
+        + "=file: run the phases of the given run plan one after the other, reusing");
+    System.out.println("          the DB instances and flushing them at the end of each phase (see "
+        + RunPlan.class.getName() + ")");
     System.out.println("");
     System.out.println("Required properties:");
     System.out.println("  " + WORKLOAD_PROPERTY + ": the name of the workload class to use (e.g. " +
@@ -196,7 +212,7 @@ public final class Client {
   }
 
   public static boolean checkRequiredProperties(Properties props) {
-    if (props.getProperty(WORKLOAD_PROPERTY) == null) {
+    if (props.getProperty(WORKLOAD_PROPERTY) == null && props.getProperty(RunPlan.RUN_PLAN_PROPERTY) == null) {
       System.out.println("Missing property: " + WORKLOAD_PROPERTY);
       return false;
     }
@@ -205,42 +221,62 @@ public final class Client {
   }
 
 
+  /**
+   * Creates the exporter loaded from conf, writing to either sysout or a file.
+   *
+   * @throws IOException Failed to open the export file.
+   */
+  static MeasurementsExporter createExporter(Properties props) throws IOException {
+    // if no destination file is provided the results will be written to stdout
+    OutputStream out;
+    String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
+    if (exportFile == null) {
+      out = System.out;
+    } else {
+      out = new FileOutputStream(exportFile);
+    }
+
+    // if no exporter is provided the default text one will be used
+    String exporterStr = props.getProperty(EXPORTER_PROPERTY,
+        "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+    try {
+      return (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
+          .newInstance(out);
+    } catch (Exception e) {
+      System.err.println("Could not find exporter " + exporterStr
+          + ", will use default text reporter.");
+      e.printStackTrace();
+      return new TextMeasurementsExporter(out);
+    }
+  }
+
   /**
    * Exports the measurements to either sysout or a file using the exporter
    * loaded from conf.
    *
    * @throws IOException Either failed to write to output stream or failed to close it.
    */
-  private static void exportMeasurements(Properties props, int opcount, long runtime)
+  static void exportMeasurements(Properties props, int opcount, long runtime)
       throws IOException {
     MeasurementsExporter exporter = null;
     try {
-      // if no destination file is provided the results will be written to stdout
-      OutputStream out;
-      String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
-      if (exportFile == null) {
-        out = System.out;
-      } else {
-        out = new FileOutputStream(exportFile);
-      }
-
-      // if no exporter is provided the default text one will be used
-      String exporterStr = props.getProperty(EXPORTER_PROPERTY,
-          "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
-      try {
-        exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
-            .newInstance(out);
-      } catch (Exception e) {
-        System.err.println("Could not find exporter " + exporterStr
-            + ", will use default text reporter.");
-        e.printStackTrace();
-        exporter = new TextMeasurementsExporter(out);
-      }
+      exporter = createExporter(props);
 
       exporter.write("OVERALL", "RunTime(ms)", runtime);
       double throughput = 1000.0 * (opcount) / (runtime);
       exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
 
+      double ceiling = Double.parseDouble(props.getProperty(CLIENT_CEILING_PROPERTY, "0"));
+      if (ceiling > 0) {
+        double margin = Double.parseDouble(props.getProperty(CLIENT_CEILING_MARGIN_PROPERTY,
+            CLIENT_CEILING_MARGIN_PROPERTY_DEFAULT));
+        exporter.write("OVERALL", "ClientCeiling(%)", 100.0 * throughput / ceiling);
+        if (throughput >= ceiling * (100.0 - margin) / 100.0) {
+          System.err.println("WARNING: throughput " + throughput + " ops/sec is within " + margin
+              + "% of the client ceiling of " + ceiling + " ops/sec, the client may be the bottleneck.");
+        }
+      }
+
       final Map<String, Long[]> gcs = Utils.getGCStatst();
       long totalGCCount = 0;
       long totalGCTime = 0;
@@ -277,22 +313,15 @@ public final class Client {
   public static void main(String[] args) {
     Properties props = parseArguments(args);
 
-    boolean status = Boolean.valueOf(props.getProperty(STATUS_PROPERTY, String.valueOf(false)));
-    String label = props.getProperty(LABEL_PROPERTY, "");
-
-    long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
+    if (props.getProperty(RunPlan.RUN_PLAN_PROPERTY) != null) {
+      RunPlan.execute(props);
+      System.exit(0);
+    }
 
     //get number of threads, target and db
     int threadcount = Integer.parseInt(props.getProperty(THREAD_COUNT_PROPERTY, "1"));
     String dbname = props.getProperty(DB_PROPERTY, "com.yahoo.ycsb.BasicDB");
-    int target = Integer.parseInt(props.getProperty(TARGET_PROPERTY, "0"));
-
-    //compute the target throughput
-    double targetperthreadperms = -1;
-    if (target > 0) {
-      double targetperthread = ((double) target) / ((double) threadcount);
-      targetperthreadperms = targetperthread / 1000.0;
-    }
+    double targetperthreadperms = getTargetPerThreadPerMs(props, threadcount);
 
     Thread warningthread = setupWarningThread();
     warningthread.start();
@@ -311,6 +340,49 @@ public final class Client {
     final List<ClientThread> clients = initDb(dbname, props, threadcount, targetperthreadperms,
         workload, tracer, completeLatch);
 
+    long runtime = runClients(props, workload, tracer, clients, completeLatch);
+
+    try {
+      try (final TraceScope span = tracer.newScope(CLIENT_EXPORT_MEASUREMENTS_SPAN)) {
+        exportMeasurements(props, getOpsDone(clients), runtime);
+      }
+    } catch (IOException e) {
+      System.err.println("Could not export measurements, error: " + e.getMessage());
+      e.printStackTrace();
+      System.exit(-1);
+    }
+
+    System.exit(0);
+  }
+
+  /**
+   * Computes the target throughput per client thread from the "target" property.
+   *
+   * @return The target number of operations per thread per ms, or -1 for no target.
+   */
+  static double getTargetPerThreadPerMs(Properties props, int threadcount) {
+    int target = Integer.parseInt(props.getProperty(TARGET_PROPERTY, "0"));
+    if (target <= 0) {
+      return -1;
+    }
+    double targetperthread = ((double) target) / ((double) threadcount);
+    return targetperthread / 1000.0;
+  }
+
+  /**
+   * Runs the client threads until they are done or the maximum execution time has passed, showing the status
+   * if requested, and cleans up the workload afterwards.
+   *
+   * @return The run time in milliseconds.
+   */
+  static long runClients(Properties props, Workload workload, Tracer tracer, List<ClientThread> clients,
+                         CountDownLatch completeLatch) {
+    boolean status = Boolean.valueOf(props.getProperty(STATUS_PROPERTY, String.valueOf(false)));
+    String label = props.getProperty(LABEL_PROPERTY, "");
+
+    long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
+
+    statusthread = null;
     if (status) {
       boolean standardstatus = false;
       if (props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "").compareTo("timeseries") == 0) {
@@ -327,32 +399,28 @@ public final class Client {
     Thread terminator = null;
     long st;
     long en;
-    int opsDone;
 
     try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_SPAN)) {
 
-      final Map<Thread, ClientThread> threads = new HashMap<>(threadcount);
+      final List<Thread> threads = new ArrayList<>(clients.size());
       for (ClientThread client : clients) {
-        threads.put(new Thread(tracer.wrap(client, "ClientThread")), client);
+        threads.add(new Thread(tracer.wrap(client, "ClientThread")));
       }
 
       st = System.currentTimeMillis();
 
-      for (Thread t : threads.keySet()) {
+      for (Thread t : threads) {
         t.start();
       }
 
       if (maxExecutionTime > 0) {
-        terminator = new TerminatorThread(maxExecutionTime, threads.keySet(), workload);
+        terminator = new TerminatorThread(maxExecutionTime, threads, workload);
         terminator.start();
       }
 
-      opsDone = 0;
-
-      for (Map.Entry<Thread, ClientThread> entry : threads.entrySet()) {
+      for (Thread t : threads) {
         try {
-          entry.getKey().join();
-          opsDone += entry.getValue().getOpsDone();
+          t.join();
         } catch (InterruptedException ignored) {
           // ignored
         }
@@ -387,77 +455,82 @@ public final class Client {
       System.exit(0);
     }
 
-    try {
-      try (final TraceScope span = tracer.newScope(CLIENT_EXPORT_MEASUREMENTS_SPAN)) {
-        exportMeasurements(props, opsDone, en - st);
-      }
-    } catch (IOException e) {
-      System.err.println("Could not export measurements, error: " + e.getMessage());
-      e.printStackTrace();
-      System.exit(-1);
-    }
-
-    System.exit(0);
+    return en - st;
   }
 
-  private static List<ClientThread> initDb(String dbname, Properties props, int threadcount,
-                                           double targetperthreadperms, Workload workload, Tracer tracer,
-                                           CountDownLatch completeLatch) {
-    boolean initFailed = false;
-    boolean dotransactions = Boolean.valueOf(props.getProperty(DO_TRANSACTIONS_PROPERTY, String.valueOf(true)));
+  /**
+   * @return The number of operations done by all clients, once their threads have completed.
+   */
+  static int getOpsDone(List<ClientThread> clients) {
+    int opsDone = 0;
+    for (ClientThread client : clients) {
+      opsDone += client.getOpsDone();
+    }
+    return opsDone;
+  }
 
-    final List<ClientThread> clients = new ArrayList<>(threadcount);
+  static List<ClientThread> initDb(String dbname, Properties props, int threadcount,
+                                   double targetperthreadperms, Workload workload, Tracer tracer,
+                                   CountDownLatch completeLatch) {
+    final List<DB> dbs = new ArrayList<>(threadcount);
     try (final TraceScope span = tracer.newScope(CLIENT_INIT_SPAN)) {
-      int opcount;
-      if (dotransactions) {
-        opcount = Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY, "0"));
-      } else {
-        if (props.containsKey(INSERT_COUNT_PROPERTY)) {
-          opcount = Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY, "0"));
-        } else {
-          opcount = Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
-        }
-      }
-
       for (int threadid = 0; threadid < threadcount; threadid++) {
-        DB db;
         try {
-          db = DBFactory.newDB(dbname, props, tracer);
+          dbs.add(DBFactory.newDB(dbname, props, tracer));
         } catch (UnknownDBException e) {
           System.out.println("Unknown DB " + dbname);
-          initFailed = true;
-          break;
+          System.err.println("Error initializing datastore bindings.");
+          System.exit(0);
         }
+      }
+    }
+    return initClients(dbs, props, targetperthreadperms, workload, completeLatch);
+  }
 
-        int threadopcount = opcount / threadcount;
-
-        // ensure correct number of operations, in case opcount is not a multiple of threadcount
-        if (threadid < opcount % threadcount) {
-          ++threadopcount;
-        }
+  /**
+   * Creates one client thread for each of the given DB instances, splitting the operations evenly among them.
+   */
+  static List<ClientThread> initClients(List<DB> dbs, Properties props, double targetperthreadperms,
+                                        Workload workload, CountDownLatch completeLatch) {
+    boolean dotransactions = Boolean.valueOf(props.getProperty(DO_TRANSACTIONS_PROPERTY, String.valueOf(true)));
+    int threadcount = dbs.size();
 
-        ClientThread t = new ClientThread(db, dotransactions, workload, props, threadopcount, targetperthreadperms,
-            completeLatch);
-        t.setThreadId(threadid);
-        t.setThreadCount(threadcount);
-        clients.add(t);
+    final List<ClientThread> clients = new ArrayList<>(threadcount);
+    int opcount;
+    if (dotransactions) {
+      opcount = Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY, "0"));
+    } else {
+      if (props.containsKey(INSERT_COUNT_PROPERTY)) {
+        opcount = Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY, "0"));
+      } else {
+        opcount = Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
       }
+    }
 
-      if (initFailed) {
-        System.err.println("Error initializing datastore bindings.");
-        System.exit(0);
+    for (int threadid = 0; threadid < threadcount; threadid++) {
+      int threadopcount = opcount / threadcount;
+
+      // ensure correct number of operations, in case opcount is not a multiple of threadcount
+      if (threadid < opcount % threadcount) {
+        ++threadopcount;
       }
+
+      ClientThread t = new ClientThread(dbs.get(threadid), dotransactions, workload, props, threadopcount,
+          targetperthreadperms, completeLatch);
+      t.setThreadId(threadid);
+      t.setThreadCount(threadcount);
+      clients.add(t);
     }
     return clients;
   }
 
-  private static Tracer getTracer(Properties props, Workload workload) {
+  static Tracer getTracer(Properties props, Workload workload) {
     return new Tracer.Builder("YCSB " + workload.getClass().getSimpleName())
         .conf(getHTraceConfiguration(props))
         .build();
   }
 
-  private static void initWorkload(Properties props, Thread warningthread, Workload workload, Tracer tracer) {
+  static void initWorkload(Properties props, Thread warningthread, Workload workload, Tracer tracer) {
     try {
       try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_INIT_SPAN)) {
         workload.init(props);
@@ -470,7 +543,7 @@ public final class Client {
     }
   }
 
-  private static HTraceConfiguration getHTraceConfiguration(Properties props) {
+  static HTraceConfiguration getHTraceConfiguration(Properties props) {
     final Map<String, String> filteredProperties = new HashMap<>();
     for (String key : props.stringPropertyNames()) {
       if (key.startsWith(HTRACE_KEY_PREFIX)) {
@@ -480,7 +553,7 @@ public final class Client {
     return HTraceConfiguration.fromMap(filteredProperties);
   }
 
-  private static Thread setupWarningThread() {
+  static Thread setupWarningThread() {
     //show a warning message that creating the workload is taking a while
     //but only do so if it is taking longer than 2 seconds
     //(showing the message right away if the setup wasn't taking very long was confusing people)
@@ -497,7 +570,7 @@ public final class Client {
     };
   }
 
-  private static Workload getWorkload(Properties props) {
+  static Workload getWorkload(Properties props) {
     ClassLoader classLoader = Client.class.getClassLoader();
 
     try {
@@ -523,7 +596,7 @@ public final class Client {
     return null;
   }
 
-  private static Properties parseArguments(String[] args) {
+  static Properties parseArguments(String[] args) {
     Properties props = new Properties();
     System.err.print("Command line:");
     for (String arg : args) {
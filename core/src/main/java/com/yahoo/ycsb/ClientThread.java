@@ -44,6 +44,7 @@ public class ClientThread implements Runnable {
   private Properties props;
   private long targetOpsTickNs;
   private final Measurements measurements;
+  private boolean manageDb = true;
 
   /**
    * Constructor.
@@ -81,6 +82,15 @@ public class ClientThread implements Runnable {
     threadcount = threadCount;
   }
 
+  /**
+   * Whether the thread initializes its DB before and cleans it up after running the operations. Disabled when
+   * the DB instance outlives the thread, e.g. across the phases of a {@link RunPlan}; the thread then only
+   * flushes the DB when it is done, so the writes it buffered count towards the thread's run time.
+   */
+  public void setManageDb(final boolean manage) {
+    manageDb = manage;
+  }
+
   public int getOpsDone() {
     return opsdone;
   }
@@ -88,7 +98,9 @@ public class ClientThread implements Runnable {
   @Override
   public void run() {
     try {
-      db.init();
+      if (manageDb) {
+        db.init();
+      }
     } catch (DBException e) {
       e.printStackTrace();
       e.printStackTrace(System.out);
@@ -149,7 +161,11 @@ public class ClientThread implements Runnable {
 
     try {
       measurements.setIntendedStartTimeNs(0);
-      db.cleanup();
+      if (manageDb) {
+        db.cleanup();
+      } else {
+        db.flush();
+      }
     } catch (DBException e) {
       e.printStackTrace();
       e.printStackTrace(System.out);
@@ -17,6 +17,7 @@
 
 package com.yahoo.ycsb;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -77,6 +78,14 @@ public abstract class DB {
   public void cleanup() throws DBException {
   }
 
+  /**
+   * Completes the writes this DB instance buffers, so they are durable and visible to other instances. Called at
+   * the end of every phase of a {@link RunPlan}, where the instance lives on for the next phase instead of being
+   * cleaned up. Bindings that hold back writes until {@link #cleanup()} override this; by default it does nothing.
+   */
+  public void flush() throws DBException {
+  }
+
   /**
    * Read a record from the database. Each field/value pair from the result will be stored in a HashMap.
    *
@@ -88,6 +97,50 @@ public abstract class DB {
    */
   public abstract Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result);
 
+  /**
+   * Read several records from the database at once. Each record found is stored in the result under its key.
+   * Bindings that can fetch several keys in one round trip override this; the default reads the keys one after
+   * the other.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A map from the key of each record found to its field/value pairs
+   * @return OK if all records were found, NOT_FOUND if some were not, or the first error.
+   */
+  public Status multiRead(String table, Collection<String> keys, Set<String> fields,
+                          Map<String, Map<String, ByteIterator>> result) {
+    Status status = Status.OK;
+    for (String key : keys) {
+      Map<String, ByteIterator> values = new HashMap<>();
+      Status res = read(table, key, fields, values);
+      if (res.isOk()) {
+        result.put(key, values);
+      } else if (res == Status.NOT_FOUND) {
+        status = Status.NOT_FOUND;
+      } else {
+        return res;
+      }
+    }
+    return status;
+  }
+
+  /**
+   * Read a range of the bytes of a record, for bindings that store a record as one object, e.g. an object store.
+   * Bindings that can fetch a part of an object override this and store the bytes read in the result under the
+   * key; the default reads the whole record.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to read.
+   * @param offset The position of the first byte to read
+   * @param length The number of bytes to read
+   * @param result A HashMap of field/value pairs for the result
+   * @return The result of the operation.
+   */
+  public Status readRange(String table, String key, long offset, int length, Map<String, ByteIterator> result) {
+    return read(table, key, null, result);
+  }
+
   /**
    * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored
    * in a HashMap.
@@ -43,9 +43,12 @@ public class DBWrapper extends DB {
 
   private final String scopeStringCleanup;
   private final String scopeStringDelete;
+  private final String scopeStringFlush;
   private final String scopeStringInit;
   private final String scopeStringInsert;
+  private final String scopeStringMultiRead;
   private final String scopeStringRead;
+  private final String scopeStringReadRange;
   private final String scopeStringScan;
   private final String scopeStringUpdate;
 
@@ -56,9 +59,12 @@ public class DBWrapper extends DB {
     final String simple = db.getClass().getSimpleName();
     scopeStringCleanup = simple + "#cleanup";
     scopeStringDelete = simple + "#delete";
+    scopeStringFlush = simple + "#flush";
     scopeStringInit = simple + "#init";
     scopeStringInsert = simple + "#insert";
+    scopeStringMultiRead = simple + "#multiRead";
     scopeStringRead = simple + "#read";
+    scopeStringReadRange = simple + "#readRange";
     scopeStringScan = simple + "#scan";
     scopeStringUpdate = simple + "#update";
   }
@@ -117,6 +123,19 @@ public class DBWrapper extends DB {
     }
   }
 
+  /**
+   * Complete the writes buffered by this DB at the end of a phase.
+   */
+  public void flush() throws DBException {
+    try (final TraceScope span = tracer.newScope(scopeStringFlush)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      db.flush();
+      long en = System.nanoTime();
+      measure("FLUSH", Status.OK, ist, st, en);
+    }
+  }
+
   /**
    * Read a record from the database. Each field/value pair from the result
    * will be stored in a HashMap.
@@ -140,6 +159,52 @@ public class DBWrapper extends DB {
     }
   }
 
+  /**
+   * Read several records from the database at once.
+   * Each record found is stored in the result under its key.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A map from the key of each record found to its field/value pairs
+   * @return The result of the operation.
+   */
+  public Status multiRead(String table, Collection<String> keys, Set<String> fields,
+                          Map<String, Map<String, ByteIterator>> result) {
+    try (final TraceScope span = tracer.newScope(scopeStringMultiRead)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.multiRead(table, keys, fields, result);
+      long en = System.nanoTime();
+      measure("MULTIREAD", res, ist, st, en);
+      measurements.reportStatus("MULTIREAD", res);
+      return res;
+    }
+  }
+
+  /**
+   * Read a range of the bytes of a record.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to read.
+   * @param offset The position of the first byte to read
+   * @param length The number of bytes to read
+   * @param result A HashMap of field/value pairs for the result
+   * @return The result of the operation.
+   */
+  public Status readRange(String table, String key, long offset, int length,
+                          Map<String, ByteIterator> result) {
+    try (final TraceScope span = tracer.newScope(scopeStringReadRange)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.readRange(table, key, offset, length, result);
+      long en = System.nanoTime();
+      measure("READRANGE", res, ist, st, en);
+      measurements.reportStatus("READRANGE", res);
+      return res;
+    }
+  }
+
   /**
    * Perform a range scan for a set of records in the database.
    * Each field/value pair from the result will be stored in a HashMap.
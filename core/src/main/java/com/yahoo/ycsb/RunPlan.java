@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.apache.htrace.core.Tracer;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs several phases, e.g. a load, a warm-up and the measured runs, one after the other in a single JVM. The
+ * DB instances are created and initialized once and shared by all phases, so the later phases neither pay for
+ * connection setup nor start with a cold JIT or cold caches in the binding. At the end of each phase the client
+ * threads {@link DB#flush() flush} their DB before the clock stops, so writes a binding buffers are part of the
+ * phase that issued them and visible to the next one. The measurements are reset at the start of each phase
+ * and exported at its end.
+ * <p>
+ * The plan is a properties file. "phases" lists the names of the phases in the order they are run,
+ * "phase.&lt;name&gt;.&lt;property&gt;" sets a property for a single phase and all other properties apply to
+ * every phase. Properties given on the command line override the general properties of the plan, but not
+ * those set for a single phase. For example:
+ * <pre>
+ * workload=com.yahoo.ycsb.workloads.CoreWorkload
+ * recordcount=1000000
+ * phases=load,warmup,run
+ * phase.load.dotransactions=false
+ * phase.warmup.warmup=true
+ * phase.warmup.operationcount=100000
+ * phase.run.propertyfiles=workloads/workloadb
+ * phase.run.operationcount=1000000
+ * </pre>
+ * The DB class, the properties the DB instances see, the measurement type and the number of DB instances (the
+ * largest thread count of any phase) are fixed for the whole plan and taken from the general properties; a phase
+ * may not set its own "db". If "exportfile" is only set there, each phase exports to
+ * "&lt;exportfile&gt;.&lt;name&gt;".
+ */
+public final class RunPlan {
+  private RunPlan() {
+    // not used
+  }
+
+  /**
+   * The file containing the run plan.
+   */
+  public static final String RUN_PLAN_PROPERTY = "runplan";
+
+  /**
+   * Comma separated list of the phases to run, in order.
+   */
+  public static final String PHASES_PROPERTY = "phases";
+
+  /**
+   * Prefix of the properties set for a single phase.
+   */
+  public static final String PHASE_PREFIX = "phase.";
+
+  /**
+   * Comma separated list of property files loaded for a phase before its own properties are applied.
+   */
+  public static final String PROPERTY_FILES_PROPERTY = "propertyfiles";
+
+  /**
+   * Whether the phase only warms up the client and the DB. Its measurements are discarded.
+   */
+  public static final String WARMUP_PROPERTY = "warmup";
+  public static final String WARMUP_PROPERTY_DEFAULT = "false";
+
+  /**
+   * Runs the plan named by the "runplan" property. Exits the JVM if the plan cannot be run.
+   *
+   * @param props The properties given on the command line.
+   */
+  public static void execute(Properties props) {
+    Properties base = new Properties();
+    Map<String, Properties> phases = null;
+    try {
+      phases = loadPhases(props, base);
+    } catch (IOException e) {
+      System.out.println("Unable to open the run plan " + props.getProperty(RUN_PLAN_PROPERTY) + ": "
+          + e.getMessage());
+      System.exit(0);
+    }
+    if (phases.isEmpty()) {
+      System.out.println("The run plan does not list any " + PHASES_PROPERTY + ".");
+      System.exit(0);
+    }
+
+    int maxthreads = 1;
+    String dbname = base.getProperty(Client.DB_PROPERTY, "com.yahoo.ycsb.BasicDB");
+    for (Map.Entry<String, Properties> phase : phases.entrySet()) {
+      if (!Client.checkRequiredProperties(phase.getValue())) {
+        System.out.println("Failed check required properties of phase " + phase.getKey() + ".");
+        System.exit(0);
+      }
+      if (!dbname.equals(phase.getValue().getProperty(Client.DB_PROPERTY, "com.yahoo.ycsb.BasicDB"))) {
+        System.out.println("Phase " + phase.getKey() + " sets its own " + Client.DB_PROPERTY
+            + ", but the DB instances are shared by all phases.");
+        System.exit(0);
+      }
+      maxthreads = Math.max(maxthreads,
+          Integer.parseInt(phase.getValue().getProperty(Client.THREAD_COUNT_PROPERTY, "1")));
+    }
+
+    Measurements.setProperties(base);
+    Tracer tracer = new Tracer.Builder("YCSB " + RunPlan.class.getSimpleName())
+        .conf(Client.getHTraceConfiguration(base))
+        .build();
+
+    List<DB> dbs = initDbs(dbname, base, maxthreads, tracer);
+    for (Map.Entry<String, Properties> phase : phases.entrySet()) {
+      runPhase(phase.getKey(), phase.getValue(), dbs, tracer);
+    }
+
+    for (DB db : dbs) {
+      try {
+        db.cleanup();
+      } catch (DBException e) {
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+      }
+    }
+  }
+
+  /**
+   * Loads the run plan and computes the properties of each phase.
+   *
+   * @param props The properties given on the command line.
+   * @param base  Filled with the properties that apply to all phases.
+   * @return The properties of each phase, in the order the phases are run.
+   */
+  static Map<String, Properties> loadPhases(Properties props, Properties base) throws IOException {
+    Properties plan = load(props.getProperty(RUN_PLAN_PROPERTY));
+
+    for (String name : plan.stringPropertyNames()) {
+      if (!name.startsWith(PHASE_PREFIX) && !name.equals(PHASES_PROPERTY)) {
+        base.setProperty(name, plan.getProperty(name));
+      }
+    }
+    for (String name : props.stringPropertyNames()) {
+      base.setProperty(name, props.getProperty(name));
+    }
+
+    Map<String, Properties> phases = new LinkedHashMap<>();
+    for (String phaseName : plan.getProperty(PHASES_PROPERTY, "").split(",")) {
+      phaseName = phaseName.trim();
+      if (phaseName.isEmpty()) {
+        continue;
+      }
+      String prefix = PHASE_PREFIX + phaseName + ".";
+
+      Properties phase = new Properties();
+      phase.putAll(base);
+      String files = plan.getProperty(prefix + PROPERTY_FILES_PROPERTY);
+      if (files != null) {
+        for (String file : files.split(",")) {
+          phase.putAll(load(file.trim()));
+        }
+      }
+      for (String name : plan.stringPropertyNames()) {
+        if (name.startsWith(prefix) && !name.equals(prefix + PROPERTY_FILES_PROPERTY)) {
+          phase.setProperty(name.substring(prefix.length()), plan.getProperty(name));
+        }
+      }
+
+      String exportfile = base.getProperty(Client.EXPORT_FILE_PROPERTY);
+      if (exportfile != null && !plan.containsKey(prefix + Client.EXPORT_FILE_PROPERTY)) {
+        phase.setProperty(Client.EXPORT_FILE_PROPERTY, exportfile + "." + phaseName);
+      }
+      phases.put(phaseName, phase);
+    }
+    return phases;
+  }
+
+  private static Properties load(String file) throws IOException {
+    Properties props = new Properties();
+    try (InputStream in = new FileInputStream(file)) {
+      props.load(in);
+    }
+    return props;
+  }
+
+  private static List<DB> initDbs(String dbname, Properties props, int threadcount, Tracer tracer) {
+    List<DB> dbs = new ArrayList<>(threadcount);
+    try {
+      for (int i = 0; i < threadcount; i++) {
+        DB db = DBFactory.newDB(dbname, props, tracer);
+        if (db == null) {
+          throw new UnknownDBException(dbname);
+        }
+        db.init();
+        dbs.add(db);
+      }
+    } catch (UnknownDBException e) {
+      System.out.println("Unknown DB " + dbname);
+      System.err.println("Error initializing datastore bindings.");
+      System.exit(0);
+    } catch (DBException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      System.exit(0);
+    }
+    return dbs;
+  }
+
+  /**
+   * Runs a phase on the first "threadcount" of the shared DB instances. The client threads flush their DB
+   * within the time measured for the phase.
+   */
+  private static void runPhase(String name, Properties props, List<DB> dbs, Tracer tracer) {
+    int threadcount = Integer.parseInt(props.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
+    boolean warmup = Boolean.parseBoolean(props.getProperty(WARMUP_PROPERTY, WARMUP_PROPERTY_DEFAULT));
+
+    System.err.println("Starting phase " + name + (warmup ? " (warm-up)." : "."));
+    Measurements.getMeasurements().reset();
+
+    Thread warningthread = Client.setupWarningThread();
+    warningthread.start();
+    Workload workload = Client.getWorkload(props);
+    Client.initWorkload(props, warningthread, workload, tracer);
+
+    CountDownLatch completeLatch = new CountDownLatch(threadcount);
+    List<ClientThread> clients = Client.initClients(dbs.subList(0, threadcount), props,
+        Client.getTargetPerThreadPerMs(props, threadcount), workload, completeLatch);
+    for (ClientThread client : clients) {
+      client.setManageDb(false);
+    }
+
+    long runtime = Client.runClients(props, workload, tracer, clients, completeLatch);
+
+    if (warmup) {
+      System.err.println("Finished warm-up phase " + name + ", discarding its measurements.");
+      return;
+    }
+    try {
+      Client.exportMeasurements(props, Client.getOpsDone(clients), runtime);
+    } catch (IOException e) {
+      System.err.println("Could not export measurements of phase " + name + ", error: " + e.getMessage());
+      e.printStackTrace();
+      System.exit(-1);
+    }
+  }
+}
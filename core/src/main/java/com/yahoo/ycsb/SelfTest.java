@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import org.apache.htrace.core.Tracer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures the throughput ceiling of the client itself. The workload is run against {@link NullDB} with the
+ * configured measurements enabled, once for each thread count, and the throughput and CPU time per operation
+ * are reported. Accepts the same arguments as {@link Client}; the "db" property is ignored.
+ */
+public final class SelfTest {
+  private SelfTest() {
+    // not used
+  }
+
+  /**
+   * Comma separated list of thread counts to test. Defaults to 1 and the powers of two up to the number of
+   * available processors.
+   */
+  public static final String THREAD_COUNTS_PROPERTY = "selftest.threadcounts";
+
+  /**
+   * The number of operations (or inserts when running the load phase) to do for each thread count.
+   */
+  public static final String OPERATION_COUNT_PROPERTY = "selftest.operationcount";
+  public static final String OPERATION_COUNT_PROPERTY_DEFAULT = "1000000";
+
+  /**
+   * Whether to run the first thread count once without reporting it, so the JIT has compiled the hot paths
+   * before anything is measured.
+   */
+  public static final String WARMUP_PROPERTY = "selftest.warmup";
+  public static final String WARMUP_PROPERTY_DEFAULT = "true";
+
+  /**
+   * The outcome of running the workload with one thread count.
+   */
+  static final class Result {
+    private final int threads;
+    private final long opsDone;
+    private final long runtimeNs;
+    private final long cpuTimeNs;
+
+    Result(int threads, long opsDone, long runtimeNs, long cpuTimeNs) {
+      this.threads = threads;
+      this.opsDone = opsDone;
+      this.runtimeNs = runtimeNs;
+      this.cpuTimeNs = cpuTimeNs;
+    }
+
+    int getThreads() {
+      return threads;
+    }
+
+    long getOpsDone() {
+      return opsDone;
+    }
+
+    double getThroughput() {
+      return runtimeNs == 0 ? 0 : 1e9 * opsDone / runtimeNs;
+    }
+
+    /**
+     * @return The CPU time used per operation in nanoseconds, or a negative value if the JVM cannot report
+     * its CPU time.
+     */
+    double getCpuTimePerOp() {
+      return cpuTimeNs < 0 || opsDone == 0 ? -1 : (double) cpuTimeNs / opsDone;
+    }
+  }
+
+  public static void main(String[] args) {
+    Properties props = Client.parseArguments(args);
+    List<Result> results = measure(props);
+
+    try {
+      Result best = exportResults(props, results);
+      if (best != null) {
+        System.err.println(ceilingHint(props, best));
+      }
+    } catch (IOException e) {
+      System.err.println("Could not export measurements, error: " + e.getMessage());
+      e.printStackTrace();
+      System.exit(-1);
+    }
+
+    System.exit(0);
+  }
+
+  /**
+   * Runs the workload against {@link NullDB} once for each configured thread count, after an optional warm-up.
+   */
+  static List<Result> measure(Properties props) {
+    props.setProperty(Client.DB_PROPERTY, NullDB.class.getName());
+    // throttling would measure the target, not the client
+    props.remove(Client.TARGET_PROPERTY);
+
+    boolean dotransactions = Boolean.valueOf(props.getProperty(Client.DO_TRANSACTIONS_PROPERTY,
+        String.valueOf(true)));
+    String opcount = props.getProperty(OPERATION_COUNT_PROPERTY, OPERATION_COUNT_PROPERTY_DEFAULT);
+    if (dotransactions) {
+      props.setProperty(Client.OPERATION_COUNT_PROPERTY, opcount);
+    } else {
+      props.setProperty(Client.INSERT_COUNT_PROPERTY, opcount);
+    }
+
+    Measurements.setProperties(props);
+
+    int[] threadCounts = parseThreadCounts(props.getProperty(THREAD_COUNTS_PROPERTY));
+
+    if (Boolean.parseBoolean(props.getProperty(WARMUP_PROPERTY, WARMUP_PROPERTY_DEFAULT))) {
+      System.err.println("Warming up with " + threadCounts[0] + " threads.");
+      run(props, threadCounts[0]);
+    }
+
+    List<Result> results = new ArrayList<>(threadCounts.length);
+    for (int threads : threadCounts) {
+      System.err.println("Measuring client with " + threads + " threads.");
+      results.add(run(props, threads));
+    }
+    return results;
+  }
+
+  static int[] parseThreadCounts(String threadCounts) {
+    if (threadCounts == null) {
+      int processors = Runtime.getRuntime().availableProcessors();
+      List<Integer> counts = new ArrayList<>();
+      counts.add(1);
+      for (int i = 2; i < processors; i *= 2) {
+        counts.add(i);
+      }
+      if (processors > 1) {
+        counts.add(processors);
+      }
+      int[] ret = new int[counts.size()];
+      for (int i = 0; i < ret.length; i++) {
+        ret[i] = counts.get(i);
+      }
+      return ret;
+    }
+
+    String[] parts = threadCounts.split(",");
+    int[] ret = new int[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      ret[i] = Integer.parseInt(parts[i].trim());
+      if (ret[i] <= 0) {
+        throw new IllegalArgumentException(THREAD_COUNTS_PROPERTY + " must only contain positive numbers: "
+            + threadCounts);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Runs the workload with a fresh workload instance and the given number of threads.
+   */
+  private static Result run(Properties props, int threadcount) {
+    // every thread count starts with empty histograms, as a fresh client would
+    Measurements.getMeasurements().reset();
+
+    Workload workload = Client.getWorkload(props);
+    Tracer tracer = Client.getTracer(props, workload);
+    try {
+      workload.init(props);
+    } catch (WorkloadException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      System.exit(0);
+    }
+
+    long maxExecutionTime = Integer.parseInt(props.getProperty(Client.MAX_EXECUTION_TIME, "0"));
+    CountDownLatch completeLatch = new CountDownLatch(threadcount);
+    List<ClientThread> clients = Client.initDb(NullDB.class.getName(), props, threadcount, -1, workload, tracer,
+        completeLatch);
+
+    List<Thread> threads = new ArrayList<>(threadcount);
+    for (ClientThread client : clients) {
+      threads.add(new Thread(client, "SelfTestThread"));
+    }
+
+    long cpuStart = Utils.getProcessCpuTimeNanos();
+    long st = System.nanoTime();
+
+    for (Thread t : threads) {
+      t.start();
+    }
+
+    Thread terminator = null;
+    if (maxExecutionTime > 0) {
+      terminator = new TerminatorThread(maxExecutionTime, threads, workload);
+      terminator.start();
+    }
+
+    long opsDone = 0;
+    for (int i = 0; i < threads.size(); i++) {
+      try {
+        threads.get(i).join();
+        opsDone += clients.get(i).getOpsDone();
+      } catch (InterruptedException ignored) {
+        // ignored
+      }
+    }
+
+    long en = System.nanoTime();
+    long cpuEnd = Utils.getProcessCpuTimeNanos();
+
+    if (terminator != null && !terminator.isInterrupted()) {
+      terminator.interrupt();
+    }
+
+    try {
+      workload.cleanup();
+    } catch (WorkloadException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+    }
+
+    long cpuTime = cpuStart < 0 || cpuEnd < 0 ? -1 : cpuEnd - cpuStart;
+    return new Result(threadcount, opsDone, en - st, cpuTime);
+  }
+
+  /**
+   * @return The result with the highest throughput, which is the client ceiling, or null if there is none.
+   */
+  static Result best(List<Result> results) {
+    Result best = null;
+    for (Result result : results) {
+      if (best == null || result.getThroughput() > best.getThroughput()) {
+        best = result;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Exports the results of all thread counts and the best of them.
+   *
+   * @return The result with the highest throughput, or null if there is none.
+   */
+  private static Result exportResults(Properties props, List<Result> results) throws IOException {
+    MeasurementsExporter exporter = null;
+    Result best = best(results);
+    try {
+      exporter = Client.createExporter(props);
+      for (Result result : results) {
+        String metric = "SELFTEST_" + result.threads + "_THREADS";
+        exporter.write(metric, "Operations", result.opsDone);
+        exporter.write(metric, "RunTime(ms)", result.runtimeNs / 1000000);
+        exporter.write(metric, "Throughput(ops/sec)", result.getThroughput());
+        if (result.getCpuTimePerOp() > 0) {
+          exporter.write(metric, "CpuTimePerOp(ns)", result.getCpuTimePerOp());
+          exporter.write(metric, "ThroughputPerCore(ops/sec)", 1e9 / result.getCpuTimePerOp());
+        }
+      }
+      if (best != null) {
+        exporter.write("SELFTEST", "MaxThroughput(ops/sec)", best.getThroughput());
+        exporter.write("SELFTEST", "MaxThroughputThreads", best.threads);
+      }
+    } finally {
+      if (exporter != null) {
+        exporter.close();
+      }
+    }
+    return best;
+  }
+
+  /**
+   * @return The advice on how to pass the measured ceiling to a benchmark run.
+   */
+  static String ceilingHint(Properties props, Result best) {
+    return "Pass -p " + Client.CLIENT_CEILING_PROPERTY + "=" + (long) best.getThroughput()
+        + " to a run with the same workload and " + best.threads + " threads to be warned when it comes within "
+        + props.getProperty(Client.CLIENT_CEILING_MARGIN_PROPERTY, Client.CLIENT_CEILING_MARGIN_PROPERTY_DEFAULT)
+        + "% (see " + Client.CLIENT_CEILING_MARGIN_PROPERTY + ") of the client ceiling.";
+  }
+}
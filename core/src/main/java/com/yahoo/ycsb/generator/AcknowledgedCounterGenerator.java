@@ -16,31 +16,41 @@
  */
 package com.yahoo.ycsb.generator;
 
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * A CounterGenerator that reports generated integers via lastInt()
  * only after they have been acknowledged.
+ *
+ * Acknowledgements are recorded without locking in bitset segments of
+ * {@value #SEGMENT_SIZE} ids each. Segments are created on demand, so the window
+ * of pending acknowledgements grows with the number of outstanding ids, and are
+ * dropped once the limit has moved past them. Every acknowledging thread helps
+ * advancing the limit, which therefore never lags behind a contiguous sequence
+ * of acknowledged ids.
  */
 public class AcknowledgedCounterGenerator extends CounterGenerator {
-  /** The size of the window of pending id ack's. 2^20 = {@value} */
-  static final int WINDOW_SIZE = Integer.rotateLeft(1, 20);
+  /** The number of bits used to address an id inside a segment. */
+  private static final int SEGMENT_SHIFT = 16;
 
-  /** The mask to use to turn an id into a slot in {@link #window}. */
-  private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+  /** The number of ids tracked by a single segment. 2^16 = {@value} */
+  static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
 
-  private final ReentrantLock lock;
-  private final boolean[] window;
-  private volatile long limit;
+  /** The mask to use to turn an id into a bit in its segment. */
+  private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+  private final ConcurrentHashMap<Long, AtomicLongArray> segments;
+  private final AtomicLong limit;
 
   /**
    * Create a counter that starts at countstart.
    */
   public AcknowledgedCounterGenerator(long countstart) {
     super(countstart);
-    lock = new ReentrantLock();
-    window = new boolean[WINDOW_SIZE];
-    limit = countstart - 1;
+    segments = new ConcurrentHashMap<>();
+    limit = new AtomicLong(countstart - 1);
   }
 
   /**
@@ -49,39 +59,78 @@ public class AcknowledgedCounterGenerator extends CounterGenerator {
    */
   @Override
   public Long lastValue() {
-    return limit;
+    return limit.get();
   }
 
   /**
    * Make a generated counter value available via lastInt().
    */
   public void acknowledge(long value) {
-    final int currentSlot = (int)(value & WINDOW_MASK);
-    if (window[currentSlot]) {
-      throw new RuntimeException("Too many unacknowledged insertion keys.");
+    if (value <= limit.get()) {
+      throw new IllegalArgumentException("Value " + value + " has already been acknowledged.");
+    }
+
+    AtomicLongArray segment = segments.get(value >>> SEGMENT_SHIFT);
+    if (segment == null) {
+      segment = new AtomicLongArray(SEGMENT_SIZE / Long.SIZE);
+      AtomicLongArray other = segments.putIfAbsent(value >>> SEGMENT_SHIFT, segment);
+      if (other != null) {
+        segment = other;
+      }
     }
 
-    window[currentSlot] = true;
+    final int word = (int) ((value & SEGMENT_MASK) / Long.SIZE);
+    final long bit = 1L << (value & (Long.SIZE - 1));
+    long current;
+    do {
+      current = segment.get(word);
+      if ((current & bit) != 0) {
+        throw new IllegalArgumentException("Value " + value + " has already been acknowledged.");
+      }
+    } while (!segment.compareAndSet(word, current, current | bit));
 
-    if (lock.tryLock()) {
-      // move a contiguous sequence from the window
-      // over to the "limit" variable
-      try {
-        // Only loop through the entire window at most once.
-        long beforeFirstSlot = (limit & WINDOW_MASK);
-        long index;
-        for (index = limit + 1; index != beforeFirstSlot; ++index) {
-          int slot = (int)(index & WINDOW_MASK);
-          if (!window[slot]) {
-            break;
-          }
+    advance();
+  }
 
-          window[slot] = false;
+  /**
+   * Move the limit over the contiguous sequence of acknowledged ids following it.
+   * Threads racing to advance retry until no more progress can be made, so the
+   * thread acknowledging the id right after the limit always picks up the ids
+   * acknowledged before it.
+   */
+  private void advance() {
+    while (true) {
+      final long current = limit.get();
+      final long next = lastAcknowledged(current + 1);
+      if (next == current) {
+        return;
+      }
+      if (limit.compareAndSet(current, next)) {
+        // segments fully behind the new limit will not be written again
+        for (long index = (current + 1) >>> SEGMENT_SHIFT; index < (next + 1) >>> SEGMENT_SHIFT; index++) {
+          segments.remove(index);
         }
+      }
+    }
+  }
 
-        limit = index - 1;
-      } finally {
-        lock.unlock();
+  /**
+   * @return The last id of the contiguous sequence of acknowledged ids starting
+   * at from, or from - 1 if from has not been acknowledged.
+   */
+  private long lastAcknowledged(long from) {
+    long position = from;
+    while (true) {
+      final AtomicLongArray segment = segments.get(position >>> SEGMENT_SHIFT);
+      if (segment == null) {
+        return position - 1;
+      }
+      final int offset = (int) (position & (Long.SIZE - 1));
+      final long bits = segment.get((int) ((position & SEGMENT_MASK) / Long.SIZE)) >>> offset;
+      final int run = Math.min(Long.numberOfTrailingZeros(~bits), Long.SIZE - offset);
+      position += run;
+      if (run < Long.SIZE - offset) {
+        return position - 1;
       }
     }
   }
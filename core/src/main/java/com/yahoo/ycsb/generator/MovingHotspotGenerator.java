@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generate integers whose popular items move over time. Values are drawn from a
+ * stationary base distribution (e.g. {@link HotspotIntegerGenerator} or
+ * {@link ScrambledZipfianGenerator}) over [0, itemcount) and then shifted by an
+ * offset that grows with the time elapsed since the first value was drawn,
+ * wrapping around at the end of the interval. The offset either drifts
+ * continuously, jumps every step interval, or both.
+ *
+ * This exercises the eviction and re-warming of caches in the benchmarked
+ * store, which a stationary distribution never does.
+ */
+public class MovingHotspotGenerator extends NumberGenerator {
+  /**
+   * The name of the property for the distribution that is moved, "hotspot" or "zipfian".
+   */
+  public static final String BASE_PROPERTY = "movinghotspot.base";
+
+  /**
+   * Default distribution that is moved.
+   */
+  public static final String BASE_DEFAULT = "hotspot";
+
+  /**
+   * The name of the property for the fraction of the items the hot set moves per second.
+   */
+  public static final String DRIFT_RATE_PROPERTY = "movinghotspot.driftrate";
+
+  /**
+   * Default drift rate, the hot set does not drift.
+   */
+  public static final String DRIFT_RATE_DEFAULT = "0";
+
+  /**
+   * The name of the property for the seconds between two step changes of the hot set. 0 disables steps.
+   */
+  public static final String STEP_INTERVAL_PROPERTY = "movinghotspot.stepinterval";
+
+  /**
+   * Default step interval, the hot set does not step.
+   */
+  public static final String STEP_INTERVAL_DEFAULT = "0";
+
+  /**
+   * The name of the property for the fraction of the items the hot set moves on each step. Defaults to the size
+   * of the hot set.
+   */
+  public static final String STEP_FRACTION_PROPERTY = "movinghotspot.stepfraction";
+
+  /**
+   * Marks the start time as not taken yet.
+   */
+  private static final long NOT_STARTED = Long.MIN_VALUE;
+
+  private final long lowerBound;
+  private final long itemcount;
+  private final NumberGenerator base;
+  private final double driftPerNano;
+  private final long stepIntervalNanos;
+  private final long stepSize;
+  private final AtomicLong startNanos = new AtomicLong(NOT_STARTED);
+
+  /**
+   * Create a generator for moving hotspot distributions.
+   *
+   * @param lowerBound lower bound of the distribution.
+   * @param upperBound upper bound of the distribution.
+   * @param base the stationary distribution to move, generating values in [0, upperBound - lowerBound].
+   * @param driftrate fraction of the items the values move per second.
+   * @param stepIntervalSeconds seconds between two steps, or 0 for no steps.
+   * @param stepfraction fraction of the items the values move on each step.
+   */
+  public MovingHotspotGenerator(long lowerBound, long upperBound, NumberGenerator base,
+                                double driftrate, long stepIntervalSeconds, double stepfraction) {
+    if (lowerBound > upperBound) {
+      throw new IllegalArgumentException("Upper bound of moving hotspot generator smaller than the lower bound.");
+    }
+    if (driftrate < 0.0 || stepfraction < 0.0 || stepIntervalSeconds < 0) {
+      throw new IllegalArgumentException("Moving hotspot generator can only move forward.");
+    }
+    this.lowerBound = lowerBound;
+    this.itemcount = upperBound - lowerBound + 1;
+    this.base = base;
+    this.driftPerNano = driftrate * itemcount / TimeUnit.SECONDS.toNanos(1);
+    this.stepIntervalNanos = TimeUnit.SECONDS.toNanos(stepIntervalSeconds);
+    this.stepSize = (long) (stepfraction * itemcount) % itemcount;
+  }
+
+  /**
+   * @return The distance the base distribution has moved after elapsedNanos, in [0, itemcount).
+   */
+  long offset(long elapsedNanos) {
+    long offset = (long) ((elapsedNanos * driftPerNano) % itemcount);
+    if (stepIntervalNanos > 0) {
+      offset += multiplyMod((elapsedNanos / stepIntervalNanos) % itemcount, stepSize, itemcount);
+    }
+    return offset % itemcount;
+  }
+
+  /**
+   * @return a * b mod m for a and b in [0, m), without overflowing for large keyspaces.
+   */
+  static long multiplyMod(long a, long b, long m) {
+    if (b == 0 || a <= Long.MAX_VALUE / b) {
+      return a * b % m;
+    }
+    return BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).mod(BigInteger.valueOf(m)).longValue();
+  }
+
+  /**
+   * @return The time elapsed since the first value was drawn, so the hot set does not move while the workload
+   * is still being set up.
+   */
+  private long elapsedNanos() {
+    long now = System.nanoTime();
+    long start = startNanos.get();
+    if (start == NOT_STARTED) {
+      startNanos.compareAndSet(NOT_STARTED, now);
+      start = startNanos.get();
+    }
+    return Math.max(0, now - start);
+  }
+
+  @Override
+  public Long nextValue() {
+    long shifted = base.nextValue().longValue() + offset(elapsedNanos());
+    long value = lowerBound + shifted % itemcount;
+    setLastValue(value);
+    return value;
+  }
+
+  @Override
+  public double mean() {
+    throw new UnsupportedOperationException("Can't compute mean of non-stationary distribution!");
+  }
+}
@@ -17,6 +17,13 @@
 
 package com.yahoo.ycsb.generator;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -35,13 +42,45 @@ import java.util.concurrent.ThreadLocalRandom;
  * generate a zipfian skew, and one of those values (zeta) is a sum sequence from 1 to n, where n is the itemcount.
  * Note that if you increase the number of items in the set, we can compute a new zeta incrementally, so it should be
  * fast unless you have added millions of items. However, if you decrease the number of items, we recompute zeta from
- * scratch, so this can take a long time.
+ * scratch, so this can take a long time. Large sums are split across the cores using fork-join, exact results can be
+ * cached on disk and zeta can be approximated in constant time instead, see {@link #setZetaComputation}.
  *
  * The algorithm used here is from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994.
  */
 public class ZipfianGenerator extends NumberGenerator {
   public static final double ZIPFIAN_CONSTANT = 0.99;
 
+  /**
+   * The name of the property for how zeta is computed. Options are "exact" (summing all items) and
+   * "approximate" (summing the first items and approximating the rest with the Euler-Maclaurin formula).
+   */
+  public static final String ZETA_PROPERTY = "zipfian.zeta";
+  public static final String ZETA_PROPERTY_DEFAULT = "exact";
+
+  /**
+   * The name of the property for a directory in which exactly computed zeta values are cached between runs.
+   */
+  public static final String ZETA_CACHE_DIR_PROPERTY = "zipfian.zetacachedir";
+
+  /**
+   * Number of terms summed directly before the Euler-Maclaurin approximation takes over. The error of the
+   * approximation then is far below the precision of a double.
+   */
+  static final long ZETA_EXACT_TERMS = 1000;
+
+  /**
+   * Number of terms above which zeta is summed by a fork-join task, and above which the result is worth caching.
+   */
+  static final long ZETA_PARALLEL_THRESHOLD = 1 << 22;
+
+  /**
+   * Number of terms summed by a single fork-join task.
+   */
+  private static final long ZETA_TASK_SIZE = 1 << 18;
+
+  private static volatile boolean approximatezeta = false;
+  private static volatile File zetacachedir = null;
+
   /**
    * Number of items.
    */
@@ -149,6 +188,17 @@ public class ZipfianGenerator extends NumberGenerator {
 
   /**************************************************************************/
 
+  /**
+   * Configure how zeta is computed by all zipfian generators created afterwards.
+   *
+   * @param approximate Whether to approximate zeta in constant time instead of summing all items.
+   * @param cachedir A directory to cache exactly computed zeta values in, or null for no caching.
+   */
+  public static void setZetaComputation(boolean approximate, File cachedir) {
+    approximatezeta = approximate;
+    zetacachedir = cachedir;
+  }
+
   /**
    * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items,
    * using the zipfian constant thetaVal. Remember the value of n, so if we change the itemcount, we can recompute zeta.
@@ -168,7 +218,29 @@ public class ZipfianGenerator extends NumberGenerator {
    * @param theta The zipfian constant.
    */
   static double zetastatic(long n, double theta) {
-    return zetastatic(0, n, theta, 0);
+    if (zetacachedir == null || approximatezeta || n <= ZETA_PARALLEL_THRESHOLD) {
+      return zetastatic(0, n, theta, 0);
+    }
+
+    File cachefile = new File(zetacachedir, "zeta-" + n + "-" + theta);
+    if (cachefile.exists()) {
+      try {
+        return Double.parseDouble(new String(Files.readAllBytes(cachefile.toPath()), StandardCharsets.UTF_8).trim());
+      } catch (IOException | NumberFormatException e) {
+        System.err.println("WARNING: Could not read cached zeta from " + cachefile + ": " + e.getMessage());
+      }
+    }
+
+    double sum = zetastatic(0, n, theta, 0);
+    try {
+      File tmpfile = File.createTempFile(cachefile.getName(), ".tmp", zetacachedir);
+      Files.write(tmpfile.toPath(), Double.toString(sum).getBytes(StandardCharsets.UTF_8));
+      Files.move(tmpfile.toPath(), cachefile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      System.err.println("WARNING: Could not cache zeta in " + cachefile + ": " + e.getMessage());
+    }
+    return sum;
   }
 
   /**
@@ -196,6 +268,19 @@ public class ZipfianGenerator extends NumberGenerator {
    * @param initialsum The value of zeta we are computing incrementally from.
    */
   static double zetastatic(long st, long n, double theta, double initialsum) {
+    if (approximatezeta && n - st > ZETA_EXACT_TERMS) {
+      return initialsum + zetaapproximate(st, n, theta);
+    }
+    if (n - st > ZETA_PARALLEL_THRESHOLD) {
+      return initialsum + ForkJoinPool.commonPool().invoke(new ZetaTask(st, n, theta));
+    }
+    return zetasum(st, n, theta, initialsum);
+  }
+
+  /**
+   * Sum the terms of zeta for the items st+1 to n on the calling thread.
+   */
+  private static double zetasum(long st, long n, double theta, double initialsum) {
     double sum = initialsum;
     for (long i = st; i < n; i++) {
 
@@ -207,6 +292,71 @@ public class ZipfianGenerator extends NumberGenerator {
     return sum;
   }
 
+  /**
+   * Approximate the terms of zeta for the items st+1 to n in constant time. The first {@link #ZETA_EXACT_TERMS}
+   * terms are summed, the remaining ones are replaced by the Euler-Maclaurin formula up to the third derivative.
+   *
+   * @param st The number of items used to compute the last initialsum
+   * @param n The number of items to compute zeta over.
+   * @param theta The zipfian constant.
+   */
+  static double zetaapproximate(long st, long n, double theta) {
+    long exact = Math.min(n, st + ZETA_EXACT_TERMS);
+    double sum = zetasum(st, exact, theta, 0);
+    if (exact == n) {
+      return sum;
+    }
+
+    // sum of f(i) = i^-theta for a <= i <= b
+    double a = exact + 1;
+    double b = n;
+    double integral;
+    if (theta == 1.0) {
+      integral = Math.log(b / a);
+    } else {
+      integral = (Math.pow(b, 1 - theta) - Math.pow(a, 1 - theta)) / (1 - theta);
+    }
+    double fa = Math.pow(a, -theta);
+    double fb = Math.pow(b, -theta);
+    double firstderivativea = -theta * fa / a;
+    double firstderivativeb = -theta * fb / b;
+    double thirdderivativea = -theta * (theta + 1) * (theta + 2) * fa / (a * a * a);
+    double thirdderivativeb = -theta * (theta + 1) * (theta + 2) * fb / (b * b * b);
+
+    return sum + integral + (fa + fb) / 2
+        + (firstderivativeb - firstderivativea) / 12
+        - (thirdderivativeb - thirdderivativea) / 720;
+  }
+
+  /**
+   * Sums the terms of zeta for a range of items by splitting it across the fork-join pool.
+   */
+  private static final class ZetaTask extends RecursiveTask<Double> {
+    private static final long serialVersionUID = 1L;
+
+    private final long st;
+    private final long n;
+    private final double theta;
+
+    private ZetaTask(long st, long n, double theta) {
+      this.st = st;
+      this.n = n;
+      this.theta = theta;
+    }
+
+    @Override
+    protected Double compute() {
+      if (n - st <= ZETA_TASK_SIZE) {
+        return zetasum(st, n, theta, 0);
+      }
+      long mid = st + (n - st) / 2;
+      ZetaTask left = new ZetaTask(st, mid, theta);
+      left.fork();
+      double right = new ZetaTask(mid, n, theta).compute();
+      return left.join() + right;
+    }
+  }
+
   /****************************************************************************************/
 
 
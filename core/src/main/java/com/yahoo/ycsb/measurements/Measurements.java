@@ -21,11 +21,14 @@ import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Collects latency measurements, and reports them when requested.
+ * Collects latency measurements and counters, and reports them when requested.
  */
 public class Measurements {
   /**
@@ -68,6 +71,7 @@ public class Measurements {
 
   private final ConcurrentHashMap<String, OneMeasurement> opToMesurementMap;
   private final ConcurrentHashMap<String, OneMeasurement> opToIntendedMesurementMap;
+  private final ConcurrentHashMap<String, LongAdder> counters;
   private final MeasurementType measurementType;
   private final int measurementInterval;
   private final Properties props;
@@ -78,6 +82,7 @@ public class Measurements {
   public Measurements(Properties props) {
     opToMesurementMap = new ConcurrentHashMap<>();
     opToIntendedMesurementMap = new ConcurrentHashMap<>();
+    counters = new ConcurrentHashMap<>();
 
     this.props = props;
 
@@ -249,6 +254,31 @@ public class Measurements {
     m.reportStatus(status);
   }
 
+  /**
+   * Discard all measurements taken so far, e.g. at the start of a new phase. Must not be called while
+   * operations are being measured.
+   */
+  public void reset() {
+    opToMesurementMap.clear();
+    opToIntendedMesurementMap.clear();
+    counters.clear();
+  }
+
+  /**
+   * Add to a counter, e.g. of the events a binding observes, which are not latencies. The total of each
+   * counter is exported with the measurements.
+   *
+   * @param name The name of the counter.
+   * @param delta The amount to add.
+   */
+  public void count(String name, long delta) {
+    LongAdder counter = counters.get(name);
+    if (counter == null) {
+      counter = counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+    counter.add(delta);
+  }
+
   /**
    * Export the current measurements to a suitable format.
    *
@@ -262,6 +292,9 @@ public class Measurements {
     for (OneMeasurement measurement : opToIntendedMesurementMap.values()) {
       measurement.exportMeasurements(exporter);
     }
+    for (Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+      exporter.write(counter.getKey(), "Total", counter.getValue().sum());
+    }
   }
 
   /**
@@ -275,6 +308,9 @@ public class Measurements {
     for (OneMeasurement m : opToIntendedMesurementMap.values()) {
       ret += m.getSummary() + " ";
     }
+    for (Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+      ret += "[" + counter.getKey() + ": Total=" + counter.getValue().sum() + "] ";
+    }
     return ret;
   }
 
@@ -22,6 +22,7 @@ import com.yahoo.ycsb.generator.*;
 import com.yahoo.ycsb.generator.UniformLongGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -44,8 +45,15 @@ import java.util.*;
  * <LI><b>scanproportion</b>: what proportion of operations should be scans (default: 0)
  * <LI><b>readmodifywriteproportion</b>: what proportion of operations should be read a record,
  * modify it, write it back (default: 0)
+ * <LI><b>multireadproportion</b>: what proportion of operations should read several records at once
+ * (default: 0)
+ * <LI><b>multireadbatchsize</b>: for multi-reads, how many records to read at once (default: 10)
+ * <LI><b>readrangeproportion</b>: what proportion of operations should read a range of the bytes of a record,
+ * for bindings that store a record as one object (default: 0)
+ * <LI><b>readrangelength</b>: for range reads, how many bytes to read from a random offset of the record
+ * (default: 100)
  * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate
- * on - uniform, zipfian, hotspot, sequential, exponential or latest (default: uniform)
+ * on - uniform, zipfian, hotspot, movinghotspot, sequential, exponential or latest (default: uniform)
  * <LI><b>minscanlength</b>: for scans, what is the minimum number of records to scan (default: 1)
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to scan (default: 1000)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be used to choose the
@@ -63,6 +71,17 @@ import java.util.*;
  * order ("hashed") (default: hashed)
  * <LI><b>fieldnameprefix</b>: what should be a prefix for field names, the shorter may decrease the
  * required storage size (default: "field")
+ * <LI><b>movinghotspot.base</b>: for the movinghotspot distribution, which distribution is moved over
+ * time, hotspot or zipfian (default: hotspot)
+ * <LI><b>movinghotspot.driftrate</b>: fraction of the keyspace the hot set moves per second (default: 0)
+ * <LI><b>movinghotspot.stepinterval</b>: seconds between two step changes of the hot set, 0 for no
+ * steps (default: 0)
+ * <LI><b>movinghotspot.stepfraction</b>: fraction of the keyspace the hot set moves on each step
+ * (default: hotspotdatafraction)
+ * <LI><b>zipfian.zeta</b>: how the zipfian generators compute zeta, "exact" or "approximate" (constant
+ * time, using the Euler-Maclaurin formula) (default: exact)
+ * <LI><b>zipfian.zetacachedir</b>: a directory in which exactly computed zeta values are cached between
+ * runs (default: no caching)
  * </ul>
  */
 public class CoreWorkload extends Workload {
@@ -80,6 +99,8 @@ public class CoreWorkload extends Workload {
   public static final String INSERT_IDENTIFIER = "INSERT";
   public static final String SCAN_IDENTIFIER = "SCAN";
   public static final String READMODIFYWRITE_IDENTIFIER = "READMODIFYWRITE";
+  public static final String MULTIREAD_IDENTIFIER = "MULTIREAD";
+  public static final String READRANGE_IDENTIFIER = "READRANGE";
 
   protected String table;
 
@@ -240,6 +261,46 @@ public class CoreWorkload extends Workload {
    */
   public static final String READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT = "0.0";
 
+  /**
+   * The name of the property for the proportion of transactions that read several records at once.
+   */
+  public static final String MULTIREAD_PROPORTION_PROPERTY = "multireadproportion";
+
+  /**
+   * The default proportion of transactions that are multi-reads.
+   */
+  public static final String MULTIREAD_PROPORTION_PROPERTY_DEFAULT = "0.0";
+
+  /**
+   * The name of the property for the number of records read by a multi-read.
+   */
+  public static final String MULTIREAD_BATCH_SIZE_PROPERTY = "multireadbatchsize";
+
+  /**
+   * The default number of records read by a multi-read.
+   */
+  public static final String MULTIREAD_BATCH_SIZE_PROPERTY_DEFAULT = "10";
+
+  /**
+   * The name of the property for the proportion of transactions that read a range of the bytes of a record.
+   */
+  public static final String READRANGE_PROPORTION_PROPERTY = "readrangeproportion";
+
+  /**
+   * The default proportion of transactions that are range reads.
+   */
+  public static final String READRANGE_PROPORTION_PROPERTY_DEFAULT = "0.0";
+
+  /**
+   * The name of the property for the number of bytes read by a range read.
+   */
+  public static final String READRANGE_LENGTH_PROPERTY = "readrangelength";
+
+  /**
+   * The default number of bytes read by a range read.
+   */
+  public static final String READRANGE_LENGTH_PROPERTY_DEFAULT = "100";
+
   /**
    * The name of the property for the the distribution of requests across the keyspace. Options are
    * "uniform", "zipfian" and "latest"
@@ -352,6 +413,9 @@ public class CoreWorkload extends Workload {
   protected NumberGenerator fieldchooser;
   protected AcknowledgedCounterGenerator transactioninsertkeysequence;
   protected NumberGenerator scanlength;
+  protected int multireadbatchsize;
+  protected int readrangelength;
+  protected NumberGenerator readrangeoffset;
   protected boolean orderedinserts;
   protected long fieldcount;
   protected long recordcount;
@@ -391,6 +455,19 @@ public class CoreWorkload extends Workload {
     return fieldlengthgenerator;
   }
 
+  /**
+   * Configures how the zipfian generators compute zeta, which dominates the initialization time for large
+   * record counts.
+   */
+  static void setZetaComputation(Properties p) throws WorkloadException {
+    String zeta = p.getProperty(ZipfianGenerator.ZETA_PROPERTY, ZipfianGenerator.ZETA_PROPERTY_DEFAULT);
+    if (!zeta.equals("exact") && !zeta.equals("approximate")) {
+      throw new WorkloadException("Unknown " + ZipfianGenerator.ZETA_PROPERTY + " \"" + zeta + "\"");
+    }
+    String cachedir = p.getProperty(ZipfianGenerator.ZETA_CACHE_DIR_PROPERTY);
+    ZipfianGenerator.setZetaComputation(zeta.equals("approximate"), cachedir == null ? null : new File(cachedir));
+  }
+
   /**
    * Initialize the scenario.
    * Called once, in the main client thread, before any operations are started.
@@ -399,6 +476,8 @@ public class CoreWorkload extends Workload {
   public void init(Properties p) throws WorkloadException {
     table = p.getProperty(TABLENAME_PROPERTY, TABLENAME_PROPERTY_DEFAULT);
 
+    setZetaComputation(p);
+
     fieldcount =
         Long.parseLong(p.getProperty(FIELD_COUNT_PROPERTY, FIELD_COUNT_PROPERTY_DEFAULT));
     final String fieldnameprefix = p.getProperty(FIELD_NAME_PREFIX, FIELD_NAME_PREFIX_DEFAULT);
@@ -440,6 +519,22 @@ public class CoreWorkload extends Workload {
     writeallfields = Boolean.parseBoolean(
         p.getProperty(WRITE_ALL_FIELDS_PROPERTY, WRITE_ALL_FIELDS_PROPERTY_DEFAULT));
 
+    multireadbatchsize = Integer.parseInt(
+        p.getProperty(MULTIREAD_BATCH_SIZE_PROPERTY, MULTIREAD_BATCH_SIZE_PROPERTY_DEFAULT));
+    if (multireadbatchsize <= 0) {
+      throw new WorkloadException(MULTIREAD_BATCH_SIZE_PROPERTY + " must be positive: " + multireadbatchsize);
+    }
+
+    readrangelength = Integer.parseInt(
+        p.getProperty(READRANGE_LENGTH_PROPERTY, READRANGE_LENGTH_PROPERTY_DEFAULT));
+    if (readrangelength <= 0) {
+      throw new WorkloadException(READRANGE_LENGTH_PROPERTY + " must be positive: " + readrangelength);
+    }
+    // the ranges lie within the record written with the longest fields
+    int fieldlength = Integer.parseInt(p.getProperty(FIELD_LENGTH_PROPERTY, FIELD_LENGTH_PROPERTY_DEFAULT));
+    long recordlength = fieldcount * fieldlength;
+    readrangeoffset = new UniformLongGenerator(0, Math.max(0, recordlength - readrangelength));
+
     dataintegrity = Boolean.parseBoolean(
         p.getProperty(DATA_INTEGRITY_PROPERTY, DATA_INTEGRITY_PROPERTY_DEFAULT));
     // Confirm that fieldlengthgenerator returns a constant if data
@@ -498,6 +593,8 @@ public class CoreWorkload extends Workload {
           Double.parseDouble(p.getProperty(HOTSPOT_OPN_FRACTION, HOTSPOT_OPN_FRACTION_DEFAULT));
       keychooser = new HotspotIntegerGenerator(insertstart, insertstart + insertcount - 1,
           hotsetfraction, hotopnfraction);
+    } else if (requestdistrib.equals("movinghotspot")) {
+      keychooser = createMovingHotspotGenerator(p, insertstart, insertcount);
     } else {
       throw new WorkloadException("Unknown request distribution \"" + requestdistrib + "\"");
     }
@@ -657,6 +754,12 @@ public class CoreWorkload extends Workload {
     case "SCAN":
       doTransactionScan(db);
       break;
+    case "MULTIREAD":
+      doTransactionMultiRead(db);
+      break;
+    case "READRANGE":
+      doTransactionReadRange(db);
+      break;
     default:
       doTransactionReadModifyWrite(db);
     }
@@ -731,6 +834,49 @@ public class CoreWorkload extends Workload {
     }
   }
 
+  public void doTransactionReadRange(DB db) {
+    // choose a random key and a random range of its record
+    String keyname = buildKeyName(nextKeynum());
+    long offset = readrangeoffset.nextValue().longValue();
+
+    HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+    db.readRange(table, keyname, offset, readrangelength, cells);
+  }
+
+  public void doTransactionMultiRead(DB db) {
+    // choose the random keys, a key chosen twice is read once
+    Set<String> keynames = new LinkedHashSet<String>();
+    for (int i = 0; i < multireadbatchsize; i++) {
+      keynames.add(buildKeyName(nextKeynum()));
+    }
+
+    HashSet<String> fields = null;
+
+    if (!readallfields) {
+      // read a random field
+      String fieldname = fieldnames.get(fieldchooser.nextValue().intValue());
+
+      fields = new HashSet<String>();
+      fields.add(fieldname);
+    } else if (dataintegrity) {
+      // pass the full field list if dataintegrity is on for verification
+      fields = new HashSet<String>(fieldnames);
+    }
+
+    Map<String, Map<String, ByteIterator>> rows = new HashMap<String, Map<String, ByteIterator>>();
+    db.multiRead(table, keynames, fields, rows);
+
+    if (dataintegrity) {
+      for (String keyname : keynames) {
+        HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+        if (rows.containsKey(keyname)) {
+          cells.putAll(rows.get(keyname));
+        }
+        verifyRow(keyname, cells);
+      }
+    }
+  }
+
   public void doTransactionReadModifyWrite(DB db) {
     // choose a random key
     long keynum = nextKeynum();
@@ -833,6 +979,37 @@ public class CoreWorkload extends Workload {
     }
   }
 
+  /**
+   * Creates the key chooser for the "movinghotspot" request distribution, moving either a hotspot or a
+   * scrambled zipfian distribution over the keys from insertstart to insertstart + insertcount - 1.
+   */
+  private static NumberGenerator createMovingHotspotGenerator(Properties p, long insertstart, long insertcount)
+      throws WorkloadException {
+    double hotsetfraction =
+        Double.parseDouble(p.getProperty(HOTSPOT_DATA_FRACTION, HOTSPOT_DATA_FRACTION_DEFAULT));
+    double hotopnfraction =
+        Double.parseDouble(p.getProperty(HOTSPOT_OPN_FRACTION, HOTSPOT_OPN_FRACTION_DEFAULT));
+
+    String basedistrib = p.getProperty(MovingHotspotGenerator.BASE_PROPERTY, MovingHotspotGenerator.BASE_DEFAULT);
+    NumberGenerator base;
+    if (basedistrib.equals("hotspot")) {
+      base = new HotspotIntegerGenerator(0, insertcount - 1, hotsetfraction, hotopnfraction);
+    } else if (basedistrib.equals("zipfian")) {
+      base = new ScrambledZipfianGenerator(0, insertcount - 1);
+    } else {
+      throw new WorkloadException("Unknown " + MovingHotspotGenerator.BASE_PROPERTY + " \"" + basedistrib + "\"");
+    }
+
+    double driftrate = Double.parseDouble(p.getProperty(MovingHotspotGenerator.DRIFT_RATE_PROPERTY,
+        MovingHotspotGenerator.DRIFT_RATE_DEFAULT));
+    long stepinterval = Long.parseLong(p.getProperty(MovingHotspotGenerator.STEP_INTERVAL_PROPERTY,
+        MovingHotspotGenerator.STEP_INTERVAL_DEFAULT));
+    double stepfraction = Double.parseDouble(p.getProperty(MovingHotspotGenerator.STEP_FRACTION_PROPERTY,
+        String.valueOf(hotsetfraction)));
+    return new MovingHotspotGenerator(insertstart, insertstart + insertcount - 1, base, driftrate, stepinterval,
+        stepfraction);
+  }
+
   /**
    * Creates a weighted discrete values with database operations for a workload to perform.
    * Weights/proportions are read from the properties list and defaults are used
@@ -857,6 +1034,10 @@ public class CoreWorkload extends Workload {
         p.getProperty(SCAN_PROPORTION_PROPERTY, SCAN_PROPORTION_PROPERTY_DEFAULT));
     final double readmodifywriteproportion = Double.parseDouble(p.getProperty(
         READMODIFYWRITE_PROPORTION_PROPERTY, READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
+    final double multireadproportion = Double.parseDouble(p.getProperty(
+        MULTIREAD_PROPORTION_PROPERTY, MULTIREAD_PROPORTION_PROPERTY_DEFAULT));
+    final double readrangeproportion = Double.parseDouble(p.getProperty(
+        READRANGE_PROPORTION_PROPERTY, READRANGE_PROPORTION_PROPERTY_DEFAULT));
 
     final DiscreteGenerator operationchooser = new DiscreteGenerator();
     if (readproportion > 0) {
@@ -878,6 +1059,14 @@ public class CoreWorkload extends Workload {
     if (readmodifywriteproportion > 0) {
       operationchooser.addValue(readmodifywriteproportion, READMODIFYWRITE_IDENTIFIER);
     }
+
+    if (multireadproportion > 0) {
+      operationchooser.addValue(multireadproportion, MULTIREAD_IDENTIFIER);
+    }
+
+    if (readrangeproportion > 0) {
+      operationchooser.addValue(readrangeproportion, READRANGE_IDENTIFIER);
+    }
     return operationchooser;
   }
 }
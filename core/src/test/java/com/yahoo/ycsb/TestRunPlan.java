@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.workloads.CoreWorkload;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link RunPlan}.
+ */
+public class TestRunPlan {
+
+  /**
+   * Holds back its inserts until it is flushed or cleaned up, like the bindings that batch their writes.
+   */
+  public static class BufferingDB extends DB {
+    static final Set<String> STORED = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    static final AtomicInteger INITS = new AtomicInteger();
+    static final AtomicInteger FLUSHES = new AtomicInteger();
+    static final AtomicInteger CLEANUPS = new AtomicInteger();
+    static final AtomicInteger FOUND = new AtomicInteger();
+    static final AtomicInteger MISSING = new AtomicInteger();
+
+    private final List<String> buffered = new ArrayList<>();
+
+    @Override
+    public void init() {
+      INITS.incrementAndGet();
+    }
+
+    @Override
+    public void flush() {
+      FLUSHES.incrementAndGet();
+      STORED.addAll(buffered);
+      buffered.clear();
+    }
+
+    @Override
+    public void cleanup() {
+      CLEANUPS.incrementAndGet();
+      STORED.addAll(buffered);
+      buffered.clear();
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      if (!STORED.contains(key)) {
+        MISSING.incrementAndGet();
+        return Status.NOT_FOUND;
+      }
+      FOUND.incrementAndGet();
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      buffered.add(key);
+      return Status.BATCHED_OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.NOT_IMPLEMENTED;
+    }
+  }
+
+  private static File write(Properties props) throws IOException {
+    File file = File.createTempFile("runplan", ".properties");
+    file.deleteOnExit();
+    try (OutputStream out = new FileOutputStream(file)) {
+      props.store(out, null);
+    }
+    return file;
+  }
+
+  @Test
+  public void testPhaseProperties() throws IOException {
+    Properties workload = new Properties();
+    workload.setProperty("readproportion", "0.95");
+    workload.setProperty("threadcount", "8");
+
+    Properties plan = new Properties();
+    plan.setProperty("recordcount", "100");
+    plan.setProperty("threadcount", "2");
+    plan.setProperty("exportfile", "results");
+    plan.setProperty("phases", "load, run");
+    plan.setProperty("phase.load.dotransactions", "false");
+    plan.setProperty("phase.run.propertyfiles", write(workload).getPath());
+    plan.setProperty("phase.run.threadcount", "4");
+
+    Properties props = new Properties();
+    props.setProperty(RunPlan.RUN_PLAN_PROPERTY, write(plan).getPath());
+    props.setProperty("recordcount", "200");
+    props.setProperty("dotransactions", "true");
+
+    Properties base = new Properties();
+    Map<String, Properties> phases = RunPlan.loadPhases(props, base);
+    assertEquals(new ArrayList<>(phases.keySet()), Arrays.asList("load", "run"));
+    assertFalse(base.containsKey("phases"));
+    assertEquals(base.getProperty("recordcount"), "200");
+
+    Properties load = phases.get("load");
+    assertEquals(load.getProperty("dotransactions"), "false");
+    assertEquals(load.getProperty("threadcount"), "2");
+    assertEquals(load.getProperty("exportfile"), "results.load");
+    assertFalse(load.containsKey("phase.load.dotransactions"));
+
+    Properties run = phases.get("run");
+    assertEquals(run.getProperty("dotransactions"), "true");
+    assertEquals(run.getProperty("recordcount"), "200");
+    assertEquals(run.getProperty("readproportion"), "0.95");
+    assertEquals(run.getProperty("threadcount"), "4");
+    assertEquals(run.getProperty("exportfile"), "results.run");
+  }
+
+  @Test
+  public void testExecute() throws IOException {
+    File exportfile = File.createTempFile("runplan", ".out");
+    exportfile.delete();
+
+    Properties plan = new Properties();
+    plan.setProperty(Client.WORKLOAD_PROPERTY, CoreWorkload.class.getName());
+    plan.setProperty(Client.DB_PROPERTY, NullDB.class.getName());
+    plan.setProperty(Client.EXPORT_FILE_PROPERTY, exportfile.getPath());
+    plan.setProperty(Client.RECORD_COUNT_PROPERTY, "100");
+    plan.setProperty(Client.OPERATION_COUNT_PROPERTY, "100");
+    plan.setProperty("phases", "load,warmup,run");
+    plan.setProperty("phase.load.dotransactions", "false");
+    plan.setProperty("phase.warmup.warmup", "true");
+    plan.setProperty("phase.run.threadcount", "2");
+
+    Properties props = new Properties();
+    props.setProperty(RunPlan.RUN_PLAN_PROPERTY, write(plan).getPath());
+    RunPlan.execute(props);
+
+    File load = new File(exportfile.getPath() + ".load");
+    File warmup = new File(exportfile.getPath() + ".warmup");
+    File run = new File(exportfile.getPath() + ".run");
+    try {
+      assertTrue(load.exists());
+      assertFalse(warmup.exists());
+      assertTrue(run.exists());
+    } finally {
+      load.delete();
+      run.delete();
+    }
+  }
+
+  @Test
+  public void testBufferedWritesVisibleToNextPhase() throws IOException {
+    Properties plan = new Properties();
+    plan.setProperty(Client.WORKLOAD_PROPERTY, CoreWorkload.class.getName());
+    plan.setProperty(Client.DB_PROPERTY, BufferingDB.class.getName());
+    plan.setProperty(Client.RECORD_COUNT_PROPERTY, "100");
+    plan.setProperty(Client.OPERATION_COUNT_PROPERTY, "100");
+    plan.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "1");
+    plan.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    plan.setProperty(Client.THREAD_COUNT_PROPERTY, "2");
+    plan.setProperty("phases", "load,run");
+    plan.setProperty("phase.load.dotransactions", "false");
+
+    Properties props = new Properties();
+    props.setProperty(RunPlan.RUN_PLAN_PROPERTY, write(plan).getPath());
+    RunPlan.execute(props);
+
+    assertEquals(BufferingDB.STORED.size(), 100);
+    assertEquals(BufferingDB.FOUND.get(), 100);
+    assertEquals(BufferingDB.MISSING.get(), 0);
+    // the DB instances are shared by the phases and flushed at the end of each
+    assertEquals(BufferingDB.INITS.get(), 2);
+    assertEquals(BufferingDB.FLUSHES.get(), 4);
+    assertEquals(BufferingDB.CLEANUPS.get(), 2);
+  }
+}
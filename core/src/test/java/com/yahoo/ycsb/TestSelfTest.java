@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.workloads.CoreWorkload;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link SelfTest}.
+ */
+public class TestSelfTest {
+
+  @Test
+  public void testExplicitThreadCounts() {
+    assertEquals(SelfTest.parseThreadCounts("1, 4,16"), new int[]{1, 4, 16});
+  }
+
+  @Test
+  public void testDefaultThreadCounts() {
+    int[] counts = SelfTest.parseThreadCounts(null);
+    assertEquals(counts[0], 1);
+    assertEquals(counts[counts.length - 1], Runtime.getRuntime().availableProcessors());
+    for (int i = 1; i < counts.length; i++) {
+      assertTrue(counts[i] > counts[i - 1]);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNonPositiveThreadCount() {
+    SelfTest.parseThreadCounts("1,0");
+  }
+
+  @Test
+  public void testCeilingReported() {
+    Properties props = new Properties();
+    props.setProperty(Client.WORKLOAD_PROPERTY, CoreWorkload.class.getName());
+    props.setProperty(SelfTest.THREAD_COUNTS_PROPERTY, "1,2");
+    props.setProperty(SelfTest.OPERATION_COUNT_PROPERTY, "1000");
+    props.setProperty(SelfTest.WARMUP_PROPERTY, "false");
+    props.setProperty(Client.CLIENT_CEILING_MARGIN_PROPERTY, "25");
+
+    List<SelfTest.Result> results = SelfTest.measure(props);
+    assertEquals(results.size(), 2);
+    for (SelfTest.Result result : results) {
+      assertEquals(result.getOpsDone(), 1000);
+    }
+
+    SelfTest.Result best = SelfTest.best(results);
+    assertNotNull(best);
+    assertTrue(best.getThroughput() > 0);
+    String hint = SelfTest.ceilingHint(props, best);
+    assertTrue(hint.contains(Client.CLIENT_CEILING_PROPERTY + "=" + (long) best.getThroughput()), hint);
+    assertTrue(hint.contains(best.getThreads() + " threads"), hint);
+    assertTrue(hint.contains("within 25%"), hint);
+  }
+}
@@ -16,12 +16,16 @@
  */
 package com.yahoo.ycsb.generator;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.assertEquals;
+
 /**
  * Tests for the AcknowledgedCounterGenerator class.
  */
@@ -32,7 +36,7 @@ public class AcknowledgedCounterGeneratorTest {
    */
   @Test
   public void testIncrementPastIntegerMaxValue() {
-    final long toTry = AcknowledgedCounterGenerator.WINDOW_SIZE * 3;
+    final long toTry = AcknowledgedCounterGenerator.SEGMENT_SIZE * 48;
 
     AcknowledgedCounterGenerator generator =
         new AcknowledgedCounterGenerator(Integer.MAX_VALUE - 1000);
@@ -58,4 +62,57 @@ public class AcknowledgedCounterGeneratorTest {
     }
 
   }
+
+  /**
+   * Test that more outstanding ids than a single segment holds are tracked
+   * and released once the oldest one is acknowledged.
+   */
+  @Test
+  public void testManyOutstandingAcknowledgements() {
+    final int outstanding = AcknowledgedCounterGenerator.SEGMENT_SIZE * 20;
+
+    AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(0);
+    for (int i = 0; i < outstanding; ++i) {
+      generator.nextValue();
+    }
+
+    for (long value = outstanding - 1; value > 0; --value) {
+      generator.acknowledge(value);
+    }
+    assertEquals(generator.lastValue().longValue(), -1L);
+
+    generator.acknowledge(0);
+    assertEquals(generator.lastValue().longValue(), outstanding - 1L);
+  }
+
+  /**
+   * Test that concurrently acknowledging threads leave the limit at the last
+   * generated value.
+   */
+  @Test
+  public void testConcurrentAcknowledgements() throws InterruptedException {
+    final int threadCount = 16;
+    final int perThread = 100000;
+
+    final AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(1000);
+    List<Thread> threads = new ArrayList<Thread>(threadCount);
+    for (int i = 0; i < threadCount; ++i) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < perThread; ++j) {
+            generator.acknowledge(generator.nextValue());
+          }
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(generator.lastValue().longValue(), 1000L + threadCount * perThread - 1);
+  }
 }
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the MovingHotspotGenerator class.
+ */
+public class TestMovingHotspotGenerator {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void testStaysWithinBounds() {
+    MovingHotspotGenerator gen = new MovingHotspotGenerator(100, 199,
+        new HotspotIntegerGenerator(0, 99, 0.2, 0.8), 1000.0, 0, 0);
+    for (int i = 0; i < 100000; i++) {
+      long value = gen.nextValue();
+      assertTrue(value >= 100 && value <= 199, "value out of bounds: " + value);
+    }
+  }
+
+  @Test
+  public void testDrift() {
+    MovingHotspotGenerator gen = new MovingHotspotGenerator(0, 999,
+        new HotspotIntegerGenerator(0, 999, 0.2, 0.8), 0.1, 0, 0);
+    assertEquals(gen.offset(0), 0);
+    assertEquals(gen.offset(SECOND / 2), 50);
+    assertEquals(gen.offset(3 * SECOND), 300);
+    // wraps around after moving through the whole keyspace
+    assertEquals(gen.offset(12 * SECOND), 200);
+  }
+
+  @Test
+  public void testSteps() {
+    MovingHotspotGenerator gen = new MovingHotspotGenerator(0, 999,
+        new HotspotIntegerGenerator(0, 999, 0.2, 0.8), 0, 10, 0.25);
+    assertEquals(gen.offset(9 * SECOND), 0);
+    assertEquals(gen.offset(10 * SECOND), 250);
+    assertEquals(gen.offset(39 * SECOND), 750);
+    assertEquals(gen.offset(40 * SECOND), 0);
+  }
+
+  @Test
+  public void testLargeKeyspace() {
+    long itemcount = 1L << 40;
+    MovingHotspotGenerator gen = new MovingHotspotGenerator(0, itemcount - 1,
+        new HotspotIntegerGenerator(0, itemcount - 1, 0.2, 0.8), 0, 1, 0.75);
+    // 3 * 2^38 after the first step, the product of steps and step size no longer fits a long later on
+    assertEquals(gen.offset(SECOND), 3 * (1L << 38));
+    long steps = (1L << 30) + 1;
+    assertEquals(gen.offset(steps * SECOND), 3 * (1L << 38));
+    assertEquals(MovingHotspotGenerator.multiplyMod(Long.MAX_VALUE - 1, Long.MAX_VALUE - 1, Long.MAX_VALUE), 1);
+  }
+
+  @Test
+  public void testStartsOnFirstValue() throws InterruptedException {
+    MovingHotspotGenerator gen = new MovingHotspotGenerator(0, 999,
+        new HotspotIntegerGenerator(0, 999, 0.001, 1.0), 1.0, 0, 0);
+    Thread.sleep(100);
+    // a generator that started at construction would have moved its single hot item by around 100 by now
+    long first = gen.nextValue();
+    assertTrue(first < 50, "moved before the first value: " + first);
+  }
+
+  @Test
+  public void testStationaryWithoutMovement() {
+    MovingHotspotGenerator gen = new MovingHotspotGenerator(0, 999,
+        new HotspotIntegerGenerator(0, 999, 0.5, 1.0), 0, 0, 0);
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(gen.nextValue() < 500);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeDrift() {
+    new MovingHotspotGenerator(0, 999, new HotspotIntegerGenerator(0, 999, 0.2, 0.8), -0.1, 0, 0);
+  }
+}
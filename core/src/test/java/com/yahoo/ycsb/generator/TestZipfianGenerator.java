@@ -17,9 +17,17 @@
 
 package com.yahoo.ycsb.generator;
 
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
 
 
 public class TestZipfianGenerator {
@@ -36,4 +44,74 @@ public class TestZipfianGenerator {
         }
 
     }
+
+    @AfterMethod
+    public void resetZetaComputation() {
+        ZipfianGenerator.setZetaComputation(false, null);
+    }
+
+    @Test
+    public void testApproximateZeta() {
+        long n = 10000000;
+        for (double theta : new double[]{0.5, 0.99, 1.0, 1.2}) {
+            double exact = sum(0, n, theta);
+            double approximate = ZipfianGenerator.zetaapproximate(0, n, theta);
+            assertEquals(exact, approximate, exact * 1e-12);
+        }
+    }
+
+    @Test
+    public void testApproximateZetaMatchesPrecomputedZetan() {
+        double approximate = ZipfianGenerator.zetaapproximate(0, ScrambledZipfianGenerator.ITEM_COUNT,
+            ScrambledZipfianGenerator.USED_ZIPFIAN_CONSTANT);
+        assertEquals(ScrambledZipfianGenerator.ZETAN, approximate, ScrambledZipfianGenerator.ZETAN * 1e-9);
+    }
+
+    @Test
+    public void testIncrementalApproximateZeta() {
+        ZipfianGenerator.setZetaComputation(true, null);
+        double zeta = ZipfianGenerator.zetastatic(1000000, 0.99);
+        double incremental = ZipfianGenerator.zetastatic(1000000, 3000000, 0.99, zeta);
+        double exact = sum(0, 3000000, 0.99);
+        assertEquals(exact, incremental, exact * 1e-12);
+    }
+
+    @Test
+    public void testParallelZeta() {
+        long n = ZipfianGenerator.ZETA_PARALLEL_THRESHOLD * 2 + 17;
+        double exact = sum(0, n, 0.99);
+        assertEquals(exact, ZipfianGenerator.zetastatic(0, n, 0.99, 0), exact * 1e-12);
+    }
+
+    @Test
+    public void testZetaCache() throws IOException {
+        File cachedir = Files.createTempDirectory("zeta").toFile();
+        try {
+            ZipfianGenerator.setZetaComputation(false, cachedir);
+            long n = ZipfianGenerator.ZETA_PARALLEL_THRESHOLD + 1;
+            double zeta = ZipfianGenerator.zetastatic(n, 0.99);
+
+            File cachefile = new File(cachedir, "zeta-" + n + "-0.99");
+            assertTrue(cachefile.exists());
+            assertEquals(zeta, Double.parseDouble(new String(Files.readAllBytes(cachefile.toPath()),
+                StandardCharsets.UTF_8)), 0);
+
+            // the cached value is used instead of computing zeta again
+            Files.write(cachefile.toPath(), "42.0".getBytes(StandardCharsets.UTF_8));
+            assertEquals(42.0, ZipfianGenerator.zetastatic(n, 0.99), 0);
+        } finally {
+            for (File file : cachedir.listFiles()) {
+                file.delete();
+            }
+            cachedir.delete();
+        }
+    }
+
+    private static double sum(long st, long n, double theta) {
+        double sum = 0;
+        for (long i = st; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, theta);
+        }
+        return sum;
+    }
 }
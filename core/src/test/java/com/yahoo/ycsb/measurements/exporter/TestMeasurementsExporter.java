@@ -58,4 +58,27 @@ public class TestMeasurementsExporter {
         assertEquals(json.get(4).get("measurement").asText(), "MaxLatency(us)");
         assertEquals(json.get(11).get("measurement").asText(), "4");
     }
+
+    @Test
+    public void testCounters() throws IOException {
+        Properties props = new Properties();
+        Measurements mm = new Measurements(props);
+        mm.count("RETRIES", 2);
+        mm.count("RETRIES", 3);
+        mm.count("CONFLICTS", 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TextMeasurementsExporter export = new TextMeasurementsExporter(out);
+        mm.exportMeasurements(export);
+        export.close();
+        assertEquals("[CONFLICTS], Total, 1\n[RETRIES], Total, 5\n",
+            out.toString("UTF-8").replace(System.lineSeparator(), "\n"));
+
+        mm.reset();
+        out = new ByteArrayOutputStream();
+        export = new TextMeasurementsExporter(out);
+        mm.exportMeasurements(export);
+        export.close();
+        assertEquals("", out.toString("UTF-8"));
+    }
 }
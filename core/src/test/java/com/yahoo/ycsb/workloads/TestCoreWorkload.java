@@ -16,12 +16,25 @@
  */
 package com.yahoo.ycsb.workloads;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
 
 import org.testng.annotations.Test;
 
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.WorkloadException;
 import com.yahoo.ycsb.generator.DiscreteGenerator;
 
 public class TestCoreWorkload {
@@ -67,4 +80,120 @@ public class TestCoreWorkload {
   public void createOperationChooserNullProperties() {
     CoreWorkload.createOperationGenerator(null);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void multiRead() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.MULTIREAD_PROPORTION_PROPERTY, "1");
+    p.setProperty(CoreWorkload.MULTIREAD_BATCH_SIZE_PROPERTY, "5");
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+
+    final List<Collection<String>> batches = new ArrayList<>();
+    final DB db = new DB() {
+      @Override
+      public Status multiRead(String table, Collection<String> keys, Set<String> fields,
+                              Map<String, Map<String, ByteIterator>> result) {
+        batches.add(new ArrayList<>(keys));
+        return Status.OK;
+      }
+
+      @Override
+      public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+        throw new AssertionError("single read in a multi-read workload");
+      }
+
+      @Override
+      public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                         Vector<HashMap<String, ByteIterator>> result) {
+        throw new AssertionError();
+      }
+
+      @Override
+      public Status update(String table, String key, Map<String, ByteIterator> values) {
+        throw new AssertionError();
+      }
+
+      @Override
+      public Status insert(String table, String key, Map<String, ByteIterator> values) {
+        throw new AssertionError();
+      }
+
+      @Override
+      public Status delete(String table, String key) {
+        throw new AssertionError();
+      }
+    };
+
+    for (int i = 0; i < 10; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+    assertEquals(batches.size(), 10);
+    for (Collection<String> keys : batches) {
+      // keys chosen twice are only read once
+      assertTrue(keys.size() > 1 && keys.size() <= 5, "unexpected batch " + keys);
+    }
+  }
+
+  @Test
+  public void readRange() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.READRANGE_PROPORTION_PROPERTY, "1");
+    p.setProperty(CoreWorkload.READRANGE_LENGTH_PROPERTY, "300");
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "10");
+    p.setProperty(CoreWorkload.FIELD_LENGTH_PROPERTY, "100");
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+
+    final List<Long> offsets = new ArrayList<>();
+    final DB db = new DB() {
+      @Override
+      public Status readRange(String table, String key, long offset, int length, Map<String, ByteIterator> result) {
+        assertEquals(length, 300);
+        offsets.add(offset);
+        return Status.OK;
+      }
+
+      @Override
+      public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+        throw new AssertionError("single read in a range read workload");
+      }
+
+      @Override
+      public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                         Vector<HashMap<String, ByteIterator>> result) {
+        throw new AssertionError();
+      }
+
+      @Override
+      public Status update(String table, String key, Map<String, ByteIterator> values) {
+        throw new AssertionError();
+      }
+
+      @Override
+      public Status insert(String table, String key, Map<String, ByteIterator> values) {
+        throw new AssertionError();
+      }
+
+      @Override
+      public Status delete(String table, String key) {
+        throw new AssertionError();
+      }
+    };
+
+    for (int i = 0; i < 10; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+    assertEquals(offsets.size(), 10);
+    for (long offset : offsets) {
+      // the ranges end within the 1000 bytes of a record
+      assertTrue(offset >= 0 && offset <= 700, "unexpected offset " + offset);
+    }
+  }
+}
@@ -22,14 +22,26 @@ import com.apple.foundationdb.async.AsyncIterable;
 import com.apple.foundationdb.tuple.Tuple;
 
 import com.yahoo.ycsb.*;
+import com.yahoo.ycsb.measurements.Measurements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.helpers.MessageFormatter;
 
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * FoundationDB client for YCSB framework.
+ *
+ * <br>
+ * The retries of all transactions and the conflicts among them are counted in {@code FDB_RETRIES} and
+ * {@code FDB_CONFLICTS}, and the latency of committing a batch is recorded as {@code FDB_BATCH}. A batched
+ * update whose row or field turns out to be missing when the batch is committed is dropped, and reported once
+ * more as an UPDATE that returned NOT_FOUND.
  */
 
 public class FoundationDBClient extends DB {
@@ -46,9 +58,24 @@ public class FoundationDBClient extends DB {
   private static final String DB_NAME_DEFAULT      = "DB";
   private static final String DB_BATCH_SIZE_DEFAULT = "0";
   private static final String DB_BATCH_SIZE         = "foundationdb.batchsize";
+  private static final String ENCODING              = "foundationdb.encoding";
+  private static final String ENCODING_DEFAULT      = "tuple";
+
+  private static final String RETRIES_COUNTER       = "FDB_RETRIES";
+  private static final String CONFLICTS_COUNTER     = "FDB_CONFLICTS";
+  private static final String BATCH_MEASUREMENT     = "FDB_BATCH";
+
+  /**
+   * The error of a commit that conflicted with another transaction.
+   */
+  private static final int NOT_COMMITTED = 1020;
+
+  private boolean binaryEncoding;
+  private Measurements measurements;
 
   private Vector<String> batchKeys;
-  private Vector<Map<String, ByteIterator>> batchValues;
+  private Vector<byte[]> batchValues;
+  private Vector<Boolean> batchUpdates;
 
   private static Logger logger = LoggerFactory.getLogger(FoundationDBClient.class);
 
@@ -63,6 +90,12 @@ public class FoundationDBClient extends DB {
     String clusterFile = props.getProperty(CLUSTER_FILE, CLUSTER_FILE_DEFAULT);
     String dbBatchSize = props.getProperty(DB_BATCH_SIZE, DB_BATCH_SIZE_DEFAULT);
     dbName = props.getProperty(DB_NAME, DB_NAME_DEFAULT);
+    String encoding = props.getProperty(ENCODING, ENCODING_DEFAULT);
+    if (!"tuple".equals(encoding) && !"binary".equals(encoding)) {
+      throw new DBException("Invalid value for encoding property: " + encoding);
+    }
+    binaryEncoding = "binary".equals(encoding);
+    measurements = Measurements.getMeasurements();
 
     logger.info("API Version: {}", apiVersion);
     logger.info("Cluster File: {}\n", clusterFile);
@@ -73,7 +106,8 @@ public class FoundationDBClient extends DB {
       batchSize = Integer.parseInt(dbBatchSize);
       batchCount = 0;
       batchKeys = new Vector<String>(batchSize+1);
-      batchValues = new Vector<Map<String, ByteIterator>>(batchSize+1);
+      batchValues = new Vector<byte[]>(batchSize+1);
+      batchUpdates = new Vector<Boolean>(batchSize+1);
     } catch (FDBException e) {
       logger.error(MessageFormatter.format("Error in database operation: {}", "init").getMessage(), e);
       throw new DBException(e);
@@ -86,8 +120,7 @@ public class FoundationDBClient extends DB {
   @Override
   public void cleanup() throws DBException {
     if (batchCount > 0) {
-      batchInsert();
-      batchCount = 0;
+      commitBatch();
     }
     try {
       db.close();
@@ -106,6 +139,129 @@ public class FoundationDBClient extends DB {
     return table + ";";
   }
 
+  /**
+   * Runs the function in a transaction and commits it like {@link Database#run(Function)}, retrying it on
+   * retryable errors. The retries and the conflicts among them are counted for the measurements.
+   */
+  private <T> T run(Function<? super Transaction, T> retryable) {
+    Transaction tr = db.createTransaction();
+    int retries = 0;
+    int conflicts = 0;
+    try {
+      while (true) {
+        try {
+          T result = retryable.apply(tr);
+          tr.commit().join();
+          return result;
+        } catch (RuntimeException e) {
+          FDBException error = getFDBException(e);
+          if (error == null) {
+            throw e;
+          }
+          // waits for the backoff and resets the transaction, or fails if the error is not retryable
+          tr = tr.onError(error).join();
+          retries++;
+          if (error.getCode() == NOT_COMMITTED) {
+            conflicts++;
+          }
+        }
+      }
+    } finally {
+      tr.close();
+      measurements.count(RETRIES_COUNTER, retries);
+      measurements.count(CONFLICTS_COUNTER, conflicts);
+    }
+  }
+
+  private static FDBException getFDBException(Throwable e) {
+    // the errors of futures are wrapped in a CompletionException
+    while (e != null && !(e instanceof FDBException)) {
+      e = e.getCause();
+    }
+    return (FDBException) e;
+  }
+
+  /**
+   * Encodes the fields of a row, as a tuple of (field, value) tuples of strings or, with the binary encoding, as
+   * the length-prefixed name and bytes of each field.
+   */
+  private byte[] encode(Map<String, ByteIterator> values) {
+    if (!binaryEncoding) {
+      Tuple t = new Tuple();
+      for (Map.Entry<String, String> entry : StringByteIterator.getStringMap(values).entrySet()) {
+        Tuple v = new Tuple();
+        v = v.add(entry.getKey());
+        v = v.add(entry.getValue());
+        t = t.add(v);
+      }
+      return t.pack();
+    }
+
+    List<byte[]> names = new ArrayList<>(values.size());
+    List<byte[]> contents = new ArrayList<>(values.size());
+    int size = 0;
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      byte[] name = entry.getKey().getBytes(UTF_8);
+      byte[] content = entry.getValue().toArray();
+      names.add(name);
+      contents.add(content);
+      size += Short.BYTES + name.length + Integer.BYTES + content.length;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    for (int i = 0; i < names.size(); i++) {
+      buffer.putShort((short) names.get(i).length).put(names.get(i));
+      buffer.putInt(contents.get(i).length).put(contents.get(i));
+    }
+    return buffer.array();
+  }
+
+  private Status decode(byte[] row, Set<String> fields, Map<String, ByteIterator> result) {
+    if (!binaryEncoding) {
+      return convTupleToMap(Tuple.fromBytes(row), fields, result);
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(row);
+    while (buffer.hasRemaining()) {
+      int nameLength = buffer.getShort() & 0xffff;
+      String field = new String(row, buffer.position(), nameLength, UTF_8);
+      buffer.position(buffer.position() + nameLength);
+      int length = buffer.getInt();
+      if (fields == null || fields.contains(field)) {
+        result.put(field, new ByteArrayByteIterator(row, buffer.position(), length));
+      }
+      buffer.position(buffer.position() + length);
+    }
+    if (fields != null && result.size() < fields.size()) {
+      logger.debug("fields not fount: {}", fields);
+      return Status.NOT_FOUND;
+    }
+    return Status.OK;
+  }
+
+  /**
+   * @return The row with the updated fields, or null if the row or one of the fields does not exist.
+   */
+  private byte[] merge(String rowKey, byte[] row, byte[] update) {
+    if (row == null) {
+      logger.debug("key not fount: {}", rowKey);
+      return null;
+    }
+    // decoded for each attempt, the iterators can only be read once
+    HashMap<String, ByteIterator> result = new HashMap<>();
+    HashMap<String, ByteIterator> values = new HashMap<>();
+    if (decode(row, null, result) != Status.OK || decode(update, null, values) != Status.OK) {
+      return null;
+    }
+    for (String k : values.keySet()) {
+      if (!result.containsKey(k)) {
+        logger.debug("field not fount: {}", k);
+        return null;
+      }
+    }
+    result.putAll(values);
+    return encode(result);
+  }
+
   private Status convTupleToMap(Tuple tuple, Set<String> fields, Map<String, ByteIterator> result) {
     for (int i = 0; i < tuple.size(); i++) {
       Tuple v = tuple.getNestedTuple(i);
@@ -125,35 +281,71 @@ public class FoundationDBClient extends DB {
     return Status.OK;
   }
 
-  private void batchInsert() {
+  /**
+   * Writes the batched inserts and updates in one transaction. The rows to update are all requested before the
+   * first one is needed.
+   */
+  private Status commitBatch() {
+    long startTimeNanos = System.nanoTime();
     try {
-      db.run(tr -> {
+      List<String> dropped = run(tr -> {
+          List<String> missing = new ArrayList<>();
+          Map<String, CompletableFuture<byte[]>> reads = new HashMap<>();
           for (int i = 0; i < batchCount; ++i) {
-            Tuple t = new Tuple();
-            for (Map.Entry<String, String> entry : StringByteIterator.getStringMap(batchValues.get(i)).entrySet()) {
-              Tuple v = new Tuple();
-              v = v.add(entry.getKey());
-              v = v.add(entry.getValue());
-              t = t.add(v);
+            if (batchUpdates.get(i) && !reads.containsKey(batchKeys.get(i))) {
+              reads.put(batchKeys.get(i), tr.get(Tuple.from(batchKeys.get(i)).pack()));
             }
-            tr.set(Tuple.from(batchKeys.get(i)).pack(), t.pack());
           }
-          return null;
+          // the reads do not see the rows written after they were requested
+          Map<String, byte[]> written = new HashMap<>();
+          for (int i = 0; i < batchCount; ++i) {
+            String rowKey = batchKeys.get(i);
+            byte[] row = batchValues.get(i);
+            if (batchUpdates.get(i)) {
+              row = merge(rowKey, written.containsKey(rowKey) ? written.get(rowKey) : reads.get(rowKey).join(), row);
+              if (row == null) {
+                missing.add(rowKey);
+                continue;
+              }
+            }
+            tr.set(Tuple.from(rowKey).pack(), row);
+            written.put(rowKey, row);
+          }
+          return missing;
         });
-    } catch (FDBException e) {
-      for (int i = 0; i < batchCount; ++i) {
-        logger.error(MessageFormatter.format("Error batch inserting key {}", batchKeys.get(i)).getMessage(), e);
+      measurements.measure(BATCH_MEASUREMENT, (int) ((System.nanoTime() - startTimeNanos) / 1000));
+      for (String rowKey : dropped) {
+        // the update already returned BATCHED_OK
+        logger.warn("Dropped the batched update of key {}, the row or a field does not exist", rowKey);
+        measurements.reportStatus("UPDATE", Status.NOT_FOUND);
       }
-      e.printStackTrace();
+      return Status.OK;
     } catch (Throwable e) {
       for (int i = 0; i < batchCount; ++i) {
-        logger.error(MessageFormatter.format("Error batch inserting key {}", batchKeys.get(i)).getMessage(), e);
+        logger.error(MessageFormatter.format("Error batch writing key {}", batchKeys.get(i)).getMessage(), e);
       }
       e.printStackTrace();
     } finally {
       batchKeys.clear();
       batchValues.clear();
+      batchUpdates.clear();
+      batchCount = 0;
     }
+    return Status.ERROR;
+  }
+
+  /**
+   * Adds an insert or update to the batch, and commits the batch once it is full.
+   */
+  private Status addToBatch(String rowKey, byte[] row, boolean update) {
+    batchKeys.addElement(rowKey);
+    batchValues.addElement(row);
+    batchUpdates.addElement(update);
+    batchCount++;
+    if (batchSize == 0 || batchSize == batchCount) {
+      return commitBatch();
+    }
+    return Status.BATCHED_OK;
   }
 
   @Override
@@ -161,14 +353,7 @@ public class FoundationDBClient extends DB {
     String rowKey = getRowKey(dbName, table, key);
     logger.debug("insert key = {}", rowKey);
     try {
-      batchKeys.addElement(rowKey);
-      batchValues.addElement(new HashMap<String, ByteIterator>(values));
-      batchCount++;
-      if (batchSize == 0 || batchSize == batchCount) {
-        batchInsert();
-        batchCount = 0;
-      }
-      return Status.OK;
+      return addToBatch(rowKey, encode(values), false);
     } catch (Throwable e) {
       logger.error(MessageFormatter.format("Error inserting key: {}", rowKey).getMessage(), e);
       e.printStackTrace();
@@ -181,7 +366,7 @@ public class FoundationDBClient extends DB {
     String rowKey = getRowKey(dbName, table, key);
     logger.debug("delete key = {}", rowKey);
     try {
-      db.run(tr -> {
+      run(tr -> {
           tr.clear(Tuple.from(rowKey).pack());
           return null;
         });
@@ -201,16 +386,15 @@ public class FoundationDBClient extends DB {
     String rowKey = getRowKey(dbName, table, key);
     logger.debug("read key = {}", rowKey);
     try {
-      byte[] row = db.run(tr -> {
+      byte[] row = run(tr -> {
           byte[] r = tr.get(Tuple.from(rowKey).pack()).join();
           return r;
         });
-      Tuple t = Tuple.fromBytes(row);
-      if (t.size() == 0) {
+      if (row == null || row.length == 0) {
         logger.debug("key not fount: {}", rowKey);
         return Status.NOT_FOUND;
       }
-      return convTupleToMap(t, fields, result);
+      return decode(row, fields, result);
     } catch (FDBException e) {
       logger.error(MessageFormatter.format("Error reading key: {}", rowKey).getMessage(), e);
       e.printStackTrace();
@@ -226,33 +410,16 @@ public class FoundationDBClient extends DB {
     String rowKey = getRowKey(dbName, table, key);
     logger.debug("update key = {}", rowKey);
     try {
-      Status s = db.run(tr -> {
-          byte[] row = tr.get(Tuple.from(rowKey).pack()).join();
-          Tuple o = Tuple.fromBytes(row);
-          if (o.size() == 0) {
-            logger.debug("key not fount: {}", rowKey);
+      byte[] update = encode(values);
+      if (batchSize > 0) {
+        return addToBatch(rowKey, update, true);
+      }
+      Status s = run(tr -> {
+          byte[] row = merge(rowKey, tr.get(Tuple.from(rowKey).pack()).join(), update);
+          if (row == null) {
             return Status.NOT_FOUND;
           }
-          HashMap<String, ByteIterator> result = new HashMap<>();
-          if (convTupleToMap(o, null, result) != Status.OK) {
-            return Status.ERROR;
-          }
-          for (String k : values.keySet()) {
-            if (result.containsKey(k)) {
-              result.put(k, values.get(k));
-            } else {
-              logger.debug("field not fount: {}", k);
-              return Status.NOT_FOUND;
-            }
-          }
-          Tuple t = new Tuple();
-          for (Map.Entry<String, String> entry : StringByteIterator.getStringMap(result).entrySet()) {
-            Tuple v = new Tuple();
-            v = v.add(entry.getKey());
-            v = v.add(entry.getValue());
-            t = t.add(v);
-          }
-          tr.set(Tuple.from(rowKey).pack(), t.pack());
+          tr.set(Tuple.from(rowKey).pack(), row);
           return Status.OK;
         });
       return s;
@@ -266,6 +433,51 @@ public class FoundationDBClient extends DB {
     return Status.ERROR;
   }
 
+  /**
+   * Reads several rows in one transaction, with all reads sent before the first result is waited for.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to read
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A map from the key of each record found to its field/value pairs
+   * @return OK if all records were found, NOT_FOUND if some were not
+   */
+  @Override
+  public Status multiRead(String table, Collection<String> keys, Set<String> fields,
+      Map<String, Map<String, ByteIterator>> result) {
+    logger.debug("multi-read {} keys", keys.size());
+    try {
+      Map<String, byte[]> rows = run(tr -> {
+          Map<String, CompletableFuture<byte[]>> reads = new HashMap<>();
+          for (String key : keys) {
+            reads.put(key, tr.get(Tuple.from(getRowKey(dbName, table, key)).pack()));
+          }
+          Map<String, byte[]> found = new HashMap<>();
+          for (Map.Entry<String, CompletableFuture<byte[]>> read : reads.entrySet()) {
+            byte[] row = read.getValue().join();
+            if (row != null && row.length > 0) {
+              found.put(read.getKey(), row);
+            }
+          }
+          return found;
+        });
+      Status status = rows.size() == keys.size() ? Status.OK : Status.NOT_FOUND;
+      for (Map.Entry<String, byte[]> row : rows.entrySet()) {
+        HashMap<String, ByteIterator> values = new HashMap<>();
+        if (decode(row.getValue(), fields, values) == Status.OK) {
+          result.put(row.getKey(), values);
+        } else {
+          status = Status.NOT_FOUND;
+        }
+      }
+      return status;
+    } catch (Exception e) {
+      logger.error(MessageFormatter.format("Error reading keys: {}", keys).getMessage(), e);
+      e.printStackTrace();
+    }
+    return Status.ERROR;
+  }
+
   @Override
   public Status scan(String table, String startkey, int recordcount, Set<String> fields,
       Vector<HashMap<String, ByteIterator>> result) {
@@ -279,8 +491,7 @@ public class FoundationDBClient extends DB {
       List<KeyValue> entries = entryList.asList().join();
       for (int i = 0; i < entries.size(); ++i) {
         final HashMap<String, ByteIterator> map = new HashMap<>();
-        Tuple value = Tuple.fromBytes(entries.get(i).getValue());
-        if (convTupleToMap(value, fields, map) == Status.OK) {
+        if (decode(entries.get(i).getValue(), fields, map) == Status.OK) {
           result.add(map);
         } else {
           logger.error("Error scanning keys: from {} to {} limit {} ", startRowKey, endRowKey, recordcount);
@@ -19,6 +19,8 @@ import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
 import com.yahoo.ycsb.measurements.Measurements;
 
 import org.apache.hadoop.security.UserGroupInformation;
@@ -26,6 +28,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.BufferedMutator;
@@ -35,18 +38,26 @@ import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
 import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.ColumnRangeFilter;
 import org.apache.hadoop.hbase.filter.PageFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -105,6 +116,37 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
   private boolean clientSideBuffering = false;
   private long writeBufferSize = 1024 * 1024 * 12;
 
+  /** The maximum number of gets sent together by {@link #multiRead}. */
+  private int multiGetBatchSize = 100;
+
+  /**
+   * The number of rows a scanner fetches per RPC, or 0 to fetch the rows of a
+   * whole scan with one RPC.
+   */
+  private int scanCaching = 0;
+
+  /** The maximum size of the rows a scanner fetches per RPC, or -1 for no limit. */
+  private long scanMaxResultSize = -1;
+
+  /**
+   * Whether the blocks read by gets and scans are put into the block cache.
+   * Scans over more data than the cache holds just evict the blocks reads are
+   * served from.
+   */
+  private boolean readBlockCache = true;
+  private boolean scanBlockCache = true;
+
+  /**
+   * If true, the outgoing edges of the graph workload are also stored in the
+   * row of their start node, one qualifier per edge in the edge column family.
+   */
+  private boolean graph = false;
+  private byte[] edgeFamilyBytes;
+
+  // The table of the nodes, which the adjacency of the edges is written to.
+  private Table nodeTable = null;
+  private BufferedMutator nodeMutator = null;
+
   /**
    * Initialize any state for this DB. Called once per DB instance; there is one
    * DB instance per client thread.
@@ -174,12 +216,47 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
       usePageFilter = false;
     }
 
+    multiGetBatchSize = Integer.parseInt(
+        getProperties().getProperty("hbase.multiget.batchsize", "100"));
+    scanCaching = Integer.parseInt(
+        getProperties().getProperty("hbase.scan.caching", "0"));
+    scanMaxResultSize = Long.parseLong(
+        getProperties().getProperty("hbase.scan.maxresultsize", "-1"));
+    readBlockCache = Boolean.parseBoolean(
+        getProperties().getProperty("hbase.read.blockcache", "true"));
+    scanBlockCache = Boolean.parseBoolean(
+        getProperties().getProperty("hbase.scan.blockcache", "true"));
+
     columnFamily = getProperties().getProperty("columnfamily");
     if (columnFamily == null) {
       System.err.println("Error, must specify a columnfamily for HBase table");
       throw new DBException("No columnfamily specified");
     }
     columnFamilyBytes = Bytes.toBytes(columnFamily);
+
+    graph = Boolean.parseBoolean(getProperties().getProperty("hbase.graph", "false"));
+    if (graph) {
+      edgeFamilyBytes = Bytes.toBytes(getProperties().getProperty("hbase.graph.edgefamily", "e"));
+      final TableName nodeTableName = TableName.valueOf(Node.NODE_IDENTIFIER);
+      try (Admin admin = connection.getAdmin()) {
+        if (!admin.tableExists(nodeTableName)) {
+          throw new DBException("Table " + nodeTableName + " does not exists");
+        }
+        HTableDescriptor descriptor = admin.getTableDescriptor(nodeTableName);
+        if (!descriptor.hasFamily(edgeFamilyBytes)) {
+          throw new DBException("Table " + nodeTableName + " has no column family "
+              + Bytes.toString(edgeFamilyBytes) + " for the edges");
+        }
+        nodeTable = connection.getTable(nodeTableName);
+        if (clientSideBuffering) {
+          final BufferedMutatorParams p = new BufferedMutatorParams(nodeTableName);
+          p.writeBufferSize(writeBufferSize);
+          nodeMutator = connection.getBufferedMutator(p);
+        }
+      } catch (IOException e) {
+        throw new DBException(e);
+      }
+    }
   }
 
   /**
@@ -200,6 +277,12 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
       if (currentTable != null) {
         currentTable.close();
       }
+      if (nodeMutator != null) {
+        nodeMutator.close();
+      }
+      if (nodeTable != null) {
+        nodeTable.close();
+      }
       long en = System.nanoTime();
       final String type = clientSideBuffering ? "UPDATE" : "CLEANUP";
       measurements.measure(type, (int) ((en - st) / 1000));
@@ -219,6 +302,11 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
   }
 
   public void getHTable(String table) throws IOException {
+    // Flush the writes buffered for the previous table
+    if (bufferedMutator != null) {
+      bufferedMutator.close();
+      bufferedMutator = null;
+    }
     final TableName tName = TableName.valueOf(table);
     this.currentTable = connection.getTable(tName);
     if (clientSideBuffering) {
@@ -263,15 +351,7 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
             .println("Doing read from HBase columnfamily " + columnFamily);
         System.out.println("Doing read for key: " + key);
       }
-      Get g = new Get(Bytes.toBytes(key));
-      if (fields == null) {
-        g.addFamily(columnFamilyBytes);
-      } else {
-        for (String field : fields) {
-          g.addColumn(columnFamilyBytes, Bytes.toBytes(field));
-        }
-      }
-      r = currentTable.get(g);
+      r = currentTable.get(createGet(key, fields));
     } catch (IOException e) {
       if (debug) {
         System.err.println("Error doing get: " + e);
@@ -286,6 +366,89 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
       return Status.NOT_FOUND;
     }
 
+    putCells(r, result);
+    return Status.OK;
+  }
+
+  /**
+   * Read the records of several keys. The gets are sent together with
+   * Table.get(List), up to hbase.multiget.batchsize at a time, so the
+   * region servers are contacted once per batch instead of once per key.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to read
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param result
+   *          A map from the key of each record found to its field/value pairs
+   * @return OK if all records were found, NOT_FOUND if some were not
+   */
+  @Override
+  public Status multiRead(String table, Collection<String> keys,
+      Set<String> fields, Map<String, Map<String, ByteIterator>> result) {
+    // if this is a "new" table, init HTable object. Else, use existing one
+    if (!tableName.equals(table)) {
+      currentTable = null;
+      try {
+        getHTable(table);
+        tableName = table;
+      } catch (IOException e) {
+        System.err.println("Error accessing HBase table: " + e);
+        return Status.ERROR;
+      }
+    }
+
+    boolean allFound = true;
+    Iterator<String> it = keys.iterator();
+    List<Get> gets = new ArrayList<Get>(Math.min(keys.size(), multiGetBatchSize));
+    while (it.hasNext()) {
+      gets.clear();
+      while (it.hasNext() && gets.size() < multiGetBatchSize) {
+        gets.add(createGet(it.next(), fields));
+      }
+      if (debug) {
+        System.out.println("Doing multi-get of " + gets.size() + " keys");
+      }
+
+      Result[] rs;
+      try {
+        rs = currentTable.get(gets);
+      } catch (IOException e) {
+        if (debug) {
+          System.err.println("Error doing multi-get: " + e);
+        }
+        return Status.ERROR;
+      }
+
+      for (Result r : rs) {
+        if (r.isEmpty()) {
+          allFound = false;
+          continue;
+        }
+        Map<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+        putCells(r, values);
+        result.put(Bytes.toString(r.getRow()), values);
+      }
+    }
+    return allFound ? Status.OK : Status.NOT_FOUND;
+  }
+
+  private Get createGet(String key, Set<String> fields) {
+    Get g = new Get(Bytes.toBytes(key));
+    if (fields == null) {
+      g.addFamily(columnFamilyBytes);
+    } else {
+      for (String field : fields) {
+        g.addColumn(columnFamilyBytes, Bytes.toBytes(field));
+      }
+    }
+    g.setCacheBlocks(readBlockCache);
+    return g;
+  }
+
+  private void putCells(Result r, Map<String, ByteIterator> result) {
     while (r.advance()) {
       final Cell c = r.current();
       result.put(Bytes.toString(CellUtil.cloneQualifier(c)),
@@ -296,7 +459,6 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
                 + " is: " + Bytes.toString(CellUtil.cloneValue(c)));
       }
     }
-    return Status.OK;
   }
 
   /**
@@ -331,11 +493,22 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
       }
     }
 
+    if (graph && Node.NODE_IDENTIFIER.equals(table)) {
+      return scanSubtree(startkey, recordcount, fields, result);
+    }
+    if (graph && Edge.EDGE_IDENTIFIER.equals(table)) {
+      return scanAdjacency(startkey, recordcount, fields, result);
+    }
+
     Scan s = new Scan(Bytes.toBytes(startkey));
-    // HBase has no record limit. Here, assume recordcount is small enough to
-    // bring back in one call.
+    // HBase has no record limit. Unless the caching is configured, assume
+    // recordcount is small enough to bring back in one call.
     // We get back recordcount records
-    s.setCaching(recordcount);
+    s.setCaching(scanCaching > 0 ? Math.min(scanCaching, recordcount) : recordcount);
+    if (scanMaxResultSize > 0) {
+      s.setMaxResultSize(scanMaxResultSize);
+    }
+    s.setCacheBlocks(scanBlockCache);
     if (this.usePageFilter) {
       s.setFilter(new PageFilter(recordcount));
     }
@@ -424,6 +597,13 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
       }
     }
 
+    if (graph && Edge.EDGE_IDENTIFIER.equals(table)) {
+      return writeEdge(key, values, true);
+    }
+    return put(key, values);
+  }
+
+  private Status put(String key, Map<String, ByteIterator> values) {
     if (debug) {
       System.out.println("Setting up put for key: " + key);
     }
@@ -474,6 +654,20 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
   @Override
   public Status insert(String table, String key,
                        Map<String, ByteIterator> values) {
+    if (graph && Edge.EDGE_IDENTIFIER.equals(table)) {
+      // if this is a "new" table, init HTable object. Else, use existing one
+      if (!tableName.equals(table)) {
+        currentTable = null;
+        try {
+          getHTable(table);
+          tableName = table;
+        } catch (IOException e) {
+          System.err.println("Error accessing HBase table: " + e);
+          return Status.ERROR;
+        }
+      }
+      return writeEdge(key, values, false);
+    }
     return update(table, key, values);
   }
 
@@ -504,8 +698,16 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
       System.out.println("Doing delete for key: " + key);
     }
 
+    if (graph && Edge.EDGE_IDENTIFIER.equals(table)) {
+      return deleteEdge(key);
+    }
+
     final Delete d = new Delete(Bytes.toBytes(key));
     d.setDurability(durability);
+    if (graph && Node.NODE_IDENTIFIER.equals(table)) {
+      // the outgoing edges of the node stay, they are deleted with the edges
+      d.addFamily(columnFamilyBytes);
+    }
     try {
       if (clientSideBuffering) {
         // removed Preconditions.checkNotNull, which throws NPE, in favor of NPE on next line
@@ -523,6 +725,220 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
     return Status.OK;
   }
 
+  /**
+   * Write an edge to the current table, the "Edge" table, and its adjacency
+   * to the row of its start node. If the edge moves to another start node,
+   * its adjacency is removed from the previous one.
+   */
+  private Status writeEdge(String key, Map<String, ByteIterator> values,
+      boolean update) {
+    final Map<String, String> edge = new HashMap<String, String>();
+    try {
+      if (update) {
+        Result r = currentTable.get(new Get(Bytes.toBytes(key)).addFamily(columnFamilyBytes));
+        if (r.isEmpty()) {
+          return Status.NOT_FOUND;
+        }
+        for (Map.Entry<byte[], byte[]> cell : r.getFamilyMap(columnFamilyBytes).entrySet()) {
+          edge.put(Bytes.toString(cell.getKey()), Bytes.toString(cell.getValue()));
+        }
+      }
+      final String previousStart = edge.get(Edge.START_IDENTIFIER);
+      for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+        edge.put(entry.getKey(), entry.getValue().toString());
+      }
+      final String start = edge.get(Edge.START_IDENTIFIER);
+      final byte[] qualifier = Bytes.toBytes(Long.parseLong(key));
+
+      Put p = new Put(Bytes.toBytes(key));
+      p.setDurability(durability);
+      for (Map.Entry<String, String> entry : edge.entrySet()) {
+        p.addColumn(columnFamilyBytes, Bytes.toBytes(entry.getKey()), Bytes.toBytes(entry.getValue()));
+      }
+      mutate(currentTable, bufferedMutator, p);
+
+      if (previousStart != null && !previousStart.equals(start)) {
+        Delete d = new Delete(Bytes.toBytes(previousStart));
+        d.setDurability(durability);
+        d.addColumns(edgeFamilyBytes, qualifier);
+        mutate(nodeTable, nodeMutator, d);
+      }
+      if (start != null) {
+        Put adjacency = new Put(Bytes.toBytes(start));
+        adjacency.setDurability(durability);
+        adjacency.addColumn(edgeFamilyBytes, qualifier, adjacencyValue(edge));
+        mutate(nodeTable, nodeMutator, adjacency);
+      }
+    } catch (NumberFormatException e) {
+      return Status.BAD_REQUEST;
+    } catch (IOException e) {
+      if (debug) {
+        System.err.println("Error writing edge: " + e);
+      }
+      return Status.ERROR;
+    }
+    return Status.OK;
+  }
+
+  private Status deleteEdge(String key) {
+    try {
+      Result r = currentTable.get(new Get(Bytes.toBytes(key)).addFamily(columnFamilyBytes));
+      if (r.isEmpty()) {
+        return Status.NOT_FOUND;
+      }
+      byte[] start = r.getValue(columnFamilyBytes, Bytes.toBytes(Edge.START_IDENTIFIER));
+      if (start != null) {
+        Delete adjacency = new Delete(start);
+        adjacency.setDurability(durability);
+        adjacency.addColumns(edgeFamilyBytes, Bytes.toBytes(Long.parseLong(key)));
+        mutate(nodeTable, nodeMutator, adjacency);
+      }
+      Delete d = new Delete(Bytes.toBytes(key));
+      d.setDurability(durability);
+      mutate(currentTable, bufferedMutator, d);
+    } catch (NumberFormatException e) {
+      return Status.BAD_REQUEST;
+    } catch (IOException e) {
+      if (debug) {
+        System.err.println("Error deleting edge: " + e);
+      }
+      return Status.ERROR;
+    }
+    return Status.OK;
+  }
+
+  private void mutate(Table t, BufferedMutator mutator, Mutation m) throws IOException {
+    if (clientSideBuffering) {
+      mutator.mutate(m);
+    } else if (m instanceof Put) {
+      t.put((Put) m);
+    } else {
+      t.delete((Delete) m);
+    }
+  }
+
+  /**
+   * @return The value of the adjacency of an edge: the id of its end node
+   * followed by its label.
+   */
+  private static byte[] adjacencyValue(Map<String, String> edge) {
+    final String end = edge.get(Edge.END_IDENTIFIER);
+    final String label = edge.get(Edge.LABEL_IDENTIFIER);
+    return Bytes.add(Bytes.toBytes(end == null ? -1L : Long.parseLong(end)),
+        Bytes.toBytes(label == null ? "" : label));
+  }
+
+  /**
+   * Traverse the graph breadth first from the start node along the outgoing
+   * edges. The nodes of each level are read with one multi-get, each of them
+   * together with its edges from its row.
+   */
+  private Status scanSubtree(String startkey, int recordcount,
+      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    final long startId;
+    try {
+      startId = Long.parseLong(startkey);
+    } catch (NumberFormatException e) {
+      return Status.BAD_REQUEST;
+    }
+
+    List<Long> level = new ArrayList<Long>();
+    final Set<Long> visited = new HashSet<Long>();
+    level.add(startId);
+    visited.add(startId);
+    try {
+      while (!level.isEmpty() && result.size() < recordcount) {
+        final List<Get> gets = new ArrayList<Get>(level.size());
+        for (long id : level) {
+          gets.add(createGet(String.valueOf(id), fields).addFamily(edgeFamilyBytes));
+        }
+
+        final List<Long> next = new ArrayList<Long>();
+        for (Result r : nodeTable.get(gets)) {
+          final NavigableMap<byte[], byte[]> node = r.getFamilyMap(columnFamilyBytes);
+          // a row holding only outgoing edges is no node
+          if (node == null || node.isEmpty() || result.size() >= recordcount) {
+            continue;
+          }
+          final HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+          for (Map.Entry<byte[], byte[]> cell : node.entrySet()) {
+            values.put(Bytes.toString(cell.getKey()), new ByteArrayByteIterator(cell.getValue()));
+          }
+          result.add(values);
+
+          final NavigableMap<byte[], byte[]> edges = r.getFamilyMap(edgeFamilyBytes);
+          if (edges != null) {
+            for (byte[] adjacency : edges.values()) {
+              final long end = Bytes.toLong(adjacency, 0);
+              if (visited.add(end)) {
+                next.add(end);
+              }
+            }
+          }
+        }
+        level = next;
+      }
+    } catch (IOException e) {
+      if (debug) {
+        System.err.println("Error traversing from node " + startkey + ": " + e);
+      }
+      return Status.ERROR;
+    }
+    return Status.OK;
+  }
+
+  /**
+   * Return the outgoing edges of the start node of an edge, beginning with
+   * that edge, read from the row of the start node.
+   */
+  private Status scanAdjacency(String startkey, int recordcount,
+      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    try {
+      final byte[] startEdge = Bytes.toBytes(Long.parseLong(startkey));
+      Result edge = currentTable.get(new Get(Bytes.toBytes(startkey))
+          .addColumn(columnFamilyBytes, Bytes.toBytes(Edge.START_IDENTIFIER)));
+      final byte[] start = edge.getValue(columnFamilyBytes, Bytes.toBytes(Edge.START_IDENTIFIER));
+      if (start == null) {
+        return Status.NOT_FOUND;
+      }
+
+      final Get g = new Get(start);
+      g.addFamily(edgeFamilyBytes);
+      g.setFilter(new ColumnRangeFilter(startEdge, true, null, false));
+      g.setMaxResultsPerColumnFamily(recordcount);
+      g.setCacheBlocks(readBlockCache);
+      final NavigableMap<byte[], byte[]> edges = nodeTable.get(g).getFamilyMap(edgeFamilyBytes);
+      if (edges == null) {
+        return Status.OK;
+      }
+      for (Map.Entry<byte[], byte[]> adjacency : edges.entrySet()) {
+        final byte[] value = adjacency.getValue();
+        final HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+        putField(fields, values, Edge.ID_IDENTIFIER, String.valueOf(Bytes.toLong(adjacency.getKey())));
+        putField(fields, values, Edge.START_IDENTIFIER, Bytes.toString(start));
+        putField(fields, values, Edge.END_IDENTIFIER, String.valueOf(Bytes.toLong(value, 0)));
+        putField(fields, values, Edge.LABEL_IDENTIFIER,
+            Bytes.toString(value, Bytes.SIZEOF_LONG, value.length - Bytes.SIZEOF_LONG));
+        result.add(values);
+      }
+    } catch (NumberFormatException e) {
+      return Status.BAD_REQUEST;
+    } catch (IOException e) {
+      if (debug) {
+        System.err.println("Error scanning edges from " + startkey + ": " + e);
+      }
+      return Status.ERROR;
+    }
+    return Status.OK;
+  }
+
+  private static void putField(Set<String> fields, Map<String, ByteIterator> values,
+      String field, String value) {
+    if (fields == null || fields.contains(field)) {
+      values.put(field, new ByteArrayByteIterator(Bytes.toBytes(value)));
+    }
+  }
+
   // Only non-private for testing.
   void setConfiguration(final Configuration newConfig) {
     this.config = newConfig;
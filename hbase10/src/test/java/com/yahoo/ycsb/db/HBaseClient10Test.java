@@ -26,6 +26,8 @@ import static org.junit.Assume.assumeTrue;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
 import com.yahoo.ycsb.measurements.Measurements;
 import com.yahoo.ycsb.workloads.CoreWorkload;
 
@@ -46,10 +48,13 @@ import org.junit.Test;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 import java.util.Vector;
 
 /**
@@ -100,10 +105,13 @@ public class HBaseClient10Test {
    */
   @Before
   public void setUp() throws Exception {
+    setUp(new Properties());
+  }
+
+  private void setUp(Properties p) throws Exception {
     client = new HBaseClient10();
     client.setConfiguration(new Configuration(testingUtil.getConfiguration()));
 
-    Properties p = new Properties();
     p.setProperty("columnfamily", COLUMN_FAMILY);
 
     Measurements.setProperties(p);
@@ -149,6 +157,49 @@ public class HBaseClient10Test {
     assertEquals(0, result.size());
   }
 
+  @Test
+  public void testMultiRead() throws Exception {
+    // reads in batches of 2 gets
+    tearDown();
+    final Properties properties = new Properties();
+    properties.setProperty("hbase.multiget.batchsize", "2");
+    setUp(properties);
+
+    final List<Put> puts = new ArrayList<Put>();
+    for (int i = 0; i < 5; i++) {
+      final Put p = new Put(Bytes.toBytes("row" + i));
+      p.addColumn(Bytes.toBytes(COLUMN_FAMILY), Bytes.toBytes("column1"), Bytes.toBytes("value" + i));
+      puts.add(p);
+    }
+    table.put(puts);
+
+    final Map<String, Map<String, ByteIterator>> result = new HashMap<String, Map<String, ByteIterator>>();
+    assertEquals(Status.OK, client.multiRead(tableName, Arrays.asList("row0", "row2", "row3", "row4"), null, result));
+    assertEquals(4, result.size());
+    for (final String key : Arrays.asList("row0", "row2", "row3", "row4")) {
+      assertEquals("value" + key.substring(3), result.get(key).get("column1").toString());
+    }
+
+    result.clear();
+    assertEquals(Status.NOT_FOUND,
+        client.multiRead(tableName, Arrays.asList("row1", "missing", "row2"), null, result));
+    assertEquals(2, result.size());
+    assertEquals("value1", result.get("row1").get("column1").toString());
+  }
+
+  @Test
+  public void testScanWithCachingAndMaxResultSize() throws Exception {
+    tearDown();
+    final Properties p = new Properties();
+    p.setProperty("hbase.scan.caching", "2");
+    p.setProperty("hbase.scan.maxresultsize", "64");
+    p.setProperty("hbase.scan.blockcache", "false");
+    p.setProperty("hbase.read.blockcache", "false");
+    setUp(p);
+    testScan();
+    testRead();
+  }
+
   @Test
   public void testScan() throws Exception {
     // Fill with data
@@ -205,6 +256,84 @@ public class HBaseClient10Test {
     }
   }
 
+  private static Map<String, ByteIterator> edge(long id, long start, long end) {
+    final Map<String, String> values = new HashMap<String, String>();
+    values.put(Edge.ID_IDENTIFIER, String.valueOf(id));
+    values.put(Edge.LABEL_IDENTIFIER, "contains");
+    values.put(Edge.START_IDENTIFIER, String.valueOf(start));
+    values.put(Edge.END_IDENTIFIER, String.valueOf(end));
+    return StringByteIterator.getByteIteratorMap(values);
+  }
+
+  private Set<String> scanIds(String graphTable, String startkey, int count) {
+    final Vector<HashMap<String, ByteIterator>> result = new Vector<HashMap<String, ByteIterator>>();
+    assertEquals(Status.OK, client.scan(graphTable, startkey, count, null, result));
+    final Set<String> ids = new HashSet<String>();
+    for (final HashMap<String, ByteIterator> values : result) {
+      ids.add(values.get(Node.ID_IDENTIFIER).toString());
+    }
+    return ids;
+  }
+
+  private static Set<String> ids(String... ids) {
+    return new HashSet<String>(Arrays.asList(ids));
+  }
+
+  @Test
+  public void testGraph() throws Exception {
+    final Table nodes = testingUtil.createTable(TableName.valueOf(Node.NODE_IDENTIFIER),
+        new byte[][] {Bytes.toBytes(COLUMN_FAMILY), Bytes.toBytes("e")});
+    final Table edges = testingUtil.createTable(TableName.valueOf(Edge.EDGE_IDENTIFIER),
+        Bytes.toBytes(COLUMN_FAMILY));
+    try {
+      tearDown();
+      final Properties properties = new Properties();
+      properties.setProperty("hbase.graph", "true");
+      setUp(properties);
+
+      // the tree 0 -> (1 -> (3, 4), 2 -> 5) and the single node 6
+      for (long i = 0; i <= 6; i++) {
+        final Map<String, String> node = new HashMap<String, String>();
+        node.put(Node.ID_IDENTIFIER, String.valueOf(i));
+        node.put(Node.LABEL_IDENTIFIER, "Product");
+        node.put(Node.VALUE_IDENTIFIER, "value" + i);
+        assertEquals(Status.OK,
+            client.insert(Node.NODE_IDENTIFIER, String.valueOf(i), StringByteIterator.getByteIteratorMap(node)));
+      }
+      final long[][] tree = {{0, 1}, {0, 2}, {1, 3}, {1, 4}, {2, 5}};
+      for (int i = 0; i < tree.length; i++) {
+        assertEquals(Status.OK,
+            client.insert(Edge.EDGE_IDENTIFIER, String.valueOf(i), edge(i, tree[i][0], tree[i][1])));
+      }
+
+      // the edges are qualifiers of the row of their start node
+      assertEquals(2, nodes.get(new Get(Bytes.toBytes("0")).addFamily(Bytes.toBytes("e"))).size());
+
+      final HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+      assertEquals(Status.OK, client.read(Node.NODE_IDENTIFIER, "0", null, result));
+      assertEquals(3, result.size());
+      assertEquals("value0", result.get(Node.VALUE_IDENTIFIER).toString());
+
+      assertEquals(ids("0", "1", "2", "3", "4", "5"), scanIds(Node.NODE_IDENTIFIER, "0", 10));
+      assertEquals(ids("0", "1", "2"), scanIds(Node.NODE_IDENTIFIER, "0", 3));
+      assertEquals(ids("6"), scanIds(Node.NODE_IDENTIFIER, "6", 10));
+      assertEquals(ids("2", "3"), scanIds(Edge.EDGE_IDENTIFIER, "2", 10));
+
+      assertEquals(Status.OK, client.update(Edge.EDGE_IDENTIFIER, "3", edge(3, 6, 4)));
+      assertEquals(ids("1", "3"), scanIds(Node.NODE_IDENTIFIER, "1", 10));
+      assertEquals(ids("6", "4"), scanIds(Node.NODE_IDENTIFIER, "6", 10));
+
+      assertEquals(Status.OK, client.delete(Edge.EDGE_IDENTIFIER, "1"));
+      assertEquals(ids("0", "1", "3"), scanIds(Node.NODE_IDENTIFIER, "0", 10));
+      assertEquals(Status.NOT_FOUND, client.delete(Edge.EDGE_IDENTIFIER, "1"));
+    } finally {
+      nodes.close();
+      edges.close();
+      testingUtil.deleteTable(Node.NODE_IDENTIFIER);
+      testingUtil.deleteTable(Edge.EDGE_IDENTIFIER);
+    }
+  }
+
   @Test
   @Ignore("Not yet implemented")
   public void testDelete() {
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A bounded pool of the connections to one shard, shared by all client threads. Connections are opened when
+ * needed, up to the maximum size; after that a thread waits until another one returns its connection.
+ *
+ * <br>
+ * Each pooled connection keeps the statements prepared on it. Only the thread holding the connection uses
+ * them, so they are cached in a plain map.
+ */
+final class JdbcConnectionPool {
+
+  /**
+   * A connection of the pool together with its prepared statements.
+   */
+  static final class PooledConnection {
+    private final Connection connection;
+    private final Map<StatementType, PreparedStatement> statements = new HashMap<>();
+
+    private PooledConnection(Connection connection) {
+      this.connection = connection;
+    }
+
+    Connection getConnection() {
+      return connection;
+    }
+
+    Map<StatementType, PreparedStatement> getStatements() {
+      return statements;
+    }
+  }
+
+  private final String url;
+  private final String user;
+  private final String passwd;
+  private final boolean autoCommit;
+  private final int maxSize;
+
+  private final BlockingQueue<PooledConnection> idle = new LinkedBlockingQueue<>();
+  private final List<PooledConnection> all = new ArrayList<>();
+
+  JdbcConnectionPool(String url, String user, String passwd, boolean autoCommit, int maxSize) {
+    this.url = url;
+    this.user = user;
+    this.passwd = passwd;
+    this.autoCommit = autoCommit;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Takes a connection from the pool, opening a new one if there is none idle and the pool is not full yet.
+   */
+  PooledConnection acquire() throws SQLException {
+    PooledConnection pooled = idle.poll();
+    if (pooled != null) {
+      return pooled;
+    }
+    synchronized (this) {
+      if (all.size() < maxSize) {
+        Connection conn = DriverManager.getConnection(url, user, passwd);
+        conn.setAutoCommit(autoCommit);
+        pooled = new PooledConnection(conn);
+        all.add(pooled);
+        return pooled;
+      }
+    }
+    try {
+      return idle.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection to " + url, e);
+    }
+  }
+
+  void release(PooledConnection pooled) {
+    idle.add(pooled);
+  }
+
+  synchronized void close() throws SQLException {
+    for (PooledConnection pooled : all) {
+      if (!autoCommit) {
+        pooled.getConnection().commit();
+      }
+      pooled.getConnection().close();
+    }
+    all.clear();
+    idle.clear();
+  }
+}
@@ -24,8 +24,6 @@ import com.yahoo.ycsb.StringByteIterator;
 
 import java.sql.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import com.yahoo.ycsb.db.flavors.DBFlavor;
 
 /**
@@ -67,6 +65,15 @@ public class JdbcDBClient extends DB {
 
   public static final String JDBC_BATCH_UPDATES = "jdbc.batchupdateapi";
 
+  /**
+   * The maximum number of connections per shard. Set to >0 to share a pool of connections between all client
+   * threads instead of opening a connection to every shard per thread.
+   */
+  public static final String JDBC_POOL_SIZE = "jdbc.poolsize";
+
+  /** Insert the rows of a batch with one multi-row INSERT statement instead of one statement per row. */
+  public static final String JDBC_MULTI_ROW_INSERT = "jdbc.multirowinsert";
+
   /** The name of the property for the number of fields in a record. */
   public static final String FIELD_COUNT_PROPERTY = "fieldcount";
 
@@ -83,14 +90,28 @@ public class JdbcDBClient extends DB {
   public static final String COLUMN_PREFIX = "FIELD";
 
   private List<Connection> conns;
+  private int shardCount;
+  /** The connection pools of the shards if pooling is enabled, shared by all client threads. */
+  private static List<JdbcConnectionPool> pools;
+  private static int poolReferences = 0;
+  /** The pooled connection held during the current operation. */
+  private JdbcConnectionPool.PooledConnection pooledConnection;
+  private int pooledShardIndex;
   private boolean initialized = false;
   private Properties props;
   private int jdbcFetchSize;
   private int batchSize;
   private boolean autoCommit;
   private boolean batchUpdates;
+  private boolean multiRowInsert;
+  /** The parameters of the rows waiting for a multi-row insert, per single row insert statement type. */
+  private Map<StatementType, List<String>> pendingRows;
   private static final String DEFAULT_PROP = "";
-  private ConcurrentMap<StatementType, PreparedStatement> cachedStatements;
+  /**
+   * The prepared statements, used by the thread of this client only. With pooling, the statements of the
+   * pooled connection held during the current operation.
+   */
+  private Map<StatementType, PreparedStatement> cachedStatements;
   private long numRowsInBatch = 0;
   /** DB flavor defines DB-specific syntax and behavior for the
    * particular database. Current database flavors are: {default, phoenix} */
@@ -124,7 +145,7 @@ public class JdbcDBClient extends DB {
    * @return Shard index
    */
   private int getShardIndexByKey(String key) {
-    int ret = Math.abs(key.hashCode()) % conns.size();
+    int ret = Math.abs(key.hashCode()) % shardCount;
     return ret;
   }
 
@@ -136,7 +157,47 @@ public class JdbcDBClient extends DB {
    * @return Connection object
    */
   private Connection getShardConnectionByKey(String key) {
-    return conns.get(getShardIndexByKey(key));
+    return getShardConnection(getShardIndexByKey(key));
+  }
+
+  private Connection getShardConnection(int shardIndex) {
+    if (pooledConnection != null) {
+      return pooledConnection.getConnection();
+    }
+    return conns.get(shardIndex);
+  }
+
+  /**
+   * With pooling, takes a connection to the given shard from its pool for the current operation. Without, the
+   * connections of this client are used.
+   */
+  private void acquireConnection(int shardIndex) throws SQLException {
+    if (pools != null) {
+      pooledConnection = pools.get(shardIndex).acquire();
+      pooledShardIndex = shardIndex;
+      cachedStatements = pooledConnection.getStatements();
+    }
+  }
+
+  /**
+   * Returns the pooled connection of the current operation to its pool. As the next operation may get another
+   * connection, it commits first if auto-commit is off.
+   */
+  private void releaseConnection() {
+    if (pooledConnection == null) {
+      return;
+    }
+    try {
+      if (!autoCommit) {
+        pooledConnection.getConnection().commit();
+      }
+    } catch (SQLException e) {
+      System.err.println("Error in committing pooled connection. " + e);
+    } finally {
+      pools.get(pooledShardIndex).release(pooledConnection);
+      pooledConnection = null;
+      cachedStatements = null;
+    }
   }
 
   private void cleanupAllConnections() throws SQLException {
@@ -188,33 +249,58 @@ public class JdbcDBClient extends DB {
 
     this.autoCommit = getBoolProperty(props, JDBC_AUTO_COMMIT, true);
     this.batchUpdates = getBoolProperty(props, JDBC_BATCH_UPDATES, false);
+    this.multiRowInsert = getBoolProperty(props, JDBC_MULTI_ROW_INSERT, false) && batchSize > 0;
+    int poolSize = getIntProperty(props, JDBC_POOL_SIZE);
+    if (poolSize > 0 && (batchUpdates || (batchSize > 0 && !multiRowInsert))) {
+      // batches live in the statements and transactions of a single connection
+      throw new DBException("Pooled connections only support batching with " + JDBC_MULTI_ROW_INSERT + ".");
+    }
 
     try {
       if (driver != null) {
         Class.forName(driver);
       }
-      int shardCount = 0;
+      shardCount = 0;
       conns = new ArrayList<Connection>(3);
       final String[] urlArr = urls.split(",");
-      for (String url : urlArr) {
-        System.out.println("Adding shard node URL: " + url);
-        Connection conn = DriverManager.getConnection(url, user, passwd);
-
-        // Since there is no explicit commit method in the DB interface, all
-        // operations should auto commit, except when explicitly told not to
-        // (this is necessary in cases such as for PostgreSQL when running a
-        // scan workload with fetchSize)
-        conn.setAutoCommit(autoCommit);
-
-        shardCount++;
-        conns.add(conn);
+      if (poolSize > 0) {
+        synchronized (JdbcDBClient.class) {
+          if (pools == null) {
+            pools = new ArrayList<>(urlArr.length);
+            for (String url : urlArr) {
+              System.out.println("Adding pooled shard node URL: " + url + ", pool size: " + poolSize);
+              pools.add(new JdbcConnectionPool(url, user, passwd, autoCommit, poolSize));
+            }
+          }
+          poolReferences++;
+        }
+        shardCount = urlArr.length;
+      } else {
+        for (String url : urlArr) {
+          System.out.println("Adding shard node URL: " + url);
+          Connection conn = DriverManager.getConnection(url, user, passwd);
+
+          // Since there is no explicit commit method in the DB interface, all
+          // operations should auto commit, except when explicitly told not to
+          // (this is necessary in cases such as for PostgreSQL when running a
+          // scan workload with fetchSize)
+          conn.setAutoCommit(autoCommit);
+
+          shardCount++;
+          conns.add(conn);
+        }
       }
 
       System.out.println("Using shards: " + shardCount + ", batchSize:" + batchSize + ", fetchSize: " + jdbcFetchSize);
 
-      cachedStatements = new ConcurrentHashMap<StatementType, PreparedStatement>();
+      cachedStatements = new HashMap<StatementType, PreparedStatement>();
 
       this.dbFlavor = DBFlavor.fromJdbcUrl(urlArr[0]);
+      if (multiRowInsert && !dbFlavor.supportsMultiRowInsert()) {
+        System.err.println("The database does not support multi-row inserts, inserting one row at a time.");
+        multiRowInsert = false;
+      }
+      pendingRows = new HashMap<>();
     } catch (ClassNotFoundException e) {
       System.err.println("Error in initializing the JDBS driver: " + e);
       throw new DBException(e);
@@ -231,7 +317,24 @@ public class JdbcDBClient extends DB {
 
   @Override
   public void cleanup() throws DBException {
-    if (batchSize > 0) {
+    try {
+      // insert the rows of un-finished multi-row batches
+      for (Map.Entry<StatementType, List<String>> rows : pendingRows.entrySet()) {
+        if (!rows.getValue().isEmpty()) {
+          try {
+            acquireConnection(rows.getKey().getShardIndex());
+            executeMultiInsert(rows.getKey(), rows.getValue());
+          } finally {
+            releaseConnection();
+          }
+        }
+      }
+    } catch (SQLException e) {
+      System.err.println("Error in cleanup execution. " + e);
+      throw new DBException(e);
+    }
+
+    if (batchSize > 0 && pools == null) {
       try {
         // commit un-finished batches
         for (PreparedStatement st : cachedStatements.values()) {
@@ -247,6 +350,16 @@ public class JdbcDBClient extends DB {
 
     try {
       cleanupAllConnections();
+      if (pools != null) {
+        synchronized (JdbcDBClient.class) {
+          if (--poolReferences == 0) {
+            for (JdbcConnectionPool pool : pools) {
+              pool.close();
+            }
+            pools = null;
+          }
+        }
+      }
     } catch (SQLException e) {
       System.err.println("Error in closing the connection. " + e);
       throw new DBException(e);
@@ -311,9 +424,32 @@ public class JdbcDBClient extends DB {
     return stmt;
   }
 
+  private PreparedStatement createAndCacheMultiInsertStatement(StatementType insertType)
+      throws SQLException {
+    String insert = dbFlavor.createMultiInsertStatement(insertType, null);
+    PreparedStatement insertStatement = getShardConnection(insertType.getShardIndex()).prepareStatement(insert);
+    PreparedStatement stmt = cachedStatements.putIfAbsent(insertType, insertStatement);
+    if (stmt == null) {
+      return insertStatement;
+    }
+    return stmt;
+  }
+
+  private PreparedStatement createAndCacheMultiReadStatement(StatementType readType)
+      throws SQLException {
+    String read = dbFlavor.createMultiReadStatement(readType, null);
+    PreparedStatement readStatement = getShardConnection(readType.getShardIndex()).prepareStatement(read);
+    PreparedStatement stmt = cachedStatements.putIfAbsent(readType, readStatement);
+    if (stmt == null) {
+      return readStatement;
+    }
+    return stmt;
+  }
+
   @Override
   public Status read(String tableName, String key, Set<String> fields, Map<String, ByteIterator> result) {
     try {
+      acquireConnection(getShardIndexByKey(key));
       StatementType type = new StatementType(StatementType.Type.READ, tableName, 1, "", getShardIndexByKey(key));
       PreparedStatement readStatement = cachedStatements.get(type);
       if (readStatement == null) {
@@ -336,13 +472,86 @@ public class JdbcDBClient extends DB {
     } catch (SQLException e) {
       System.err.println("Error in processing read of table " + tableName + ": " + e);
       return Status.ERROR;
+    } finally {
+      releaseConnection();
     }
   }
 
+  /**
+   * Reads the records of several keys at once, with one SELECT ... WHERE key IN (...) statement per shard instead
+   * of one statement per key. The statements are cached per number of keys.
+   *
+   * @param tableName The name of the table
+   * @param keys The record keys of the records to read
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A map from the key of each record found to its field/value pairs
+   * @return OK if all records were found, NOT_FOUND if some were not
+   */
+  @Override
+  public Status multiRead(String tableName, Collection<String> keys, Set<String> fields,
+                          Map<String, Map<String, ByteIterator>> result) {
+    Map<Integer, List<String>> shardKeys = new HashMap<>();
+    for (String key : keys) {
+      int shardIndex = getShardIndexByKey(key);
+      List<String> list = shardKeys.get(shardIndex);
+      if (list == null) {
+        list = new ArrayList<>();
+        shardKeys.put(shardIndex, list);
+      }
+      list.add(key);
+    }
+
+    int found = 0;
+    try {
+      for (Map.Entry<Integer, List<String>> entry : shardKeys.entrySet()) {
+        acquireConnection(entry.getKey());
+        try {
+          StatementType type = new StatementType(StatementType.Type.MULTI_READ, tableName, 1, "", entry.getKey(),
+              entry.getValue().size());
+          PreparedStatement readStatement = cachedStatements.get(type);
+          if (readStatement == null) {
+            readStatement = createAndCacheMultiReadStatement(type);
+          }
+          int index = 1;
+          for (String key : entry.getValue()) {
+            readStatement.setString(index++, key);
+          }
+          ResultSet resultSet = readStatement.executeQuery();
+          while (resultSet.next()) {
+            Map<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+            if (fields != null) {
+              for (String field : fields) {
+                values.put(field, new StringByteIterator(resultSet.getString(field)));
+              }
+            } else {
+              ResultSetMetaData metaData = resultSet.getMetaData();
+              for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                String column = metaData.getColumnLabel(i);
+                if (!column.equalsIgnoreCase(PRIMARY_KEY)) {
+                  values.put(column, new StringByteIterator(resultSet.getString(i)));
+                }
+              }
+            }
+            result.put(resultSet.getString(PRIMARY_KEY), values);
+            found++;
+          }
+          resultSet.close();
+        } finally {
+          releaseConnection();
+        }
+      }
+    } catch (SQLException e) {
+      System.err.println("Error in processing multi read of table " + tableName + ": " + e);
+      return Status.ERROR;
+    }
+    return found == keys.size() ? Status.OK : Status.NOT_FOUND;
+  }
+
   @Override
   public Status scan(String tableName, String startKey, int recordcount, Set<String> fields,
                      Vector<HashMap<String, ByteIterator>> result) {
     try {
+      acquireConnection(getShardIndexByKey(startKey));
       StatementType type = new StatementType(StatementType.Type.SCAN, tableName, 1, "", getShardIndexByKey(startKey));
       PreparedStatement scanStatement = cachedStatements.get(type);
       if (scanStatement == null) {
@@ -366,12 +575,15 @@ public class JdbcDBClient extends DB {
     } catch (SQLException e) {
       System.err.println("Error in processing scan of table: " + tableName + e);
       return Status.ERROR;
+    } finally {
+      releaseConnection();
     }
   }
 
   @Override
   public Status update(String tableName, String key, Map<String, ByteIterator> values) {
     try {
+      acquireConnection(getShardIndexByKey(key));
       int numFields = values.size();
       OrderedFieldInfo fieldInfo = getFieldInfo(values);
       StatementType type = new StatementType(StatementType.Type.UPDATE, tableName,
@@ -393,16 +605,22 @@ public class JdbcDBClient extends DB {
     } catch (SQLException e) {
       System.err.println("Error in processing update to table: " + tableName + e);
       return Status.ERROR;
+    } finally {
+      releaseConnection();
     }
   }
 
   @Override
   public Status insert(String tableName, String key, Map<String, ByteIterator> values) {
     try {
+      acquireConnection(getShardIndexByKey(key));
       int numFields = values.size();
       OrderedFieldInfo fieldInfo = getFieldInfo(values);
       StatementType type = new StatementType(StatementType.Type.INSERT, tableName,
           numFields, fieldInfo.getFieldKeys(), getShardIndexByKey(key));
+      if (multiRowInsert) {
+        return addToMultiRowInsert(type, key, fieldInfo);
+      }
       PreparedStatement insertStatement = cachedStatements.get(type);
       if (insertStatement == null) {
         insertStatement = createAndCacheInsertStatement(type, key);
@@ -461,12 +679,15 @@ public class JdbcDBClient extends DB {
     } catch (SQLException e) {
       System.err.println("Error in processing insert to table: " + tableName + e);
       return Status.ERROR;
+    } finally {
+      releaseConnection();
     }
   }
 
   @Override
   public Status delete(String tableName, String key) {
     try {
+      acquireConnection(getShardIndexByKey(key));
       StatementType type = new StatementType(StatementType.Type.DELETE, tableName, 1, "", getShardIndexByKey(key));
       PreparedStatement deleteStatement = cachedStatements.get(type);
       if (deleteStatement == null) {
@@ -481,7 +702,52 @@ public class JdbcDBClient extends DB {
     } catch (SQLException e) {
       System.err.println("Error in processing delete to table: " + tableName + e);
       return Status.ERROR;
+    } finally {
+      releaseConnection();
+    }
+  }
+
+  /**
+   * Adds a row to the multi-row insert of its statement type, and inserts the rows once there are batchsize of them.
+   */
+  private Status addToMultiRowInsert(StatementType type, String key, OrderedFieldInfo fieldInfo)
+      throws SQLException {
+    int rowSize = type.getNumFields() + 1;
+    List<String> rows = pendingRows.get(type);
+    if (rows == null) {
+      rows = new ArrayList<>(batchSize * rowSize);
+      pendingRows.put(type, rows);
+    }
+    rows.add(key);
+    rows.addAll(fieldInfo.getFieldValues());
+    if (rows.size() < batchSize * rowSize) {
+      return Status.BATCHED_OK;
+    }
+    return executeMultiInsert(type, rows);
+  }
+
+  private Status executeMultiInsert(StatementType type, List<String> rows) throws SQLException {
+    int numRows = rows.size() / (type.getNumFields() + 1);
+    StatementType multiType = new StatementType(StatementType.Type.MULTI_INSERT, type.getTableName(),
+        type.getNumFields(), type.getFieldString(), type.getShardIndex(), numRows);
+    PreparedStatement insertStatement = cachedStatements.get(multiType);
+    if (insertStatement == null) {
+      insertStatement = createAndCacheMultiInsertStatement(multiType);
+    }
+    int result;
+    try {
+      int index = 1;
+      for (String value : rows) {
+        insertStatement.setString(index++, value);
+      }
+      result = insertStatement.executeUpdate();
+    } finally {
+      rows.clear();
+    }
+    if (!autoCommit) {
+      getShardConnection(type.getShardIndex()).commit();
     }
+    return result == numRows ? Status.OK : Status.UNEXPECTED_STATE;
   }
 
   private OrderedFieldInfo getFieldInfo(Map<String, ByteIterator> values) {
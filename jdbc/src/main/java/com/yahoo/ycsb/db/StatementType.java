@@ -22,7 +22,7 @@ package com.yahoo.ycsb.db;
 public class StatementType {
 
   enum Type {
-    INSERT(1), DELETE(2), READ(3), UPDATE(4), SCAN(5);
+    INSERT(1), DELETE(2), READ(3), UPDATE(4), SCAN(5), MULTI_INSERT(6), MULTI_READ(7);
 
     private final int internalType;
 
@@ -43,13 +43,24 @@ public class StatementType {
   private int numFields;
   private String tableName;
   private String fieldString;
+  private int numRows;
 
   public StatementType(Type type, String tableName, int numFields, String fieldString, int shardIndex) {
+    this(type, tableName, numFields, fieldString, shardIndex, 1);
+  }
+
+  /**
+   * Creates the type of a statement writing or reading several rows at once. The statements are cached per
+   * number of rows.
+   */
+  public StatementType(Type type, String tableName, int numFields, String fieldString, int shardIndex,
+                       int numRows) {
     this.type = type;
     this.tableName = tableName;
     this.numFields = numFields;
     this.fieldString = fieldString;
     this.shardIndex = shardIndex;
+    this.numRows = numRows;
   }
 
   public String getTableName() {
@@ -64,6 +75,14 @@ public class StatementType {
     return numFields;
   }
 
+  public int getNumRows() {
+    return numRows;
+  }
+
+  public int getShardIndex() {
+    return shardIndex;
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
@@ -71,6 +90,7 @@ public class StatementType {
     result = prime * result + numFields + 100 * shardIndex;
     result = prime * result + ((tableName == null) ? 0 : tableName.hashCode());
     result = prime * result + ((type == null) ? 0 : type.getHashCode());
+    result = prime * result + numRows;
     return result;
   }
 
@@ -92,6 +112,9 @@ public class StatementType {
     if (shardIndex != other.shardIndex) {
       return false;
     }
+    if (numRows != other.numRows) {
+      return false;
+    }
     if (tableName == null) {
       if (other.tableName != null) {
         return false;
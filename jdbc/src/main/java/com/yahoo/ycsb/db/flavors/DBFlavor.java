@@ -66,4 +66,21 @@ public abstract class DBFlavor {
    * Create and return a SQL statement for scanning data.
    */
   public abstract String createScanStatement(StatementType scanType, String key);
+
+  /**
+   * Create and return a SQL statement inserting {@link StatementType#getNumRows()} rows at once.
+   */
+  public abstract String createMultiInsertStatement(StatementType insertType, String key);
+
+  /**
+   * Create and return a SQL statement reading the rows of {@link StatementType#getNumRows()} keys at once.
+   */
+  public abstract String createMultiReadStatement(StatementType readType, String key);
+
+  /**
+   * Whether the database can insert several rows with a single statement.
+   */
+  public boolean supportsMultiRowInsert() {
+    return true;
+  }
 }
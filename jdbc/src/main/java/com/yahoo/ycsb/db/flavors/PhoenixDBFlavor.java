@@ -62,4 +62,10 @@ public class PhoenixDBFlavor extends DefaultDBFlavor {
     update.append("?)");
     return update.toString();
   }
+
+  @Override
+  public boolean supportsMultiRowInsert() {
+    // UPSERT VALUES takes a single row
+    return false;
+  }
 }
@@ -21,6 +21,7 @@ import static org.junit.Assert.*;
 
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
 import org.junit.*;
 
@@ -52,6 +53,10 @@ public class JdbcDBClientTest {
     }
 
     public static void setupWithBatch(int batchSize, boolean autoCommit) {
+      setupWithBatch(batchSize, autoCommit, false);
+    }
+
+    public static void setupWithBatch(int batchSize, boolean autoCommit, boolean multiRowInsert) {
       try {
         jdbcConnection = DriverManager.getConnection(TEST_DB_URL);
         jdbcDBClient = new JdbcDBClient();
@@ -63,6 +68,7 @@ public class JdbcDBClientTest {
         p.setProperty(JdbcDBClient.DB_BATCH_SIZE, Integer.toString(batchSize));
         p.setProperty(JdbcDBClient.JDBC_BATCH_UPDATES, "true");
         p.setProperty(JdbcDBClient.JDBC_AUTO_COMMIT, Boolean.toString(autoCommit));
+        p.setProperty(JdbcDBClient.JDBC_MULTI_ROW_INSERT, Boolean.toString(multiRowInsert));
 
         jdbcDBClient.setProperties(p);
         jdbcDBClient.init();
@@ -378,6 +384,115 @@ public class JdbcDBClientTest {
       }
     }
 
+    @Test
+    public void multiRowInsertTest() throws DBException {
+        teardown();
+        setupWithBatch(10, false, true);
+        try {
+            for (int i = 0; i < 25; i++) {
+                insertRow(KEY_PREFIX + i);
+            }
+            // two full batches were inserted with one statement each
+            assertNumRows(20);
+
+            // cleanup inserts the partial batch
+            jdbcDBClient.cleanup();
+            jdbcDBClient = null;
+            assertNumRows(25);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            fail("Failed multiRowInsertTest");
+        } finally {
+            teardown();
+            setup();
+        }
+    }
+
+    @Test
+    public void multiReadTest() {
+        Map<String, HashMap<String, ByteIterator>> keyMap = new HashMap<String, HashMap<String, ByteIterator>>();
+        for (int i = 0; i < 5; i++) {
+            String insertKey = KEY_PREFIX + i;
+            keyMap.put(insertKey, insertRow(insertKey));
+        }
+        Set<String> keys = new HashSet<String>();
+        keys.add(KEY_PREFIX + 1);
+        keys.add(KEY_PREFIX + 3);
+
+        Set<String> fieldSet = new HashSet<String>();
+        fieldSet.add("FIELD0");
+        Map<String, Map<String, ByteIterator>> result = new HashMap<String, Map<String, ByteIterator>>();
+        assertEquals(Status.OK, jdbcDBClient.multiRead(TABLE_NAME, keys, fieldSet, result));
+        assertEquals(keys, result.keySet());
+        for (String key : keys) {
+            assertEquals(1, result.get(key).size());
+            assertEquals(keyMap.get(key).get("FIELD0").toString(), result.get(key).get("FIELD0").toString());
+        }
+
+        // all fields, and a key that does not exist
+        keys.add(KEY_PREFIX + 9);
+        result.clear();
+        assertEquals(Status.NOT_FOUND, jdbcDBClient.multiRead(TABLE_NAME, keys, null, result));
+        assertEquals(2, result.size());
+        for (Map.Entry<String, Map<String, ByteIterator>> record : result.entrySet()) {
+            assertEquals(NUM_FIELDS, record.getValue().size());
+            for (int i = 0; i < NUM_FIELDS; i++) {
+                assertEquals(keyMap.get(record.getKey()).get(FIELD_PREFIX + i).toString(),
+                    record.getValue().get(FIELD_PREFIX + i).toString());
+            }
+        }
+    }
+
+    private static JdbcDBClient newPooledClient(int poolSize) throws DBException {
+        Properties p = new Properties();
+        p.setProperty(JdbcDBClient.CONNECTION_URL, TEST_DB_URL);
+        p.setProperty(JdbcDBClient.DRIVER_CLASS, TEST_DB_DRIVER);
+        p.setProperty(JdbcDBClient.CONNECTION_USER, TEST_DB_USER);
+        p.setProperty(JdbcDBClient.JDBC_POOL_SIZE, Integer.toString(poolSize));
+        JdbcDBClient client = new JdbcDBClient();
+        client.setProperties(p);
+        client.init();
+        return client;
+    }
+
+    @Test
+    public void pooledConnectionTest() throws DBException {
+        // two clients sharing a single pooled connection
+        JdbcDBClient first = newPooledClient(1);
+        JdbcDBClient second = newPooledClient(1);
+
+        Map<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+        values.put("FIELD0", new StringByteIterator("value0"));
+        assertEquals(Status.OK, first.insert(TABLE_NAME, "user0", values));
+
+        Set<String> fieldSet = new HashSet<String>();
+        fieldSet.add("FIELD0");
+        Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+        assertEquals(Status.OK, second.read(TABLE_NAME, "user0", fieldSet, result));
+        assertEquals("value0", result.get("FIELD0").toString());
+
+        values.put("FIELD0", new StringByteIterator("value1"));
+        assertEquals(Status.OK, second.update(TABLE_NAME, "user0", values));
+        result.clear();
+        assertEquals(Status.OK, first.read(TABLE_NAME, "user0", fieldSet, result));
+        assertEquals("value1", result.get("FIELD0").toString());
+
+        first.cleanup();
+        assertEquals(Status.OK, second.delete(TABLE_NAME, "user0"));
+        second.cleanup();
+    }
+
+    @Test(expected = DBException.class)
+    public void pooledConnectionBatchUpdatesTest() throws DBException {
+        Properties p = new Properties();
+        p.setProperty(JdbcDBClient.CONNECTION_URL, TEST_DB_URL);
+        p.setProperty(JdbcDBClient.JDBC_POOL_SIZE, "1");
+        p.setProperty(JdbcDBClient.JDBC_BATCH_UPDATES, "true");
+        JdbcDBClient client = new JdbcDBClient();
+        client.setProperties(p);
+        client.init();
+    }
+
     private void assertNumRows(long numRows) throws SQLException {
       ResultSet resultSet = jdbcConnection.prepareStatement(
         String.format("SELECT * FROM %s", TABLE_NAME)
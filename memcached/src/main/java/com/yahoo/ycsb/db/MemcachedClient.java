@@ -17,6 +17,7 @@
 
 package com.yahoo.ycsb.db;
 
+import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
@@ -27,8 +28,12 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -52,6 +57,7 @@ import org.codehaus.jackson.node.ObjectNode;
 
 import org.apache.log4j.Logger;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 /**
@@ -66,6 +72,14 @@ public class MemcachedClient extends DB {
   private boolean checkOperationStatus;
   private long shutdownTimeoutMillis;
   private int objectExpirationTime;
+  private boolean binaryEncoding;
+  private int maxOutstanding;
+
+  /**
+   * The writes of this thread not completed yet, oldest first.
+   */
+  private final Deque<OperationFuture<Boolean>> outstanding =
+      new ArrayDeque<OperationFuture<Boolean>>();
 
   public static final String HOSTS_PROPERTY = "memcached.hosts";
 
@@ -102,6 +116,21 @@ public class MemcachedClient extends DB {
   public static final ConnectionFactoryBuilder.Protocol DEFAULT_PROTOCOL =
       ConnectionFactoryBuilder.Protocol.TEXT;
 
+  /**
+   * How the fields of a record are encoded in its value: {@code json}, or
+   * {@code binary} for the length-prefixed bytes of the fields.
+   */
+  public static final String ENCODING_PROPERTY = "memcached.encoding";
+  public static final String DEFAULT_ENCODING = "json";
+
+  /**
+   * The number of writes per thread that may be outstanding before a write
+   * waits for the oldest one to complete; 0 waits for each write.
+   */
+  public static final String MAX_OUTSTANDING_PROPERTY =
+      "memcached.maxOutstanding";
+  public static final String DEFAULT_MAX_OUTSTANDING = "0";
+
   /**
    * The MemcachedClient implementation that will be used to communicate
    * with the memcached server.
@@ -129,6 +158,15 @@ public class MemcachedClient extends DB {
       shutdownTimeoutMillis = Integer.parseInt(
           getProperties().getProperty(SHUTDOWN_TIMEOUT_MILLIS_PROPERTY,
                                       DEFAULT_SHUTDOWN_TIMEOUT_MILLIS));
+      String encoding = getProperties().getProperty(ENCODING_PROPERTY,
+                                                    DEFAULT_ENCODING);
+      if (!"json".equals(encoding) && !"binary".equals(encoding)) {
+        throw new DBException("Unknown " + ENCODING_PROPERTY + ": " + encoding);
+      }
+      binaryEncoding = "binary".equals(encoding);
+      maxOutstanding = Integer.parseInt(
+          getProperties().getProperty(MAX_OUTSTANDING_PROPERTY,
+                                      DEFAULT_MAX_OUTSTANDING));
     } catch (Exception e) {
       throw new DBException(e);
     }
@@ -186,7 +224,7 @@ public class MemcachedClient extends DB {
       GetFuture<Object> future = memcachedClient().asyncGet(key);
       Object document = future.get();
       if (document != null) {
-        fromJson((String) document, fields, result);
+        decode(document, fields, result);
       }
       return Status.OK;
     } catch (Exception e) {
@@ -195,6 +233,41 @@ public class MemcachedClient extends DB {
     }
   }
 
+  /**
+   * Reads several records with one multi-get per server instead of one get
+   * per key.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to read
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A map from the key of each record found to its field/value
+   *     pairs
+   * @return OK if all records were found, NOT_FOUND if some were not
+   */
+  @Override
+  public Status multiRead(
+      String table, Collection<String> keys, Set<String> fields,
+      Map<String, Map<String, ByteIterator>> result) {
+    Map<String, String> qualifiedKeys = new HashMap<String, String>();
+    for (String key : keys) {
+      qualifiedKeys.put(createQualifiedKey(table, key), key);
+    }
+    try {
+      Map<String, Object> documents =
+          memcachedClient().getBulk(qualifiedKeys.keySet());
+      for (Map.Entry<String, Object> document : documents.entrySet()) {
+        Map<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+        decode(document.getValue(), fields, values);
+        result.put(qualifiedKeys.get(document.getKey()), values);
+      }
+      return documents.size() == qualifiedKeys.size()
+          ? Status.OK : Status.NOT_FOUND;
+    } catch (Exception e) {
+      logger.error("Error encountered for keys: " + qualifiedKeys.keySet(), e);
+      return Status.ERROR;
+    }
+  }
+
   @Override
   public Status scan(
       String table, String startkey, int recordcount, Set<String> fields,
@@ -208,8 +281,8 @@ public class MemcachedClient extends DB {
     key = createQualifiedKey(table, key);
     try {
       OperationFuture<Boolean> future =
-          memcachedClient().replace(key, objectExpirationTime, toJson(values));
-      return getReturnCode(future);
+          memcachedClient().replace(key, objectExpirationTime, encode(values));
+      return complete(future);
     } catch (Exception e) {
       logger.error("Error updating value with key: " + key, e);
       return Status.ERROR;
@@ -222,8 +295,8 @@ public class MemcachedClient extends DB {
     key = createQualifiedKey(table, key);
     try {
       OperationFuture<Boolean> future =
-          memcachedClient().add(key, objectExpirationTime, toJson(values));
-      return getReturnCode(future);
+          memcachedClient().add(key, objectExpirationTime, encode(values));
+      return complete(future);
     } catch (Exception e) {
       logger.error("Error inserting value", e);
       return Status.ERROR;
@@ -235,13 +308,42 @@ public class MemcachedClient extends DB {
     key = createQualifiedKey(table, key);
     try {
       OperationFuture<Boolean> future = memcachedClient().delete(key);
-      return getReturnCode(future);
+      return complete(future);
     } catch (Exception e) {
       logger.error("Error deleting value", e);
       return Status.ERROR;
     }
   }
 
+  /**
+   * Returns the status of a write, or BATCHED_OK while the number of
+   * outstanding writes is within {@link #MAX_OUTSTANDING_PROPERTY}. Above
+   * that the oldest writes are waited for, and a failure of one of them is
+   * returned instead.
+   */
+  protected Status complete(OperationFuture<Boolean> future) {
+    if (maxOutstanding <= 0) {
+      return getReturnCode(future);
+    }
+    outstanding.add(future);
+    Status status = Status.BATCHED_OK;
+    while (outstanding.size() > maxOutstanding) {
+      Status completed = awaitOldest();
+      if (!completed.isOk()) {
+        status = completed;
+      }
+    }
+    return status;
+  }
+
+  private Status awaitOldest() {
+    OperationFuture<Boolean> future = outstanding.poll();
+    // getStatus() waits for the operation, getReturnCode() only does if the
+    // status is checked
+    future.getStatus();
+    return getReturnCode(future);
+  }
+
   protected Status getReturnCode(OperationFuture<Boolean> future) {
     if (!checkOperationStatus) {
       return Status.OK;
@@ -258,6 +360,12 @@ public class MemcachedClient extends DB {
 
   @Override
   public void cleanup() throws DBException {
+    while (!outstanding.isEmpty()) {
+      Status status = awaitOldest();
+      if (!status.isOk()) {
+        logger.error("Outstanding write failed: " + status);
+      }
+    }
     if (client != null) {
       memcachedClient().shutdown(shutdownTimeoutMillis, MILLISECONDS);
     }
@@ -267,6 +375,80 @@ public class MemcachedClient extends DB {
     return MessageFormat.format("{0}-{1}", table, key);
   }
 
+  protected Object encode(Map<String, ByteIterator> values)
+      throws IOException {
+    return binaryEncoding ? toBytes(values) : toJson(values);
+  }
+
+  protected static void decode(
+      Object document, Set<String> fields,
+      Map<String, ByteIterator> result) throws IOException {
+    // the transcoder stores byte arrays as they are, so a value written with
+    // the binary encoding is read back as one
+    if (document instanceof byte[]) {
+      fromBytes((byte[]) document, fields, result);
+    } else {
+      fromJson((String) document, fields, result);
+    }
+  }
+
+  /**
+   * Decodes the fields written by {@link #toBytes(Map)}. The values are not
+   * copied, they are iterators over the value read.
+   */
+  protected static void fromBytes(
+      byte[] value, Set<String> fields,
+      Map<String, ByteIterator> result) {
+    boolean checkFields = fields != null && !fields.isEmpty();
+    ByteBuffer buffer = ByteBuffer.wrap(value);
+    int count = buffer.getInt();
+    for (int i = 0; i < count; i++) {
+      int nameLength = buffer.getShort() & 0xffff;
+      String name = new String(value, buffer.position(), nameLength, UTF_8);
+      buffer.position(buffer.position() + nameLength);
+      int valueLength = buffer.getInt();
+      if (!checkFields || fields.contains(name)) {
+        result.put(name,
+            new ByteArrayByteIterator(value, buffer.position(), valueLength));
+      }
+      buffer.position(buffer.position() + valueLength);
+    }
+  }
+
+  /**
+   * Encodes the fields as their count followed by the length-prefixed name
+   * and value of each field. Unlike {@link #toJson(Map)} the values are
+   * written as they are, without a conversion to strings.
+   */
+  protected static byte[] toBytes(Map<String, ByteIterator> values) {
+    List<byte[]> names = new ArrayList<byte[]>(values.size());
+    int size = Integer.BYTES;
+    for (Map.Entry<String, ByteIterator> field : values.entrySet()) {
+      byte[] name = field.getKey().getBytes(UTF_8);
+      names.add(name);
+      size += Short.BYTES + name.length + Integer.BYTES
+          + (int) field.getValue().bytesLeft();
+    }
+
+    byte[] encoded = new byte[size];
+    ByteBuffer buffer = ByteBuffer.wrap(encoded);
+    buffer.putInt(values.size());
+    Iterator<byte[]> nameIterator = names.iterator();
+    for (ByteIterator value : values.values()) {
+      byte[] name = nameIterator.next();
+      int length = (int) value.bytesLeft();
+      buffer.putShort((short) name.length).put(name).putInt(length);
+      // the value is copied straight from the iterator into the buffer
+      int offset = buffer.position();
+      int end = offset + length;
+      while (offset < end) {
+        offset = value.nextBuf(encoded, offset);
+      }
+      buffer.position(end);
+    }
+    return encoded;
+  }
+
   protected static void fromJson(
       String value, Set<String> fields,
       Map<String, ByteIterator> result) throws IOException {
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.StringByteIterator;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the binary encoding of the memcached client, which needs no server.
+ */
+public class MemcachedClientTest {
+
+  /**
+   * Hands out at most a few bytes per call, as an iterator over a stream
+   * may.
+   */
+  private static final class ChunkedByteIterator extends ByteArrayByteIterator {
+    private static final int CHUNK = 3;
+
+    private ChunkedByteIterator(byte[] bytes) {
+      super(bytes);
+    }
+
+    @Override
+    public int nextBuf(byte[] buf, int bufOff) {
+      int end = (int) Math.min(buf.length, bufOff + Math.min(CHUNK, bytesLeft()));
+      while (bufOff < end) {
+        buf[bufOff++] = nextByte();
+      }
+      return bufOff;
+    }
+  }
+
+  private static byte[] bytes(int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (i * 31);
+    }
+    return bytes;
+  }
+
+  @Test
+  public void roundTrip() {
+    byte[] random = new RandomByteIterator(100).toArray();
+    byte[] padded = bytes(20);
+    Map<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    values.put("field0", new StringByteIterator("value0"));
+    values.put("field1", new ByteArrayByteIterator(random));
+    values.put("field2", new ByteArrayByteIterator(padded, 5, 10));
+    values.put("field3", new ChunkedByteIterator(bytes(50)));
+    values.put("field4", new ByteArrayByteIterator(new byte[0]));
+    values.put("f\u00e9ld5", new StringByteIterator("value5"));
+
+    Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    MemcachedClient.fromBytes(MemcachedClient.toBytes(values), null, result);
+
+    assertEquals(values.size(), result.size());
+    assertEquals("value0", result.get("field0").toString());
+    assertArrayEquals(random, result.get("field1").toArray());
+    byte[] expected = new byte[10];
+    System.arraycopy(padded, 5, expected, 0, 10);
+    assertArrayEquals(expected, result.get("field2").toArray());
+    assertArrayEquals(bytes(50), result.get("field3").toArray());
+    assertEquals(0, result.get("field4").toArray().length);
+    assertEquals("value5", result.get("f\u00e9ld5").toString());
+  }
+
+  @Test
+  public void selectedFields() {
+    Map<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    for (int i = 0; i < 10; i++) {
+      values.put("field" + i, new StringByteIterator("value" + i));
+    }
+
+    Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    MemcachedClient.fromBytes(MemcachedClient.toBytes(values),
+        Collections.singleton("field7"), result);
+
+    assertEquals(1, result.size());
+    assertEquals("value7", result.get("field7").toString());
+  }
+
+  @Test
+  public void noFields() {
+    Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    MemcachedClient.fromBytes(
+        MemcachedClient.toBytes(new HashMap<String, ByteIterator>()), null, result);
+
+    assertTrue(result.isEmpty());
+  }
+}
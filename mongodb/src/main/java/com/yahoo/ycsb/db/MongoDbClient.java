@@ -32,9 +32,14 @@ import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 import com.yahoo.ycsb.ByteArrayByteIterator;
@@ -42,12 +47,19 @@ import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
+import com.yahoo.ycsb.measurements.Measurements;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.Binary;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -71,9 +83,20 @@ public class MongoDbClient extends DB {
   /** Used to include a field in a response. */
   private static final Integer INCLUDE = Integer.valueOf(1);
 
-  /** The options to use for inserting many documents. */
-  private static final InsertManyOptions INSERT_UNORDERED =
-      new InsertManyOptions().ordered(false);
+  /** The options to use for a batch of inserts. */
+  private static final BulkWriteOptions BULK_UNORDERED =
+      new BulkWriteOptions().ordered(false);
+
+  /**
+   * The options to use for a batch that contains updates, which have to be
+   * applied after the inserts of the same documents.
+   */
+  private static final BulkWriteOptions BULK_ORDERED =
+      new BulkWriteOptions().ordered(true);
+
+  /** The options to use for the upserts of inserts in a batch. */
+  private static final ReplaceOptions REPLACE_WITH_UPSERT =
+      new ReplaceOptions().upsert(true);
 
   /** The options to use for inserting a single document. */
   private static final UpdateOptions UPDATE_WITH_UPSERT = new UpdateOptions()
@@ -108,8 +131,21 @@ public class MongoDbClient extends DB {
   /** If true then use updates with the upsert option for inserts. */
   private static boolean useUpsert;
 
-  /** The bulk inserts pending for the thread. */
-  private final List<Document> bulkInserts = new ArrayList<Document>();
+  /** If true then updates are sent in batches of batchSize as well. */
+  private static boolean batchUpdates;
+
+  /**
+   * If true then the start and end of the edges of the graph workload are
+   * stored as indexed strings and scans of nodes traverse the graph.
+   */
+  private static boolean graph;
+
+  /** The bulk writes pending for the thread, per collection. */
+  private final Map<String, List<WriteModel<Document>>> bulkWrites =
+      new HashMap<String, List<WriteModel<Document>>>();
+
+  /** Whether the bulk writes pending for a collection contain updates. */
+  private final Set<String> bulkUpdates = new HashSet<String>();
 
   /**
    * Cleanup any state for this DB. Called once per DB instance; there is one DB
@@ -117,6 +153,12 @@ public class MongoDbClient extends DB {
    */
   @Override
   public void cleanup() throws DBException {
+    for (String table : new ArrayList<String>(bulkWrites.keySet())) {
+      if (!flush(table).isOk()) {
+        System.err.println("Could not write the pending batch of " + table);
+      }
+    }
+
     if (INIT_COUNT.decrementAndGet() == 0) {
       try {
         mongoClient.close();
@@ -182,6 +224,12 @@ public class MongoDbClient extends DB {
       useUpsert = Boolean.parseBoolean(
           props.getProperty("mongodb.upsert", "false"));
 
+      batchUpdates = Boolean.parseBoolean(
+          props.getProperty("mongodb.batchupdates", "false"));
+
+      graph = Boolean.parseBoolean(
+          props.getProperty("mongodb.graph", "false"));
+
       // Just use the standard connection format URL
       // http://docs.mongodb.org/manual/reference/connection-string/
       // to configure the client.
@@ -224,6 +272,13 @@ public class MongoDbClient extends DB {
                 .withReadPreference(readPreference)
                 .withWriteConcern(writeConcern);
 
+        if (graph) {
+          MongoCollection<Document> edges =
+              database.getCollection(Edge.EDGE_IDENTIFIER);
+          edges.createIndex(Indexes.ascending(Edge.START_IDENTIFIER));
+          edges.createIndex(Indexes.ascending(Edge.END_IDENTIFIER));
+        }
+
         System.out.println("mongo client connection created with " + url);
       } catch (Exception e1) {
         System.err
@@ -255,9 +310,7 @@ public class MongoDbClient extends DB {
     try {
       MongoCollection<Document> collection = database.getCollection(table);
       Document toInsert = new Document("_id", key);
-      for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-        toInsert.put(entry.getKey(), entry.getValue().toArray());
-      }
+      putValues(table, toInsert, values);
 
       if (batchSize == 1) {
         if (useUpsert) {
@@ -269,36 +322,87 @@ public class MongoDbClient extends DB {
         } else {
           collection.insertOne(toInsert);
         }
+      } else if (useUpsert) {
+        return addToBatch(table, new ReplaceOneModel<Document>(
+            new Document("_id", key), toInsert, REPLACE_WITH_UPSERT), false);
       } else {
-        bulkInserts.add(toInsert);
-        if (bulkInserts.size() == batchSize) {
-          if (useUpsert) {
-            List<UpdateOneModel<Document>> updates = 
-                new ArrayList<UpdateOneModel<Document>>(bulkInserts.size());
-            for (Document doc : bulkInserts) {
-              updates.add(new UpdateOneModel<Document>(
-                  new Document("_id", doc.get("_id")),
-                  doc, UPDATE_WITH_UPSERT));
-            }
-            collection.bulkWrite(updates);
-          } else {
-            collection.insertMany(bulkInserts, INSERT_UNORDERED);
-          }
-          bulkInserts.clear();
-        } else {
-          return Status.BATCHED_OK;
-        }
+        return addToBatch(table, new InsertOneModel<Document>(toInsert), false);
       }
       return Status.OK;
     } catch (Exception e) {
-      System.err.println("Exception while trying bulk insert with "
-          + bulkInserts.size());
+      System.err.println("Exception while trying insert for key " + key);
       e.printStackTrace();
       return Status.ERROR;
     }
 
   }
 
+  /**
+   * Adds a write to the batch of the collection and sends the batch with one
+   * bulkWrite once it holds batchSize writes.
+   *
+   * @return BATCHED_OK if the write was only added to the batch, else the
+   *         status of the bulkWrite.
+   */
+  private Status addToBatch(String table, WriteModel<Document> write,
+      boolean isUpdate) {
+    List<WriteModel<Document>> batch = bulkWrites.get(table);
+    if (batch == null) {
+      batch = new ArrayList<WriteModel<Document>>(batchSize);
+      bulkWrites.put(table, batch);
+    }
+    batch.add(write);
+    if (isUpdate) {
+      bulkUpdates.add(table);
+    }
+    return batch.size() >= batchSize ? flush(table) : Status.BATCHED_OK;
+  }
+
+  /**
+   * Sends the pending writes of a collection with one bulkWrite. Its latency
+   * is measured as BULK_WRITE, as the writes in the batch only report
+   * BATCHED_OK.
+   */
+  private Status flush(String table) {
+    List<WriteModel<Document>> batch = bulkWrites.remove(table);
+    boolean ordered = bulkUpdates.remove(table);
+    if (batch == null || batch.isEmpty()) {
+      return Status.OK;
+    }
+    long start = System.nanoTime();
+    try {
+      database.getCollection(table).bulkWrite(batch,
+          ordered ? BULK_ORDERED : BULK_UNORDERED);
+      return Status.OK;
+    } catch (Exception e) {
+      System.err.println("Exception while trying bulk write with "
+          + batch.size());
+      e.printStackTrace();
+      return Status.ERROR;
+    } finally {
+      Measurements.getMeasurements().measure("BULK_WRITE",
+          (int) ((System.nanoTime() - start) / 1000));
+    }
+  }
+
+  /**
+   * Adds the values to the document. In graph mode the start and end node of
+   * an edge are stored as strings, so they can be matched with the ids of the
+   * nodes and indexed.
+   */
+  private static void putValues(String table, Document document,
+      Map<String, ByteIterator> values) {
+    boolean isEdge = graph && Edge.EDGE_IDENTIFIER.equals(table);
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      if (isEdge && (Edge.START_IDENTIFIER.equals(entry.getKey())
+          || Edge.END_IDENTIFIER.equals(entry.getKey()))) {
+        document.put(entry.getKey(), entry.getValue().toString());
+      } else {
+        document.put(entry.getKey(), entry.getValue().toArray());
+      }
+    }
+  }
+
   /**
    * Read a record from the database. Each field/value pair from the result will
    * be stored in a HashMap.
@@ -363,6 +467,10 @@ public class MongoDbClient extends DB {
   @Override
   public Status scan(String table, String startkey, int recordcount,
       Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    if (graph && Node.NODE_IDENTIFIER.equals(table)) {
+      return traverse(startkey, recordcount, fields, result);
+    }
+
     MongoCursor<Document> cursor = null;
     try {
       MongoCollection<Document> collection = database.getCollection(table);
@@ -434,11 +542,14 @@ public class MongoDbClient extends DB {
 
       Document query = new Document("_id", key);
       Document fieldsToSet = new Document();
-      for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-        fieldsToSet.put(entry.getKey(), entry.getValue().toArray());
-      }
+      putValues(table, fieldsToSet, values);
       Document update = new Document("$set", fieldsToSet);
 
+      if (batchUpdates && batchSize > 1) {
+        return addToBatch(table,
+            new UpdateOneModel<Document>(query, update), true);
+      }
+
       UpdateResult result = collection.updateOne(query, update);
       if (result.wasAcknowledged() && result.getMatchedCount() == 0) {
         System.err.println("Nothing updated for key " + key);
@@ -451,6 +562,86 @@ public class MongoDbClient extends DB {
     }
   }
 
+  /**
+   * Traverses the graph breadth first from the start node along the outgoing
+   * edges. The traversal is done by the server with a $graphLookup on the
+   * edges, which are then sorted by their depth and cut to recordcount before
+   * the reached nodes are looked up, so it takes one round trip however deep
+   * it goes and the server only returns the nodes that are needed.
+   *
+   * @return OK, or NOT_FOUND if the start node does not exist.
+   */
+  private Status traverse(String startkey, int recordcount,
+      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    MongoCursor<Document> cursor = null;
+    try {
+      Document graphLookup = new Document("from", Edge.EDGE_IDENTIFIER)
+          .append("startWith", "$_id")
+          .append("connectFromField", Edge.END_IDENTIFIER)
+          .append("connectToField", Edge.START_IDENTIFIER)
+          .append("as", "edges")
+          .append("depthField", "depth")
+          // the nodes further away than recordcount - 1 edges are not returned
+          .append("maxDepth", Math.max(recordcount - 2, 0));
+      Document lookup = new Document("from", Node.NODE_IDENTIFIER)
+          .append("localField", "edges." + Edge.END_IDENTIFIER)
+          .append("foreignField", "_id")
+          .append("as", "node");
+      // one document per edge, nearest first, which keeps the start node if
+      // it has no edges
+      List<Bson> pipeline = Arrays.<Bson>asList(
+          new Document("$match", new Document("_id", startkey)),
+          new Document("$graphLookup", graphLookup),
+          new Document("$unwind", new Document("path", "$edges")
+              .append("preserveNullAndEmptyArrays", true)),
+          new Document("$sort", new Document("edges.depth", 1)
+              .append("edges._id", 1)),
+          new Document("$limit", Math.max(recordcount, 1)),
+          new Document("$lookup", lookup),
+          new Document("$unwind", new Document("path", "$node")
+              .append("preserveNullAndEmptyArrays", true)));
+
+      cursor = database.getCollection(Node.NODE_IDENTIFIER)
+          .aggregate(pipeline).iterator();
+      if (!cursor.hasNext()) {
+        return Status.NOT_FOUND;
+      }
+
+      result.ensureCapacity(recordcount);
+      Set<String> ids = new HashSet<String>();
+      Document edge = cursor.next();
+      // every document carries the fields of the start node
+      ids.add(startkey);
+      addNode(result, edge, fields);
+      while (edge != null && result.size() < recordcount) {
+        Document node = edge.get("node", Document.class);
+        if (node != null && ids.add(node.getString("_id"))) {
+          addNode(result, node, fields);
+        }
+        edge = cursor.hasNext() ? cursor.next() : null;
+      }
+      return Status.OK;
+    } catch (Exception e) {
+      System.err.println(e.toString());
+      return Status.ERROR;
+    } finally {
+      if (cursor != null) {
+        cursor.close();
+      }
+    }
+  }
+
+  private void addNode(Vector<HashMap<String, ByteIterator>> result,
+      Document node, Set<String> fields) {
+    HashMap<String, ByteIterator> resultMap =
+        new HashMap<String, ByteIterator>();
+    fillMap(resultMap, node);
+    if (fields != null) {
+      resultMap.keySet().retainAll(fields);
+    }
+    result.add(resultMap);
+  }
+
   /**
    * Fills the map with the values from the DBObject.
    * 
@@ -464,6 +655,11 @@ public class MongoDbClient extends DB {
       if (entry.getValue() instanceof Binary) {
         resultMap.put(entry.getKey(),
             new ByteArrayByteIterator(((Binary) entry.getValue()).getData()));
+      } else if (entry.getValue() instanceof String
+          && !"_id".equals(entry.getKey())) {
+        // the start and end of the edges in graph mode
+        resultMap.put(entry.getKey(),
+            new StringByteIterator((String) entry.getValue()));
       }
     }
   }
@@ -16,13 +16,28 @@
  */
 package com.yahoo.ycsb.db;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assume.assumeNoException;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
 
 import org.junit.After;
+import org.junit.Test;
 
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
 
 /**
  * MongoDbClientTest provides runs the basic workload operations.
@@ -69,4 +84,91 @@ public class MongoDbClientTest extends AbstractDBTestCases {
     }
     return myClient;
   }
+
+  /**
+   * Test method for the bulk writes of inserts and updates.
+   */
+  @Test
+  public void testBatchedInsertsAndUpdates() {
+    Properties props = new Properties();
+    props.setProperty("batchsize", "2");
+    props.setProperty("mongodb.batchupdates", "true");
+    props.setProperty("mongodb.upsert", "true");
+    DB client = getDB(props);
+
+    final String table = getClass().getSimpleName();
+    Map<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    values.put("a", new ByteArrayByteIterator(new byte[] { 1 }));
+    assertThat(client.insert(table, "batch1", values), is(Status.BATCHED_OK));
+    assertThat(client.insert(table, "batch2", values), is(Status.OK));
+
+    values.put("a", new ByteArrayByteIterator(new byte[] { 2 }));
+    assertThat(client.update(table, "batch1", values), is(Status.BATCHED_OK));
+    assertThat(client.update(table, "batch2", values), is(Status.OK));
+    // the pending update is written by the clean up
+    assertThat(client.update(table, "batch1", values), is(Status.BATCHED_OK));
+    tearDown();
+
+    client = getDB();
+    Map<String, ByteIterator> read = new HashMap<String, ByteIterator>();
+    assertThat(client.read(table, "batch1", null, read), is(Status.OK));
+    assertThat(read.get("a").toArray()[0], is((byte) 2));
+  }
+
+  /**
+   * Test method for the traversal of the graph with $graphLookup.
+   */
+  @Test
+  public void testGraphTraversal() {
+    Properties props = new Properties();
+    props.setProperty("mongodb.graph", "true");
+    props.setProperty("mongodb.upsert", "true");
+    DB client = getDB(props);
+
+    // the tree 0 -> (1 -> (3, 4), 2 -> 5) and the single node 6
+    for (long i = 0; i <= 6; i++) {
+      Map<String, String> node = new HashMap<String, String>();
+      node.put(Node.ID_IDENTIFIER, String.valueOf(i));
+      node.put(Node.LABEL_IDENTIFIER, "Product");
+      node.put(Node.VALUE_IDENTIFIER, "value" + i);
+      assertThat(client.insert(Node.NODE_IDENTIFIER, String.valueOf(i),
+          StringByteIterator.getByteIteratorMap(node)), is(Status.OK));
+    }
+    long[][] tree = {{0, 1}, {0, 2}, {1, 3}, {1, 4}, {2, 5}};
+    for (int i = 0; i < tree.length; i++) {
+      Map<String, String> edge = new HashMap<String, String>();
+      edge.put(Edge.ID_IDENTIFIER, String.valueOf(i));
+      edge.put(Edge.LABEL_IDENTIFIER, "contains");
+      edge.put(Edge.START_IDENTIFIER, String.valueOf(tree[i][0]));
+      edge.put(Edge.END_IDENTIFIER, String.valueOf(tree[i][1]));
+      assertThat(client.insert(Edge.EDGE_IDENTIFIER, String.valueOf(i),
+          StringByteIterator.getByteIteratorMap(edge)), is(Status.OK));
+    }
+
+    Map<String, ByteIterator> read = new HashMap<String, ByteIterator>();
+    assertThat(client.read(Edge.EDGE_IDENTIFIER, "2", null, read), is(Status.OK));
+    assertThat(read.get(Edge.START_IDENTIFIER).toString(), is("1"));
+
+    assertThat(scan(client, "0", 10), is(ids("0", "1", "2", "3", "4", "5")));
+    assertThat(scan(client, "1", 10), is(ids("1", "3", "4")));
+    // breadth first, the children before the grandchildren
+    assertThat(scan(client, "0", 3), is(ids("0", "1", "2")));
+    assertThat(scan(client, "6", 10), is(ids("6")));
+  }
+
+  private static Set<String> scan(DB client, String start, int count) {
+    Vector<HashMap<String, ByteIterator>> result =
+        new Vector<HashMap<String, ByteIterator>>();
+    assertThat(client.scan(Node.NODE_IDENTIFIER, start, count, null, result),
+        is(Status.OK));
+    Set<String> ids = new HashSet<String>();
+    for (HashMap<String, ByteIterator> values : result) {
+      ids.add(values.get(Node.ID_IDENTIFIER).toString());
+    }
+    return ids;
+  }
+
+  private static Set<String> ids(String... ids) {
+    return new HashSet<String>(Arrays.asList(ids));
+  }
 }
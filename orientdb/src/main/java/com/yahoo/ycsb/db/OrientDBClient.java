@@ -58,6 +58,12 @@ public class OrientDBClient extends DB {
 
   private static final String STORAGE_TYPE_PROPERTY = "orientdb.remote.storagetype";
 
+  /**
+   * Whether the nodes and edges of the graph workload are stored as vertices and edges, see {@link OrientDBGraph}.
+   */
+  public static final String GRAPH_PROPERTY         = "orientdb.graph";
+  public static final String GRAPH_PROPERTY_DEFAULT = "false";
+
   private static final String ORIENTDB_DOCUMENT_TYPE = "document";
 
   private static final String CLASS = "usertable";
@@ -69,6 +75,7 @@ public class OrientDBClient extends DB {
   private static int     clientCounter = 0;
 
   private boolean isRemote = false;
+  private OrientDBGraph graph = null;
 
   private static final Logger LOG = LoggerFactory.getLogger(OrientDBClient.class);
 
@@ -84,6 +91,7 @@ public class OrientDBClient extends DB {
     String password = props.getProperty(PASSWORD_PROPERTY, PASSWORD_PROPERTY_DEFAULT);
     Boolean newdb = Boolean.parseBoolean(props.getProperty(NEWDB_PROPERTY, NEWDB_PROPERTY_DEFAULT));
     String remoteStorageType = props.getProperty(STORAGE_TYPE_PROPERTY);
+    boolean graphMode = Boolean.parseBoolean(props.getProperty(GRAPH_PROPERTY, GRAPH_PROPERTY_DEFAULT));
 
     INIT_LOCK.lock();
     try {
@@ -157,6 +165,10 @@ public class OrientDBClient extends DB {
           db.getMetadata().getSchema().createClass(CLASS);
         }
 
+        if (graphMode) {
+          OrientDBGraph.createSchema(db);
+        }
+
         db.close();
 
         if (databasePool == null) {
@@ -165,6 +177,10 @@ public class OrientDBClient extends DB {
 
         initialized = true;
       }
+
+      if (graphMode) {
+        graph = new OrientDBGraph(databasePool);
+      }
     } catch (Exception e) {
       LOG.error("Could not initialize OrientDB connection pool for Loader: " + e.toString());
       e.printStackTrace();
@@ -182,6 +198,10 @@ public class OrientDBClient extends DB {
   public void cleanup() throws DBException {
     INIT_LOCK.lock();
     try {
+      if (graph != null) {
+        graph.shutdown();
+        graph = null;
+      }
       clientCounter--;
       if (clientCounter == 0) {
         databasePool.close();
@@ -196,6 +216,14 @@ public class OrientDBClient extends DB {
 
   @Override
   public Status insert(String table, String key, Map<String, ByteIterator> values) {
+    if (graph != null && OrientDBGraph.isGraphTable(table)) {
+      try {
+        return graph.insert(table, key, values);
+      } catch (Exception e) {
+        e.printStackTrace();
+        return Status.ERROR;
+      }
+    }
     try (ODatabaseDocumentTx db = databasePool.acquire()) {
       final ODocument document = new ODocument(CLASS);
 
@@ -217,6 +245,16 @@ public class OrientDBClient extends DB {
   @Override
   public Status delete(String table, String key) {
     while (true) {
+      if (graph != null && OrientDBGraph.isGraphTable(table)) {
+        try {
+          return graph.delete(table, key);
+        } catch (OConcurrentModificationException cme) {
+          continue;
+        } catch (Exception e) {
+          e.printStackTrace();
+          return Status.ERROR;
+        }
+      }
       try (ODatabaseDocumentTx db = databasePool.acquire()) {
         final ODictionary<ORecord> dictionary = db.getMetadata().getIndexManager().getDictionary();
         dictionary.remove(key);
@@ -232,6 +270,14 @@ public class OrientDBClient extends DB {
 
   @Override
   public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    if (graph != null && OrientDBGraph.isGraphTable(table)) {
+      try {
+        return graph.read(table, key, fields, result);
+      } catch (Exception e) {
+        e.printStackTrace();
+        return Status.ERROR;
+      }
+    }
     try (ODatabaseDocumentTx db = databasePool.acquire()) {
       final ODictionary<ORecord> dictionary = db.getMetadata().getIndexManager().getDictionary();
       final ODocument document = dictionary.get(key);
@@ -256,6 +302,16 @@ public class OrientDBClient extends DB {
   @Override
   public Status update(String table, String key, Map<String, ByteIterator> values) {
     while (true) {
+      if (graph != null && OrientDBGraph.isGraphTable(table)) {
+        try {
+          return graph.update(table, key, values);
+        } catch (OConcurrentModificationException cme) {
+          continue;
+        } catch (Exception e) {
+          e.printStackTrace();
+          return Status.ERROR;
+        }
+      }
       try (ODatabaseDocumentTx db = databasePool.acquire()) {
         final ODictionary<ORecord> dictionary = db.getMetadata().getIndexManager().getDictionary();
         final ODocument document = dictionary.get(key);
@@ -286,6 +342,15 @@ public class OrientDBClient extends DB {
       return Status.NOT_IMPLEMENTED;
     }
 
+    if (graph != null && OrientDBGraph.isGraphTable(table)) {
+      try {
+        return graph.scan(table, startkey, recordcount, fields, result);
+      } catch (Exception e) {
+        e.printStackTrace();
+        return Status.ERROR;
+      }
+    }
+
     try (ODatabaseDocumentTx db = databasePool.acquire()) {
       final ODictionary<ORecord> dictionary = db.getMetadata().getIndexManager().getDictionary();
       final OIndexCursor entries = dictionary.getIndex().iterateEntriesMajor(startkey, true, true);
@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.orientechnologies.orient.core.db.OPartitionedDatabasePool;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.OIndexCursor;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.tinkerpop.blueprints.Parameter;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientEdge;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * Stores the graph of the {@code GraphWorkload} in OrientDB's graph model. The nodes are vertices of the vertex
+ * class {@code Node} and the edges are records of the edge class {@code Edge}, linked to their start and end
+ * vertex, so a node scan is a {@code TRAVERSE} along the links instead of a lookup per neighbour.
+ *
+ * <br>
+ * Both classes are indexed by the YCSB key. The workload writes an {@code id} and a {@code label} field, which
+ * are reserved property names in the Blueprints API: the standard element constraints are disabled for the
+ * {@code id}, and the {@code label} is stored under another name, as it cannot be a property of an edge at all.
+ */
+final class OrientDBGraph {
+
+  private static final String KEY_FIELD = "ycsb_key";
+  private static final String LABEL_FIELD = "ycsb_label";
+  private static final String NODE_INDEX = Node.NODE_IDENTIFIER + "." + KEY_FIELD;
+  private static final String EDGE_INDEX = Edge.EDGE_IDENTIFIER + "." + KEY_FIELD;
+
+  private final OrientGraphNoTx graph;
+
+  /**
+   * Opens a graph on a database of the pool, which it holds until {@link #shutdown()}.
+   */
+  OrientDBGraph(OPartitionedDatabasePool pool) {
+    graph = new OrientGraphNoTx(pool);
+    graph.setStandardElementConstraints(false);
+  }
+
+  /**
+   * Creates the vertex and edge class with their key index if they do not exist.
+   */
+  static void createSchema(ODatabaseDocumentTx db) {
+    // does not shut down the graph, it would close the database of the caller
+    OrientGraphNoTx schemaGraph = new OrientGraphNoTx(db);
+    if (schemaGraph.getVertexType(Node.NODE_IDENTIFIER) == null) {
+      schemaGraph.createVertexType(Node.NODE_IDENTIFIER);
+      schemaGraph.createKeyIndex(KEY_FIELD, Vertex.class, new Parameter<>("type", "UNIQUE"),
+          new Parameter<>("class", Node.NODE_IDENTIFIER));
+    }
+    if (schemaGraph.getEdgeType(Edge.EDGE_IDENTIFIER) == null) {
+      schemaGraph.createEdgeType(Edge.EDGE_IDENTIFIER);
+      schemaGraph.createKeyIndex(KEY_FIELD, com.tinkerpop.blueprints.Edge.class, new Parameter<>("type", "UNIQUE"),
+          new Parameter<>("class", Edge.EDGE_IDENTIFIER));
+    }
+  }
+
+  /**
+   * @return Whether the records of the table are stored as vertices or edges.
+   */
+  static boolean isGraphTable(String table) {
+    return Node.NODE_IDENTIFIER.equals(table) || Edge.EDGE_IDENTIFIER.equals(table);
+  }
+
+  void shutdown() {
+    graph.makeActive();
+    graph.shutdown();
+  }
+
+  Status insert(String table, String key, Map<String, ByteIterator> values) {
+    graph.makeActive();
+    Map<String, Object> properties = properties(values);
+    properties.put(KEY_FIELD, key);
+    if (Node.NODE_IDENTIFIER.equals(table)) {
+      graph.addVertex("class:" + Node.NODE_IDENTIFIER, properties);
+      return Status.OK;
+    }
+    return addEdge(properties);
+  }
+
+  Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    graph.makeActive();
+    ODocument document = find(table, key);
+    if (document == null) {
+      return Status.NOT_FOUND;
+    }
+    fields(document, fields, result);
+    return Status.OK;
+  }
+
+  Status update(String table, String key, Map<String, ByteIterator> values) {
+    graph.makeActive();
+    if (Node.NODE_IDENTIFIER.equals(table)) {
+      OrientVertex vertex = (OrientVertex) graph.getVertexByKey(NODE_INDEX, key);
+      if (vertex == null) {
+        return Status.NOT_FOUND;
+      }
+      vertex.setProperties(properties(values));
+      return Status.OK;
+    }
+
+    OrientEdge edge = edge(key);
+    if (edge == null) {
+      return Status.NOT_FOUND;
+    }
+    Map<String, Object> properties = properties(values);
+    if (moves(edge, properties, Edge.START_IDENTIFIER) || moves(edge, properties, Edge.END_IDENTIFIER)) {
+      // the links of an edge cannot be changed, it is replaced by an edge between the new vertices
+      Map<String, Object> replacement = new HashMap<>();
+      ODocument document = edge.getRecord();
+      for (String field : document.fieldNames()) {
+        Object value = document.field(field);
+        if (value instanceof String) {
+          replacement.put(field, value);
+        }
+      }
+      replacement.putAll(properties);
+      edge.remove();
+      return addEdge(replacement);
+    }
+    edge.setProperties(properties);
+    return Status.OK;
+  }
+
+  Status delete(String table, String key) {
+    graph.makeActive();
+    if (Node.NODE_IDENTIFIER.equals(table)) {
+      // also removes the edges of the vertex
+      Vertex vertex = graph.getVertexByKey(NODE_INDEX, key);
+      if (vertex == null) {
+        return Status.NOT_FOUND;
+      }
+      vertex.remove();
+      return Status.OK;
+    }
+
+    OrientEdge edge = edge(key);
+    if (edge == null) {
+      return Status.NOT_FOUND;
+    }
+    edge.remove();
+    return Status.OK;
+  }
+
+  /**
+   * Scans the nodes reachable from the start node breadth first, or the edges from the start key on in key
+   * order.
+   */
+  Status scan(String table, String startkey, int recordcount, Set<String> fields,
+      Vector<HashMap<String, ByteIterator>> result) {
+    graph.makeActive();
+    if (Node.NODE_IDENTIFIER.equals(table)) {
+      OrientVertex start = (OrientVertex) graph.getVertexByKey(NODE_INDEX, startkey);
+      if (start == null) {
+        return Status.NOT_FOUND;
+      }
+      List<OIdentifiable> vertices = graph.getRawGraph().command(new OCommandSQL("TRAVERSE out('"
+          + Edge.EDGE_IDENTIFIER + "') FROM " + start.getIdentity() + " LIMIT " + recordcount
+          + " STRATEGY BREADTH_FIRST")).execute();
+      for (OIdentifiable vertex : vertices) {
+        HashMap<String, ByteIterator> values = new HashMap<>();
+        fields((ODocument) vertex.getRecord(), fields, values);
+        result.add(values);
+      }
+      return Status.OK;
+    }
+
+    OIndexCursor entries = graph.getRawGraph().getMetadata().getIndexManager().getIndex(EDGE_INDEX)
+        .iterateEntriesMajor(startkey, true, true);
+    while (entries.hasNext() && result.size() < recordcount) {
+      HashMap<String, ByteIterator> values = new HashMap<>();
+      fields((ODocument) entries.next().getRecord(), fields, values);
+      result.add(values);
+    }
+    return Status.OK;
+  }
+
+  private Status addEdge(Map<String, Object> properties) {
+    OrientVertex start = (OrientVertex) graph.getVertexByKey(NODE_INDEX, properties.get(Edge.START_IDENTIFIER));
+    OrientVertex end = (OrientVertex) graph.getVertexByKey(NODE_INDEX, properties.get(Edge.END_IDENTIFIER));
+    if (start == null || end == null) {
+      return Status.NOT_FOUND;
+    }
+    start.addEdge(Edge.EDGE_IDENTIFIER, end, null, null, properties);
+    return Status.OK;
+  }
+
+  private OrientEdge edge(String key) {
+    Iterator<com.tinkerpop.blueprints.Edge> edges = graph.getEdges(EDGE_INDEX, key).iterator();
+    return edges.hasNext() ? (OrientEdge) edges.next() : null;
+  }
+
+  private ODocument find(String table, String key) {
+    if (Node.NODE_IDENTIFIER.equals(table)) {
+      OrientVertex vertex = (OrientVertex) graph.getVertexByKey(NODE_INDEX, key);
+      return vertex == null ? null : vertex.getRecord();
+    }
+    OrientEdge edge = edge(key);
+    return edge == null ? null : edge.getRecord();
+  }
+
+  private static boolean moves(OrientEdge edge, Map<String, Object> properties, String field) {
+    return properties.containsKey(field) && !properties.get(field).equals(edge.getRecord().field(field));
+  }
+
+  /**
+   * Converts the values of the workload to the properties of a vertex or edge.
+   */
+  private static Map<String, Object> properties(Map<String, ByteIterator> values) {
+    Map<String, Object> properties = new HashMap<>();
+    for (Map.Entry<String, String> entry : StringByteIterator.getStringMap(values).entrySet()) {
+      String field = entry.getKey();
+      properties.put(Edge.LABEL_IDENTIFIER.equals(field) ? LABEL_FIELD : field, entry.getValue());
+    }
+    return properties;
+  }
+
+  /**
+   * Copies the fields written by the workload from a vertex or edge, leaving out the key and the links.
+   */
+  private static void fields(ODocument document, Set<String> fields, Map<String, ByteIterator> result) {
+    for (String field : document.fieldNames()) {
+      Object value = document.field(field);
+      if (!(value instanceof String) || KEY_FIELD.equals(field)) {
+        continue;
+      }
+      String name = LABEL_FIELD.equals(field) ? Edge.LABEL_IDENTIFIER : field;
+      if (fields == null || fields.contains(name)) {
+        result.put(name, new StringByteIterator((String) value));
+      }
+    }
+  }
+}
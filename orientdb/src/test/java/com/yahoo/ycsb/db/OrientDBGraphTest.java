@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
+
+import org.junit.*;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the graph mode of the OrientDB client on an in-memory database.
+ */
+public class OrientDBGraphTest {
+  private static final String TEST_DB_URL = "memory:test";
+
+  private static OrientDBClient orientDBClient = null;
+
+  @Before
+  public void setup() throws DBException, IOException {
+    orientDBClient = new OrientDBClient();
+
+    Properties p = new Properties();
+    p.setProperty("orientdb.url", TEST_DB_URL);
+    p.setProperty(OrientDBClient.GRAPH_PROPERTY, "true");
+
+    orientDBClient.setProperties(p);
+    orientDBClient.init();
+
+    // the in-memory database outlives the client
+    try (ODatabaseDocumentTx db = orientDBClient.getDatabasePool().acquire()) {
+      OSchema schema = db.getMetadata().getSchema();
+      schema.getClass(Edge.EDGE_IDENTIFIER).truncate();
+      schema.getClass(Node.NODE_IDENTIFIER).truncate();
+    }
+  }
+
+  @After
+  public void teardown() throws DBException {
+    if (orientDBClient != null) {
+      orientDBClient.cleanup();
+    }
+  }
+
+  private static Map<String, ByteIterator> node(long id) {
+    Map<String, ByteIterator> values = new HashMap<>();
+    values.put(Node.ID_IDENTIFIER, new StringByteIterator(String.valueOf(id)));
+    values.put(Node.LABEL_IDENTIFIER, new StringByteIterator("Product"));
+    values.put(Node.VALUE_IDENTIFIER, new StringByteIterator("value" + id));
+    return values;
+  }
+
+  private static Map<String, ByteIterator> edge(long id, long start, long end) {
+    Map<String, ByteIterator> values = new HashMap<>();
+    values.put(Edge.ID_IDENTIFIER, new StringByteIterator(String.valueOf(id)));
+    values.put(Edge.LABEL_IDENTIFIER, new StringByteIterator("contains"));
+    values.put(Edge.START_IDENTIFIER, new StringByteIterator(String.valueOf(start)));
+    values.put(Edge.END_IDENTIFIER, new StringByteIterator(String.valueOf(end)));
+    return values;
+  }
+
+  /*
+      Inserts the tree 0 -> (1 -> (3, 4), 2 -> 5) and the single node 6.
+   */
+  private void insertTree() {
+    for (long i = 0; i <= 6; i++) {
+      assertEquals(Status.OK, orientDBClient.insert(Node.NODE_IDENTIFIER, String.valueOf(i), node(i)));
+    }
+    long[][] edges = {{0, 1}, {0, 2}, {1, 3}, {1, 4}, {2, 5}};
+    for (int i = 0; i < edges.length; i++) {
+      assertEquals(Status.OK,
+          orientDBClient.insert(Edge.EDGE_IDENTIFIER, String.valueOf(i), edge(i, edges[i][0], edges[i][1])));
+    }
+  }
+
+  private Set<String> scan(String start, int count) {
+    Vector<HashMap<String, ByteIterator>> result = new Vector<>();
+    assertEquals(Status.OK, orientDBClient.scan(Node.NODE_IDENTIFIER, start, count, null, result));
+    Set<String> ids = new HashSet<>();
+    for (HashMap<String, ByteIterator> values : result) {
+      ids.add(values.get(Node.ID_IDENTIFIER).toString());
+    }
+    return ids;
+  }
+
+  @Test
+  public void readAndUpdateTest() {
+    insertTree();
+
+    Map<String, ByteIterator> result = new HashMap<>();
+    assertEquals(Status.OK, orientDBClient.read(Node.NODE_IDENTIFIER, "3", null, result));
+    assertEquals(3, result.size());
+    assertEquals("value3", result.get(Node.VALUE_IDENTIFIER).toString());
+    assertEquals("Product", result.get(Node.LABEL_IDENTIFIER).toString());
+
+    Map<String, ByteIterator> update = new HashMap<>();
+    update.put(Node.VALUE_IDENTIFIER, new StringByteIterator("value42"));
+    assertEquals(Status.OK, orientDBClient.update(Node.NODE_IDENTIFIER, "3", update));
+    result.clear();
+    assertEquals(Status.OK, orientDBClient.read(Node.NODE_IDENTIFIER, "3",
+        Collections.singleton(Node.VALUE_IDENTIFIER), result));
+    assertEquals(1, result.size());
+    assertEquals("value42", result.get(Node.VALUE_IDENTIFIER).toString());
+
+    result.clear();
+    assertEquals(Status.OK, orientDBClient.read(Edge.EDGE_IDENTIFIER, "2", null, result));
+    assertEquals("contains", result.get(Edge.LABEL_IDENTIFIER).toString());
+    assertEquals("1", result.get(Edge.START_IDENTIFIER).toString());
+    assertEquals("3", result.get(Edge.END_IDENTIFIER).toString());
+
+    assertEquals(Status.NOT_FOUND, orientDBClient.read(Node.NODE_IDENTIFIER, "7", null, result));
+  }
+
+  @Test
+  public void scanTest() {
+    insertTree();
+
+    assertEquals(new HashSet<>(Arrays.asList("0", "1", "2", "3", "4", "5")), scan("0", 10));
+    assertEquals(new HashSet<>(Arrays.asList("1", "3", "4")), scan("1", 10));
+    // breadth first, the children before the grandchildren
+    assertEquals(new HashSet<>(Arrays.asList("0", "1", "2")), scan("0", 3));
+    assertEquals(new HashSet<>(Collections.singletonList("6")), scan("6", 10));
+
+    Vector<HashMap<String, ByteIterator>> edges = new Vector<>();
+    assertEquals(Status.OK, orientDBClient.scan(Edge.EDGE_IDENTIFIER, "1", 2, null, edges));
+    assertEquals(2, edges.size());
+    assertEquals("1", edges.get(0).get(Edge.ID_IDENTIFIER).toString());
+    assertEquals("2", edges.get(1).get(Edge.ID_IDENTIFIER).toString());
+  }
+
+  @Test
+  public void updateAndDeleteEdgeTest() {
+    insertTree();
+
+    assertEquals(Status.OK, orientDBClient.update(Edge.EDGE_IDENTIFIER, "3", edge(3, 6, 4)));
+    assertEquals(new HashSet<>(Arrays.asList("1", "3")), scan("1", 10));
+    assertEquals(new HashSet<>(Arrays.asList("6", "4")), scan("6", 10));
+
+    Map<String, ByteIterator> result = new HashMap<>();
+    assertEquals(Status.OK, orientDBClient.read(Edge.EDGE_IDENTIFIER, "3", null, result));
+    assertEquals("6", result.get(Edge.START_IDENTIFIER).toString());
+    assertEquals("contains", result.get(Edge.LABEL_IDENTIFIER).toString());
+
+    assertEquals(Status.OK, orientDBClient.delete(Edge.EDGE_IDENTIFIER, "1"));
+    assertEquals(new HashSet<>(Arrays.asList("0", "1", "3")), scan("0", 10));
+    assertEquals(Status.NOT_FOUND, orientDBClient.read(Edge.EDGE_IDENTIFIER, "1", null, result));
+
+    assertEquals(Status.OK, orientDBClient.delete(Node.NODE_IDENTIFIER, "1"));
+    assertEquals(new HashSet<>(Collections.singletonList("0")), scan("0", 10));
+  }
+}
@@ -19,6 +19,8 @@
 package com.yahoo.ycsb.postgrenosql;
 
 import com.yahoo.ycsb.*;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
 import org.json.simple.JSONObject;
 import org.postgresql.Driver;
 import org.postgresql.util.PGobject;
@@ -34,6 +36,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.util.*;
 
 /**
@@ -75,8 +79,20 @@ public class PostgreNoSQLDBClient extends DB {
   /** The field name prefix in the table. */
   public static final String COLUMN_NAME = "YCSB_VALUE";
 
+  /**
+   * Whether to store the graph of the GraphWorkload natively: edges get expression indexes on their start and end,
+   * node values are stored as bytea and scans of nodes traverse the graph.
+   */
+  public static final String GRAPH_MODE = "postgrenosql.graph";
+
+  /** The column storing the value of a node in graph mode. */
+  public static final String NODE_VALUE_COLUMN = "NODE_VALUE";
+
   private static final String DEFAULT_PROP = "";
 
+  private static boolean graph;
+  private static boolean graphSchemaCreated;
+
   /** Returns parsed boolean value from the properties if set, otherwise returns defaultVal. */
   private static boolean getBoolProperty(Properties props, String key, boolean defaultVal) {
     String valueStr = props.getProperty(key);
@@ -90,31 +106,99 @@ public class PostgreNoSQLDBClient extends DB {
   public void init() throws DBException {
     INIT_COUNT.incrementAndGet();
     synchronized (PostgreNoSQLDBClient.class) {
-      if (postgrenosqlDriver != null) {
-        return;
+      graph = getBoolProperty(getProperties(), GRAPH_MODE, false);
+      if (postgrenosqlDriver == null) {
+        Properties props = getProperties();
+        String urls = props.getProperty(CONNECTION_URL, DEFAULT_PROP);
+        String user = props.getProperty(CONNECTION_USER, DEFAULT_PROP);
+        String passwd = props.getProperty(CONNECTION_PASSWD, DEFAULT_PROP);
+        boolean autoCommit = getBoolProperty(props, JDBC_AUTO_COMMIT, true);
+
+        try {
+          Properties tmpProps = new Properties();
+          tmpProps.setProperty("user", user);
+          tmpProps.setProperty("password", passwd);
+
+          cachedStatements = new ConcurrentHashMap<>();
+
+          postgrenosqlDriver = new Driver();
+          connection = postgrenosqlDriver.connect(urls, tmpProps);
+          connection.setAutoCommit(autoCommit);
+
+        } catch (Exception e) {
+          LOG.error("Error during initialization: " + e);
+        }
       }
 
-      Properties props = getProperties();
-      String urls = props.getProperty(CONNECTION_URL, DEFAULT_PROP);
-      String user = props.getProperty(CONNECTION_USER, DEFAULT_PROP);
-      String passwd = props.getProperty(CONNECTION_PASSWD, DEFAULT_PROP);
-      boolean autoCommit = getBoolProperty(props, JDBC_AUTO_COMMIT, true);
+      if (graph && !graphSchemaCreated) {
+        try {
+          createGraphSchema();
+        } catch (SQLException e) {
+          LOG.error("Error creating the graph schema: " + e);
+        }
+      }
+    }
+  }
 
-      try {
-        Properties tmpProps = new Properties();
-        tmpProps.setProperty("user", user);
-        tmpProps.setProperty("password", passwd);
+  /**
+   * Creates the node and edge tables if they do not exist yet, and the expression indexes on the start and end of
+   * the edges, so following an edge does not scan the whole edge table.
+   */
+  private static void createGraphSchema() throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE IF NOT EXISTS " + Node.NODE_IDENTIFIER + " (" + PRIMARY_KEY
+          + " VARCHAR(255) PRIMARY KEY NOT NULL, " + COLUMN_NAME + " JSONB NOT NULL, " + NODE_VALUE_COLUMN + " BYTEA)");
+      statement.execute("CREATE TABLE IF NOT EXISTS " + Edge.EDGE_IDENTIFIER + " (" + PRIMARY_KEY
+          + " VARCHAR(255) PRIMARY KEY NOT NULL, " + COLUMN_NAME + " JSONB NOT NULL)");
+      for (String field : new String[]{Edge.START_IDENTIFIER, Edge.END_IDENTIFIER}) {
+        statement.execute("CREATE INDEX IF NOT EXISTS " + Edge.EDGE_IDENTIFIER + "_" + field + " ON "
+            + Edge.EDGE_IDENTIFIER + " ((" + COLUMN_NAME + "->>'" + field + "'))");
+      }
+    }
+    if (!connection.getAutoCommit()) {
+      connection.commit();
+    }
+    graphSchemaCreated = true;
+  }
+
+  /** Whether the table holds the nodes of the graph, with their values in a bytea column. */
+  private static boolean isGraphNode(String tableName) {
+    return graph && Node.NODE_IDENTIFIER.equals(tableName);
+  }
 
-        cachedStatements = new ConcurrentHashMap<>();
+  /** Returns the expression selecting a field of a record. */
+  private static String fieldColumn(String tableName, String field) {
+    if (isGraphNode(tableName) && field.equals(Node.VALUE_IDENTIFIER)) {
+      return NODE_VALUE_COLUMN;
+    }
+    return COLUMN_NAME + "->>'" + field + "'";
+  }
 
-        postgrenosqlDriver = new Driver();
-        connection = postgrenosqlDriver.connect(urls, tmpProps);
-        connection.setAutoCommit(autoCommit);
+  private static void putField(ResultSet resultSet, String tableName, String field, Map<String, ByteIterator> result)
+      throws SQLException {
+    if (isGraphNode(tableName) && field.equals(Node.VALUE_IDENTIFIER)) {
+      byte[] value = resultSet.getBytes(field);
+      if (value != null) {
+        result.put(field, new ByteArrayByteIterator(value));
+      }
+    } else {
+      result.put(field, new StringByteIterator(resultSet.getString(field)));
+    }
+  }
 
-      } catch (Exception e) {
-        LOG.error("Error during initialization: " + e);
+  /** Creates the JSONB document of a record. In graph mode, the value of a node is left out. */
+  private static PGobject createDocument(String tableName, Map<String, ByteIterator> values) throws SQLException {
+    JSONObject jsonObject = new JSONObject();
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      if (!isGraphNode(tableName) || !entry.getKey().equals(Node.VALUE_IDENTIFIER)) {
+        jsonObject.put(entry.getKey(), entry.getValue().toString());
       }
     }
+
+    PGobject object = new PGobject();
+    object.setType("jsonb");
+    object.setValue(jsonObject.toJSONString());
+    return object;
   }
 
   @Override
@@ -136,6 +220,9 @@ public class PostgreNoSQLDBClient extends DB {
 
   @Override
   public Status read(String tableName, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    if (fields == null && isGraphNode(tableName)) {
+      fields = Node.NODE_FIELDS_SET;
+    }
     try {
       StatementType type = new StatementType(StatementType.Type.READ, tableName, fields);
       PreparedStatement readStatement = cachedStatements.get(type);
@@ -158,8 +245,7 @@ public class PostgreNoSQLDBClient extends DB {
           }
         } else {
           for (String field : fields) {
-            String value = resultSet.getString(field);
-            result.put(field, new StringByteIterator(value));
+            putField(resultSet, tableName, field, result);
           }
         }
       }
@@ -175,6 +261,9 @@ public class PostgreNoSQLDBClient extends DB {
   @Override
   public Status scan(String tableName, String startKey, int recordcount, Set<String> fields,
                      Vector<HashMap<String, ByteIterator>> result) {
+    if (fields == null && isGraphNode(tableName)) {
+      fields = Node.NODE_FIELDS_SET;
+    }
     try {
       StatementType type = new StatementType(StatementType.Type.SCAN, tableName, fields);
       PreparedStatement scanStatement = cachedStatements.get(type);
@@ -188,8 +277,7 @@ public class PostgreNoSQLDBClient extends DB {
         if (result != null && fields != null) {
           HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
           for (String field : fields) {
-            String value = resultSet.getString(field);
-            values.put(field, new StringByteIterator(value));
+            putField(resultSet, tableName, field, values);
           }
 
           result.add(values);
@@ -213,18 +301,19 @@ public class PostgreNoSQLDBClient extends DB {
         updateStatement = createAndCacheUpdateStatement(type);
       }
 
-      JSONObject jsonObject = new JSONObject();
-      for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-        jsonObject.put(entry.getKey(), entry.getValue().toString());
+      updateStatement.setObject(1, createDocument(tableName, values));
+      if (isGraphNode(tableName)) {
+        ByteIterator value = values.get(Node.VALUE_IDENTIFIER);
+        if (value != null) {
+          updateStatement.setBytes(2, value.toArray());
+        } else {
+          updateStatement.setNull(2, Types.BINARY);
+        }
+        updateStatement.setString(3, key);
+      } else {
+        updateStatement.setString(2, key);
       }
 
-      PGobject object = new PGobject();
-      object.setType("jsonb");
-      object.setValue(jsonObject.toJSONString());
-
-      updateStatement.setObject(1, object);
-      updateStatement.setString(2, key);
-
       int result = updateStatement.executeUpdate();
       if (result == 1) {
         return Status.OK;
@@ -245,17 +334,16 @@ public class PostgreNoSQLDBClient extends DB {
         insertStatement = createAndCacheInsertStatement(type);
       }
 
-      JSONObject jsonObject = new JSONObject();
-      for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-        jsonObject.put(entry.getKey(), entry.getValue().toString());
-      }
-
-      PGobject object = new PGobject();
-      object.setType("jsonb");
-      object.setValue(jsonObject.toJSONString());
-
-      insertStatement.setObject(2, object);
+      insertStatement.setObject(2, createDocument(tableName, values));
       insertStatement.setString(1, key);
+      if (isGraphNode(tableName)) {
+        ByteIterator value = values.get(Node.VALUE_IDENTIFIER);
+        if (value != null) {
+          insertStatement.setBytes(3, value.toArray());
+        } else {
+          insertStatement.setNull(3, Types.BINARY);
+        }
+      }
 
       int result = insertStatement.executeUpdate();
       if (result == 1) {
@@ -308,7 +396,7 @@ public class PostgreNoSQLDBClient extends DB {
       read.append(", (jsonb_each_text(" + COLUMN_NAME + ")).*");
     } else {
       for (String field:readType.getFields()){
-        read.append(", " + COLUMN_NAME + "->>'" + field + "' AS " + field);
+        read.append(", " + fieldColumn(readType.getTableName(), field) + " AS " + field);
       }
     }
 
@@ -331,10 +419,13 @@ public class PostgreNoSQLDBClient extends DB {
   }
 
   private String createScanStatement(StatementType scanType){
+    if (isGraphNode(scanType.getTableName())) {
+      return createTraversalStatement(scanType);
+    }
     StringBuilder scan = new StringBuilder("SELECT " + PRIMARY_KEY + " AS " + PRIMARY_KEY);
     if (scanType.getFields() != null){
       for (String field:scanType.getFields()){
-        scan.append(", " + COLUMN_NAME + "->>'" + field + "' AS " + field);
+        scan.append(", " + fieldColumn(scanType.getTableName(), field) + " AS " + field);
       }
     }
     scan.append(" FROM " + scanType.getTableName());
@@ -348,6 +439,30 @@ public class PostgreNoSQLDBClient extends DB {
     return scan.toString();
   }
 
+  /**
+   * A scan of the nodes in graph mode is a breadth first traversal along the outgoing edges of the start node,
+   * with a recursive common table expression. Each step looks up the edges of the nodes found in the step before
+   * with the index on their start, and the traversal stops as soon as enough nodes were found.
+   */
+  private String createTraversalStatement(StatementType scanType){
+    String edgeStart = COLUMN_NAME + "->>'" + Edge.START_IDENTIFIER + "'";
+    String edgeEnd = COLUMN_NAME + "->>'" + Edge.END_IDENTIFIER + "'";
+    StringBuilder scan = new StringBuilder("WITH RECURSIVE subtree(id) AS (");
+    scan.append("SELECT CAST(? AS TEXT)");
+    scan.append(" UNION ");
+    scan.append("SELECT " + edgeEnd + " FROM subtree JOIN " + Edge.EDGE_IDENTIFIER + " ON " + edgeStart + " = id)");
+
+    scan.append(" SELECT " + PRIMARY_KEY + " AS " + PRIMARY_KEY);
+    for (String field:scanType.getFields()){
+      scan.append(", " + fieldColumn(scanType.getTableName(), field) + " AS " + field);
+    }
+    scan.append(" FROM (SELECT id FROM subtree LIMIT ?) AS nodes");
+    scan.append(" JOIN " + scanType.getTableName());
+    scan.append(" ON " + PRIMARY_KEY + " = id");
+
+    return scan.toString();
+  }
+
   public PreparedStatement createAndCacheUpdateStatement(StatementType updateType)
       throws SQLException{
     PreparedStatement updateStatement = connection.prepareStatement(createUpdateStatement(updateType));
@@ -364,6 +479,9 @@ public class PostgreNoSQLDBClient extends DB {
     update.append(" SET ");
     update.append(COLUMN_NAME + " = " + COLUMN_NAME);
     update.append(" || ? ");
+    if (isGraphNode(updateType.getTableName())) {
+      update.append(", " + NODE_VALUE_COLUMN + " = COALESCE(?, " + NODE_VALUE_COLUMN + ")");
+    }
     update.append(" WHERE ");
     update.append(PRIMARY_KEY);
     update.append(" = ?");
@@ -383,8 +501,13 @@ public class PostgreNoSQLDBClient extends DB {
   private String createInsertStatement(StatementType insertType){
     StringBuilder insert = new StringBuilder("INSERT INTO ");
     insert.append(insertType.getTableName());
-    insert.append(" (" + PRIMARY_KEY + "," + COLUMN_NAME + ")");
-    insert.append(" VALUES(?,?)");
+    if (isGraphNode(insertType.getTableName())) {
+      insert.append(" (" + PRIMARY_KEY + "," + COLUMN_NAME + "," + NODE_VALUE_COLUMN + ")");
+      insert.append(" VALUES(?,?,?)");
+    } else {
+      insert.append(" (" + PRIMARY_KEY + "," + COLUMN_NAME + ")");
+      insert.append(" VALUES(?,?)");
+    }
     return insert.toString();
   }
 
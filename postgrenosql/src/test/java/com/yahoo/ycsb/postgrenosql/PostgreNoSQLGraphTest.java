@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.postgrenosql;
+
+import com.yahoo.ycsb.*;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.postgresql.Driver;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNoException;
+
+/**
+ * Tests the graph mode of the PostgreNoSQL client. Skipped if PostgreSQL is not running.
+ */
+public class PostgreNoSQLGraphTest {
+  private static final String HOST_NAME = "localhost";
+  private static final int DEFAULT_PORT = 5432;
+  private static final String TEST_DB_URL = "jdbc:postgresql://" + HOST_NAME + ":" + DEFAULT_PORT + "/test";
+
+  private static PostgreNoSQLDBClient client = null;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    try (Socket socket = new Socket(HOST_NAME, DEFAULT_PORT)) {
+      socket.getLocalPort();
+    } catch (IOException connectFailed) {
+      assumeNoException("PostgreSQL is not running. Skipping tests.", connectFailed);
+    }
+
+    Properties props = new Properties();
+    props.setProperty(PostgreNoSQLDBClient.CONNECTION_URL, TEST_DB_URL);
+    props.setProperty(PostgreNoSQLDBClient.CONNECTION_USER, "postgres");
+    props.setProperty(PostgreNoSQLDBClient.CONNECTION_PASSWD, "postgres");
+    props.setProperty(PostgreNoSQLDBClient.GRAPH_MODE, "true");
+
+    client = new PostgreNoSQLDBClient();
+    client.setProperties(props);
+    client.init();
+
+    Properties connectionProps = new Properties();
+    connectionProps.setProperty("user", "postgres");
+    connectionProps.setProperty("password", "postgres");
+    try (Connection connection = new Driver().connect(TEST_DB_URL, connectionProps);
+         Statement statement = connection.createStatement()) {
+      statement.execute("TRUNCATE TABLE " + Node.NODE_IDENTIFIER);
+      statement.execute("TRUNCATE TABLE " + Edge.EDGE_IDENTIFIER);
+    } catch (SQLException e) {
+      assumeNoException("Database is not available. Skipping tests.", e);
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() throws DBException {
+    if (client != null) {
+      client.cleanup();
+    }
+  }
+
+  private static byte[] value(long id) {
+    byte[] value = new byte[16];
+    for (int i = 0; i < value.length; i++) {
+      // includes bytes that are not valid UTF-8
+      value[i] = (byte) (id * 31 + i * 17);
+    }
+    return value;
+  }
+
+  private static Map<String, ByteIterator> node(long id) {
+    Map<String, ByteIterator> values = new HashMap<>();
+    values.put(Node.ID_IDENTIFIER, new StringByteIterator(String.valueOf(id)));
+    values.put(Node.LABEL_IDENTIFIER, new StringByteIterator("Product"));
+    values.put(Node.VALUE_IDENTIFIER, new ByteArrayByteIterator(value(id)));
+    return values;
+  }
+
+  private static Map<String, ByteIterator> edge(long id, long start, long end) {
+    Map<String, ByteIterator> values = new HashMap<>();
+    values.put(Edge.ID_IDENTIFIER, new StringByteIterator(String.valueOf(id)));
+    values.put(Edge.LABEL_IDENTIFIER, new StringByteIterator("contains"));
+    values.put(Edge.START_IDENTIFIER, new StringByteIterator(String.valueOf(start)));
+    values.put(Edge.END_IDENTIFIER, new StringByteIterator(String.valueOf(end)));
+    return values;
+  }
+
+  @Test
+  public void graph() {
+    // the tree 0 -> (1 -> (3, 4), 2 -> 5) and the single node 6
+    for (long i = 0; i <= 6; i++) {
+      assertEquals(Status.OK, client.insert(Node.NODE_IDENTIFIER, String.valueOf(i), node(i)));
+    }
+    long[][] edges = {{0, 1}, {0, 2}, {1, 3}, {1, 4}, {2, 5}};
+    for (int i = 0; i < edges.length; i++) {
+      assertEquals(Status.OK,
+          client.insert(Edge.EDGE_IDENTIFIER, String.valueOf(i), edge(i, edges[i][0], edges[i][1])));
+    }
+
+    Map<String, ByteIterator> result = new HashMap<>();
+    assertEquals(Status.OK, client.read(Node.NODE_IDENTIFIER, "3", null, result));
+    assertArrayEquals(value(3), result.get(Node.VALUE_IDENTIFIER).toArray());
+    assertEquals("Product", result.get(Node.LABEL_IDENTIFIER).toString());
+
+    Map<String, ByteIterator> update = new HashMap<>();
+    update.put(Node.VALUE_IDENTIFIER, new ByteArrayByteIterator(value(42)));
+    assertEquals(Status.OK, client.update(Node.NODE_IDENTIFIER, "3", update));
+    result.clear();
+    assertEquals(Status.OK, client.read(Node.NODE_IDENTIFIER, "3", null, result));
+    assertArrayEquals(value(42), result.get(Node.VALUE_IDENTIFIER).toArray());
+    assertEquals("Product", result.get(Node.LABEL_IDENTIFIER).toString());
+
+    assertEquals(new HashSet<>(Arrays.asList("0", "1", "2", "3", "4", "5")), scan("0", 10));
+    assertEquals(new HashSet<>(Arrays.asList("1", "3", "4")), scan("1", 10));
+    assertEquals(new HashSet<>(Arrays.asList("0", "1", "2")), scan("0", 3));
+    assertEquals(new HashSet<>(Collections.singletonList("6")), scan("6", 10));
+  }
+
+  private static Set<String> scan(String start, int count) {
+    Vector<HashMap<String, ByteIterator>> result = new Vector<>();
+    assertEquals(Status.OK, client.scan(Node.NODE_IDENTIFIER, start, count, null, result));
+    Set<String> ids = new HashSet<>();
+    for (HashMap<String, ByteIterator> values : result) {
+      ids.add(values.get(Node.ID_IDENTIFIER).toString());
+    }
+    return ids;
+  }
+}
@@ -28,16 +28,20 @@ import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.Status;
-import com.yahoo.ycsb.StringByteIterator;
-import redis.clients.jedis.BasicCommands;
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
-import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.SafeEncoder;
 
-import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.HashSet;
@@ -54,15 +58,38 @@ import java.util.Vector;
  */
 public class RedisClient extends DB {
 
-  private JedisCommands jedis;
-
   public static final String HOST_PROPERTY = "redis.host";
   public static final String PORT_PROPERTY = "redis.port";
   public static final String PASSWORD_PROPERTY = "redis.password";
   public static final String CLUSTER_PROPERTY = "redis.cluster";
 
+  /**
+   * The number of writes sent in one pipeline. Writes are acknowledged with {@link Status#BATCHED_OK} until the
+   * pipeline is full, reads and scans send the pending writes first.
+   */
+  public static final String PIPELINE_DEPTH_PROPERTY = "redis.pipeline.depth";
+  public static final String PIPELINE_DEPTH_PROPERTY_DEFAULT = "1";
+
+  /**
+   * Whether all client threads share the connections of a pool instead of opening one connection each.
+   */
+  public static final String POOL_PROPERTY = "redis.pool";
+  public static final String POOL_SIZE_PROPERTY = "redis.pool.size";
+
   public static final String INDEX_KEY = "_indices";
 
+  /** The pool shared by all client threads if {@link #POOL_PROPERTY} is set, with the number of its users. */
+  private static JedisPool pool;
+  private static int poolReferences = 0;
+
+  private JedisCluster cluster;
+  private Jedis jedis;
+  private boolean pooled;
+
+  private int pipelineDepth;
+  private Pipeline pipeline;
+  private int pending = 0;
+
   public void init() throws DBException {
     Properties props = getProperties();
     int port;
@@ -74,28 +101,62 @@ public class RedisClient extends DB {
       port = Protocol.DEFAULT_PORT;
     }
     String host = props.getProperty(HOST_PROPERTY);
+    String password = props.getProperty(PASSWORD_PROPERTY);
+    pipelineDepth = Integer.parseInt(props.getProperty(PIPELINE_DEPTH_PROPERTY, PIPELINE_DEPTH_PROPERTY_DEFAULT));
+    pooled = Boolean.parseBoolean(props.getProperty(POOL_PROPERTY));
 
     boolean clusterEnabled = Boolean.parseBoolean(props.getProperty(CLUSTER_PROPERTY));
     if (clusterEnabled) {
+      // Jedis pools the connections to the cluster nodes itself, but does not pipeline.
       Set<HostAndPort> jedisClusterNodes = new HashSet<>();
       jedisClusterNodes.add(new HostAndPort(host, port));
-      jedis = new JedisCluster(jedisClusterNodes);
+      cluster = new JedisCluster(jedisClusterNodes);
+      if (password != null) {
+        cluster.auth(password);
+      }
+    } else if (pooled) {
+      synchronized (RedisClient.class) {
+        if (pool == null) {
+          GenericObjectPoolConfig config = new GenericObjectPoolConfig();
+          int size = Integer.parseInt(props.getProperty(POOL_SIZE_PROPERTY, props.getProperty("threadcount", "1")));
+          config.setMaxTotal(size);
+          config.setMaxIdle(size);
+          pool = new JedisPool(config, host == null ? Protocol.DEFAULT_HOST : host, port, Protocol.DEFAULT_TIMEOUT,
+              password);
+        }
+        poolReferences++;
+      }
     } else {
       jedis = new Jedis(host, port);
-      ((Jedis) jedis).connect();
-    }
-
-    String password = props.getProperty(PASSWORD_PROPERTY);
-    if (password != null) {
-      ((BasicCommands) jedis).auth(password);
+      jedis.connect();
+      if (password != null) {
+        jedis.auth(password);
+      }
     }
   }
 
   public void cleanup() throws DBException {
     try {
-      ((Closeable) jedis).close();
-    } catch (IOException e) {
-      throw new DBException("Closing connection failed.");
+      if (cluster != null) {
+        cluster.close();
+        return;
+      }
+      if (pending > 0 && sync() != Status.OK) {
+        throw new DBException("Writing the pending pipeline failed.");
+      }
+      if (pooled) {
+        release();
+        synchronized (RedisClient.class) {
+          if (--poolReferences == 0) {
+            pool.close();
+            pool = null;
+          }
+        }
+      } else {
+        jedis.close();
+      }
+    } catch (IOException | JedisException e) {
+      throw new DBException("Closing connection failed.", e);
     }
   }
 
@@ -109,67 +170,237 @@ public class RedisClient extends DB {
     return key.hashCode();
   }
 
+  /**
+   * Returns the connection of this client, taking one from the pool if needed. It is held until
+   * {@link #release()} while writes are pending in its pipeline.
+   */
+  private Jedis connection() {
+    if (jedis == null) {
+      jedis = pool.getResource();
+    }
+    return jedis;
+  }
+
+  private void release() {
+    if (pooled && pending == 0 && jedis != null) {
+      jedis.close();
+      jedis = null;
+    }
+  }
+
+  private Pipeline pipeline() {
+    if (pipeline == null) {
+      pipeline = connection().pipelined();
+    }
+    return pipeline;
+  }
+
+  /**
+   * Counts a write sent to the pipeline and sends the pipeline if it is full.
+   */
+  private Status pipelined() {
+    if (++pending < pipelineDepth) {
+      return Status.BATCHED_OK;
+    }
+    Status status = sync();
+    release();
+    return status;
+  }
+
+  /**
+   * Sends the pending commands and waits for their replies.
+   */
+  private Status sync() {
+    List<Object> replies = pipeline.syncAndReturnAll();
+    pipeline = null;
+    pending = 0;
+    for (Object reply : replies) {
+      if (reply instanceof Exception) {
+        return Status.ERROR;
+      }
+    }
+    return Status.OK;
+  }
+
   // XXX jedis.select(int index) to switch to `table`
 
   @Override
   public Status read(String table, String key, Set<String> fields,
       Map<String, ByteIterator> result) {
-    if (fields == null) {
-      StringByteIterator.putAllAsByteIterators(result, jedis.hgetAll(key));
-    } else {
-      String[] fieldArray =
-          (String[]) fields.toArray(new String[fields.size()]);
-      List<String> values = jedis.hmget(key, fieldArray);
-
-      Iterator<String> fieldIterator = fields.iterator();
-      Iterator<String> valueIterator = values.iterator();
+    if (cluster != null) {
+      if (fields == null) {
+        putAll(result, cluster.hgetAll(SafeEncoder.encode(key)));
+      } else {
+        putFields(result, fields, cluster.hmget(SafeEncoder.encode(key), encode(fields)));
+      }
+      return result.isEmpty() ? Status.ERROR : Status.OK;
+    }
 
-      while (fieldIterator.hasNext() && valueIterator.hasNext()) {
-        result.put(fieldIterator.next(),
-            new StringByteIterator(valueIterator.next()));
+    try {
+      if (pending > 0 && sync() != Status.OK) {
+        return Status.ERROR;
       }
-      assert !fieldIterator.hasNext() && !valueIterator.hasNext();
+      if (fields == null) {
+        putAll(result, connection().hgetAll(SafeEncoder.encode(key)));
+      } else {
+        putFields(result, fields, connection().hmget(SafeEncoder.encode(key), encode(fields)));
+      }
+    } finally {
+      release();
     }
     return result.isEmpty() ? Status.ERROR : Status.OK;
   }
 
+  /*
+   * The values are read and written as bytes, so they are neither corrupted nor
+   * paid for by converting them to and from Strings. Only the field names are
+   * encoded.
+   */
+  private static byte[][] encode(Set<String> fields) {
+    byte[][] encoded = new byte[fields.size()][];
+    int i = 0;
+    for (String field : fields) {
+      encoded[i++] = SafeEncoder.encode(field);
+    }
+    return encoded;
+  }
+
+  private static Map<byte[], byte[]> encode(Map<String, ByteIterator> values) {
+    Map<byte[], byte[]> encoded = new HashMap<>(values.size() * 2);
+    for (Map.Entry<String, ByteIterator> value : values.entrySet()) {
+      ByteIterator iterator = value.getValue();
+      byte[] bytes = new byte[(int) iterator.bytesLeft()];
+      // nextBuf may fill the buffer only partly
+      int offset = 0;
+      while (offset < bytes.length) {
+        offset = iterator.nextBuf(bytes, offset);
+      }
+      encoded.put(SafeEncoder.encode(value.getKey()), bytes);
+    }
+    return encoded;
+  }
+
+  private static void putAll(Map<String, ByteIterator> result, Map<byte[], byte[]> values) {
+    for (Map.Entry<byte[], byte[]> value : values.entrySet()) {
+      result.put(SafeEncoder.encode(value.getKey()), new ByteArrayByteIterator(value.getValue()));
+    }
+  }
+
+  private static void putFields(Map<String, ByteIterator> result, Set<String> fields, List<byte[]> values) {
+    Iterator<String> fieldIterator = fields.iterator();
+    Iterator<byte[]> valueIterator = values.iterator();
+
+    while (fieldIterator.hasNext() && valueIterator.hasNext()) {
+      byte[] value = valueIterator.next();
+      if (value != null) {
+        result.put(fieldIterator.next(), new ByteArrayByteIterator(value));
+      } else {
+        fieldIterator.next();
+      }
+    }
+    assert !fieldIterator.hasNext() && !valueIterator.hasNext();
+  }
+
   @Override
   public Status insert(String table, String key,
       Map<String, ByteIterator> values) {
-    if (jedis.hmset(key, StringByteIterator.getStringMap(values))
-        .equals("OK")) {
-      jedis.zadd(INDEX_KEY, hash(key), key);
-      return Status.OK;
+    if (cluster != null) {
+      if (cluster.hmset(SafeEncoder.encode(key), encode(values))
+          .equals("OK")) {
+        cluster.zadd(INDEX_KEY, hash(key), key);
+        return Status.OK;
+      }
+      return Status.ERROR;
     }
-    return Status.ERROR;
+
+    // the record and its index entry go out in one round trip
+    Pipeline p = pipeline();
+    p.hmset(SafeEncoder.encode(key), encode(values));
+    p.zadd(INDEX_KEY, hash(key), key);
+    return pipelined();
   }
 
   @Override
   public Status delete(String table, String key) {
-    return jedis.del(key) == 0 && jedis.zrem(INDEX_KEY, key) == 0 ? Status.ERROR
-        : Status.OK;
+    if (cluster != null) {
+      return cluster.del(key) == 0 && cluster.zrem(INDEX_KEY, key) == 0 ? Status.ERROR
+          : Status.OK;
+    }
+
+    Pipeline p = pipeline();
+    Response<Long> deleted = p.del(key);
+    Response<Long> removed = p.zrem(INDEX_KEY, key);
+    Status status = pipelined();
+    if (status == Status.OK && deleted.get() == 0 && removed.get() == 0) {
+      return Status.ERROR;
+    }
+    return status;
   }
 
   @Override
   public Status update(String table, String key,
       Map<String, ByteIterator> values) {
-    return jedis.hmset(key, StringByteIterator.getStringMap(values))
-        .equals("OK") ? Status.OK : Status.ERROR;
+    if (cluster != null) {
+      return cluster.hmset(SafeEncoder.encode(key), encode(values))
+          .equals("OK") ? Status.OK : Status.ERROR;
+    }
+
+    pipeline().hmset(SafeEncoder.encode(key), encode(values));
+    return pipelined();
   }
 
   @Override
   public Status scan(String table, String startkey, int recordcount,
       Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
-    Set<String> keys = jedis.zrangeByScore(INDEX_KEY, hash(startkey),
-        Double.POSITIVE_INFINITY, 0, recordcount);
+    if (cluster != null) {
+      Set<String> keys = cluster.zrangeByScore(INDEX_KEY, hash(startkey),
+          Double.POSITIVE_INFINITY, 0, recordcount);
 
-    HashMap<String, ByteIterator> values;
-    for (String key : keys) {
-      values = new HashMap<String, ByteIterator>();
-      read(table, key, fields, values);
-      result.add(values);
+      HashMap<String, ByteIterator> values;
+      for (String key : keys) {
+        values = new HashMap<String, ByteIterator>();
+        read(table, key, fields, values);
+        result.add(values);
+      }
+      return Status.OK;
     }
 
+    try {
+      if (pending > 0 && sync() != Status.OK) {
+        return Status.ERROR;
+      }
+      Set<String> keys = connection().zrangeByScore(INDEX_KEY, hash(startkey),
+          Double.POSITIVE_INFINITY, 0, recordcount);
+
+      // fetch all records in one round trip instead of one per key
+      byte[][] fieldArray = fields == null ? null : encode(fields);
+      Pipeline p = connection().pipelined();
+      List<Response<Map<byte[], byte[]>>> records = new ArrayList<>(keys.size());
+      List<Response<List<byte[]>>> recordFields = new ArrayList<>(keys.size());
+      for (String key : keys) {
+        if (fields == null) {
+          records.add(p.hgetAll(SafeEncoder.encode(key)));
+        } else {
+          recordFields.add(p.hmget(SafeEncoder.encode(key), fieldArray));
+        }
+      }
+      p.sync();
+
+      for (Response<Map<byte[], byte[]>> record : records) {
+        HashMap<String, ByteIterator> values = new HashMap<>();
+        putAll(values, record.get());
+        result.add(values);
+      }
+      for (Response<List<byte[]>> record : recordFields) {
+        HashMap<String, ByteIterator> values = new HashMap<>();
+        putFields(values, fields, record.get());
+        result.add(values);
+      }
+    } catch (JedisException e) {
+      return Status.ERROR;
+    } finally {
+      release();
+    }
     return Status.OK;
   }
 
@@ -19,17 +19,20 @@ package com.yahoo.ycsb.db.rocksdb;
 
 import com.yahoo.ycsb.*;
 import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
+import com.yahoo.ycsb.measurements.Measurements;
 import net.jcip.annotations.GuardedBy;
 import org.rocksdb.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -43,34 +46,110 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public class RocksDBClient extends DB {
 
   static final String PROPERTY_ROCKSDB_DIR = "rocksdb.dir";
+  static final String PROPERTY_ROCKSDB_LAYOUT = "rocksdb.layout";
+  static final String LAYOUT_RECORD = "record";
+  static final String LAYOUT_FIELD = "field";
+  static final String PROPERTY_ROCKSDB_OPTIONS_FILE = "rocksdb.optionsfile";
+  static final String PROPERTY_ROCKSDB_BLOCK_CACHE_SIZE = "rocksdb.blockcachesize";
+  static final String PROPERTY_ROCKSDB_BLOOM_BITS = "rocksdb.bloombits";
+  static final String PROPERTY_ROCKSDB_COMPRESSION = "rocksdb.compression";
+  static final String PROPERTY_ROCKSDB_DIRECT_IO = "rocksdb.directio";
+  static final String PROPERTY_ROCKSDB_BACKGROUND_THREADS = "rocksdb.backgroundthreads";
+  static final String PROPERTY_ROCKSDB_STATISTICS = "rocksdb.statistics";
+  static final String PROPERTY_ROCKSDB_GRAPH = "rocksdb.graph";
+  static final String ADJACENCY_COLUMN_FAMILY = "Adjacency";
+  static final String PROPERTY_ROCKSDB_BULK_LOAD = "rocksdb.bulkload";
+  static final String PROPERTY_ROCKSDB_BULK_LOAD_FILE_SIZE = "rocksdb.bulkload.filesize";
+  private static final String BULK_LOAD_FILE_SIZE_DEFAULT = String.valueOf(64 * 1024 * 1024);
+  private static final String BULK_LOAD_DIRNAME = "bulkload";
+  private static final long BLOCK_CACHE_SIZE_DEFAULT = 8 * 1024 * 1024;
+  private static final int READ_BUFFER_SIZE = 4096;
+  private static final int NODE_ID_LENGTH = 8;
+  private static final int ADJACENCY_BLOOM_BITS = 10;
   private static final String COLUMN_FAMILY_NAMES_FILENAME = "CF_NAMES";
+  private static final String STATUS_INTERVAL_PROPERTY = "status.interval";
+  private static final String STATUS_INTERVAL_DEFAULT = "10";
+
+  /**
+   * Separates the record key from the field name in the field layout. Sorts before every other byte, so the
+   * fields of a record are stored next to each other and before the records whose key it is a prefix of.
+   */
+  private static final byte FIELD_SEPARATOR = 0;
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RocksDBClient.class);
 
   @GuardedBy("RocksDBClient.class") private static Path rocksDbDir = null;
   @GuardedBy("RocksDBClient.class") private static RocksObject dbOptions = null;
+  @GuardedBy("RocksDBClient.class") private static Statistics statistics = null;
+  @GuardedBy("RocksDBClient.class") private static StatisticsThread statisticsThread = null;
+  @GuardedBy("RocksDBClient.class") private static Cache blockCache = null;
+  @GuardedBy("RocksDBClient.class") private static Map<String, ColumnFamilyOptions> optionsFileCfOptions = null;
   @GuardedBy("RocksDBClient.class") private static RocksDB rocksDb = null;
   @GuardedBy("RocksDBClient.class") private static int references = 0;
+  @GuardedBy("RocksDBClient.class") private static boolean fieldLayout = false;
+  @GuardedBy("RocksDBClient.class") private static boolean graph = false;
+  @GuardedBy("RocksDBClient.class") private static int bulkLoadClients = 0;
+  @GuardedBy("RocksDBClient.class") private static final Map<String, List<Path>> BULK_LOAD_RUNS = new HashMap<>();
 
   private static final ConcurrentMap<String, ColumnFamily> COLUMN_FAMILIES = new ConcurrentHashMap<>();
   private static final ConcurrentMap<String, Lock> COLUMN_FAMILY_LOCKS = new ConcurrentHashMap<>();
+  private static final AtomicInteger BULK_LOAD_FILE_COUNTER = new AtomicInteger();
+
+  /**
+   * Orders keys the way RocksDB's default bytewise comparator does.
+   */
+  private static final java.util.Comparator<byte[]> BYTEWISE_COMPARATOR = RocksDBClient::compareBytes;
+
+  /**
+   * Options and buffers of this client, reused across operations to avoid allocating them on every one.
+   * Each client thread has its own client instance.
+   */
+  private ReadOptions readOptions;
+  private WriteOptions writeOptions;
+  private ReadOptions prefixReadOptions;
+  private byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+
+  private boolean bulkLoad;
+  private long bulkLoadFileSize;
+  private final Map<String, BulkLoader> bulkLoaders = new HashMap<>();
 
   @Override
   public void init() throws DBException {
+    bulkLoad = Boolean.parseBoolean(getProperties().getProperty(PROPERTY_ROCKSDB_BULK_LOAD, "false"));
+    bulkLoadFileSize = Long.parseLong(getProperties().getProperty(PROPERTY_ROCKSDB_BULK_LOAD_FILE_SIZE,
+        BULK_LOAD_FILE_SIZE_DEFAULT));
+
     synchronized(RocksDBClient.class) {
       if(rocksDb == null) {
         rocksDbDir = Paths.get(getProperties().getProperty(PROPERTY_ROCKSDB_DIR));
         LOGGER.info("RocksDB data dir: " + rocksDbDir);
 
+        final String layout = getProperties().getProperty(PROPERTY_ROCKSDB_LAYOUT, LAYOUT_RECORD);
+        if(!layout.equals(LAYOUT_RECORD) && !layout.equals(LAYOUT_FIELD)) {
+          throw new DBException("Unknown " + PROPERTY_ROCKSDB_LAYOUT + ": " + layout);
+        }
+        fieldLayout = layout.equals(LAYOUT_FIELD);
+        graph = Boolean.parseBoolean(getProperties().getProperty(PROPERTY_ROCKSDB_GRAPH, "false"));
+        if(graph && fieldLayout) {
+          throw new DBException(PROPERTY_ROCKSDB_GRAPH + " requires the " + LAYOUT_RECORD + " layout");
+        }
+
         try {
           rocksDb = initRocksDB();
-        } catch (final IOException | RocksDBException e) {
+        } catch (final IOException | RocksDBException | IllegalArgumentException e) {
           throw new DBException(e);
         }
       }
 
       references++;
+      if(bulkLoad) {
+        bulkLoadClients++;
+      }
     }
+
+    readOptions = new ReadOptions();
+    writeOptions = new WriteOptions();
+    prefixReadOptions = new ReadOptions().setPrefixSameAsStart(true);
   }
 
   /**
@@ -85,13 +164,29 @@ public class RocksDBClient extends DB {
       Files.createDirectories(rocksDbDir);
     }
 
+    // the caches and options are created before the RocksDB class would load the library
+    RocksDB.loadLibrary();
+    final DBOptions options = newDBOptions();
+    dbOptions = options;
+
+    if(Boolean.parseBoolean(getProperties().getProperty(PROPERTY_ROCKSDB_STATISTICS, "false"))) {
+      statistics = new Statistics();
+      options.setStatistics(statistics);
+      statisticsThread = new StatisticsThread(statistics,
+          Integer.parseInt(getProperties().getProperty(STATUS_INTERVAL_PROPERTY, STATUS_INTERVAL_DEFAULT)),
+          Measurements.getMeasurements());
+      statisticsThread.start();
+    }
+
     final List<String> cfNames = loadColumnFamilyNames();
+    if(cfNames.isEmpty()) {
+      cfNames.add(new String(RocksDB.DEFAULT_COLUMN_FAMILY, UTF_8));
+    }
     final List<ColumnFamilyOptions> cfOptionss = new ArrayList<>();
     final List<ColumnFamilyDescriptor> cfDescriptors = new ArrayList<>();
 
     for(final String cfName : cfNames) {
-      final ColumnFamilyOptions cfOptions = new ColumnFamilyOptions()
-          .optimizeLevelStyleCompaction();
+      final ColumnFamilyOptions cfOptions = newColumnFamilyOptions(cfName);
       final ColumnFamilyDescriptor cfDescriptor = new ColumnFamilyDescriptor(
           cfName.getBytes(UTF_8),
           cfOptions
@@ -100,68 +195,180 @@ public class RocksDBClient extends DB {
       cfDescriptors.add(cfDescriptor);
     }
 
-    final int rocksThreads = Runtime.getRuntime().availableProcessors() * 2;
+    final List<ColumnFamilyHandle> cfHandles = new ArrayList<>();
+    final RocksDB db = RocksDB.open(options, rocksDbDir.toAbsolutePath().toString(), cfDescriptors, cfHandles);
+    for(int i = 0; i < cfNames.size(); i++) {
+      COLUMN_FAMILIES.put(cfNames.get(i), new ColumnFamily(cfHandles.get(i), cfOptionss.get(i)));
+    }
+    return db;
+  }
 
-    if(cfDescriptors.isEmpty()) {
-      final Options options = new Options()
-          .optimizeLevelStyleCompaction()
-          .setCreateIfMissing(true)
-          .setCreateMissingColumnFamilies(true)
-          .setIncreaseParallelism(rocksThreads)
-          .setMaxBackgroundCompactions(rocksThreads)
-          .setInfoLogLevel(InfoLogLevel.INFO_LEVEL);
-      dbOptions = options;
-      return RocksDB.open(options, rocksDbDir.toAbsolutePath().toString());
-    } else {
-      final DBOptions options = new DBOptions()
-          .setCreateIfMissing(true)
-          .setCreateMissingColumnFamilies(true)
-          .setIncreaseParallelism(rocksThreads)
-          .setMaxBackgroundCompactions(rocksThreads)
-          .setInfoLogLevel(InfoLogLevel.INFO_LEVEL);
-      dbOptions = options;
+  /**
+   * Creates the DB options, either from the OPTIONS file or from the binding's properties. The OPTIONS file is
+   * parsed once, its column family options are kept for {@link #newColumnFamilyOptions(String)}. Otherwise the
+   * block cache shared by all column families is created.
+   *
+   * Should only be called with a {@code synchronized(RocksDBClient.class)` block}.
+   */
+  private DBOptions newDBOptions() throws RocksDBException {
+    final String optionsFile = getProperties().getProperty(PROPERTY_ROCKSDB_OPTIONS_FILE);
+    if(optionsFile != null) {
+      final DBOptions options = new DBOptions();
+      final List<ColumnFamilyDescriptor> cfDescriptors = new ArrayList<>();
+      OptionsUtil.loadOptionsFromFile(optionsFile, Env.getDefault(), options, cfDescriptors);
+      optionsFileCfOptions = new HashMap<>();
+      for(final ColumnFamilyDescriptor cfDescriptor : cfDescriptors) {
+        optionsFileCfOptions.put(new String(cfDescriptor.columnFamilyName(), UTF_8),
+            cfDescriptor.columnFamilyOptions());
+      }
+      // RocksDB writes the directory of the database it came from as wal_dir, keep the WAL in rocksdb.dir instead
+      return options.setWalDir("").setCreateIfMissing(true).setCreateMissingColumnFamilies(true);
+    }
+
+    final String blockCacheSize = getProperties().getProperty(PROPERTY_ROCKSDB_BLOCK_CACHE_SIZE);
+    blockCache = new LRUCache(blockCacheSize != null ? Long.parseLong(blockCacheSize) : BLOCK_CACHE_SIZE_DEFAULT);
+
+    final int rocksThreads = Integer.parseInt(getProperties().getProperty(PROPERTY_ROCKSDB_BACKGROUND_THREADS,
+        String.valueOf(Runtime.getRuntime().availableProcessors() * 2)));
+    final boolean directIo = Boolean.parseBoolean(getProperties().getProperty(PROPERTY_ROCKSDB_DIRECT_IO, "false"));
+    return new DBOptions()
+        .setCreateIfMissing(true)
+        .setCreateMissingColumnFamilies(true)
+        .setIncreaseParallelism(rocksThreads)
+        .setMaxBackgroundCompactions(rocksThreads)
+        .setUseDirectReads(directIo)
+        .setUseDirectIoForFlushAndCompaction(directIo)
+        .setInfoLogLevel(InfoLogLevel.INFO_LEVEL);
+  }
 
-      final List<ColumnFamilyHandle> cfHandles = new ArrayList<>();
-      final RocksDB db = RocksDB.open(options, rocksDbDir.toAbsolutePath().toString(), cfDescriptors, cfHandles);
-      for(int i = 0; i < cfNames.size(); i++) {
-        COLUMN_FAMILIES.put(cfNames.get(i), new ColumnFamily(cfHandles.get(i), cfOptionss.get(i)));
+  /**
+   * Creates the options of a column family. With an OPTIONS file, these are a copy of the options given there for
+   * the column family, or for the default column family if it is not listed. Otherwise they are built from the
+   * binding's properties, with the block cache shared by all column families.
+   */
+  private ColumnFamilyOptions newColumnFamilyOptions(final String cfName) {
+    if(optionsFileCfOptions != null) {
+      ColumnFamilyOptions fileCfOptions = optionsFileCfOptions.get(cfName);
+      if(fileCfOptions == null) {
+        fileCfOptions = optionsFileCfOptions.get(new String(RocksDB.DEFAULT_COLUMN_FAMILY, UTF_8));
       }
-      return db;
+      final ColumnFamilyOptions cfOptions = fileCfOptions != null ? new ColumnFamilyOptions(fileCfOptions)
+          : new ColumnFamilyOptions().optimizeLevelStyleCompaction();
+      if(cfName.equals(ADJACENCY_COLUMN_FAMILY)) {
+        cfOptions.useFixedLengthPrefixExtractor(NODE_ID_LENGTH);
+      }
+      return cfOptions;
     }
+
+    final ColumnFamilyOptions cfOptions = new ColumnFamilyOptions().optimizeLevelStyleCompaction();
+
+    final String compression = getProperties().getProperty(PROPERTY_ROCKSDB_COMPRESSION);
+    if(compression != null) {
+      final List<CompressionType> compressionPerLevel = new ArrayList<>();
+      for(final String level : compression.split(",")) {
+        compressionPerLevel.add(parseCompressionType(level.trim()));
+      }
+      cfOptions.setCompressionPerLevel(compressionPerLevel);
+    }
+
+    final BlockBasedTableConfig tableConfig = new BlockBasedTableConfig().setBlockCache(blockCache);
+    int bloomBits = Integer.parseInt(getProperties().getProperty(PROPERTY_ROCKSDB_BLOOM_BITS, "0"));
+    if(cfName.equals(ADJACENCY_COLUMN_FAMILY)) {
+      // the edges of a node are read by a prefix iteration over its id, filter on that prefix only
+      cfOptions.useFixedLengthPrefixExtractor(NODE_ID_LENGTH);
+      tableConfig.setWholeKeyFiltering(false);
+      if(bloomBits <= 0) {
+        bloomBits = ADJACENCY_BLOOM_BITS;
+      }
+    }
+    if(bloomBits > 0) {
+      tableConfig.setFilter(new BloomFilter(bloomBits, false));
+    }
+    return cfOptions.setTableFormatConfig(tableConfig);
+  }
+
+  private static CompressionType parseCompressionType(final String name) {
+    if(name.equalsIgnoreCase("none")) {
+      return CompressionType.NO_COMPRESSION;
+    }
+    for(final CompressionType type : CompressionType.values()) {
+      if(name.equalsIgnoreCase(type.getLibraryName()) || name.equalsIgnoreCase(type.name())) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown compression type in " + PROPERTY_ROCKSDB_COMPRESSION + ": " + name);
   }
 
   @Override
   public void cleanup() throws DBException {
     super.cleanup();
 
+    readOptions.close();
+    writeOptions.close();
+    prefixReadOptions.close();
+
     synchronized (RocksDBClient.class) {
+      // the database is closed by the last client even if the bulk load fails
       try {
-        if (references == 1) {
-          for (final ColumnFamily cf : COLUMN_FAMILIES.values()) {
-            cf.getHandle().close();
+        if(bulkLoad) {
+          finishBulkLoad();
+        }
+      } catch(final RocksDBException | IOException e) {
+        throw new DBException(e);
+      } finally {
+        try {
+          if (references == 1) {
+            closeRocksDb();
           }
+        } catch (final IOException e) {
+          throw new DBException(e);
+        } finally {
+          references--;
+        }
+      }
+    }
+  }
 
-          rocksDb.close();
-          rocksDb = null;
+  @GuardedBy("RocksDBClient.class")
+  private void closeRocksDb() throws IOException {
+    for (final ColumnFamily cf : COLUMN_FAMILIES.values()) {
+      cf.getHandle().close();
+    }
 
-          dbOptions.close();
-          dbOptions = null;
+    rocksDb.close();
+    rocksDb = null;
 
-          for (final ColumnFamily cf : COLUMN_FAMILIES.values()) {
-            cf.getOptions().close();
-          }
-          saveColumnFamilyNames();
-          COLUMN_FAMILIES.clear();
+    dbOptions.close();
+    dbOptions = null;
 
-          rocksDbDir = null;
-        }
+    if (statistics != null) {
+      try {
+        statisticsThread.shutdown();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      statisticsThread = null;
+      statistics.close();
+      statistics = null;
+    }
 
-      } catch (final IOException e) {
-        throw new DBException(e);
-      } finally {
-        references--;
+    for (final ColumnFamily cf : COLUMN_FAMILIES.values()) {
+      cf.getOptions().close();
+    }
+    if (optionsFileCfOptions != null) {
+      for (final ColumnFamilyOptions cfOptions : optionsFileCfOptions.values()) {
+        cfOptions.close();
       }
+      optionsFileCfOptions = null;
     }
+    if (blockCache != null) {
+      blockCache.close();
+      blockCache = null;
+    }
+    saveColumnFamilyNames();
+    COLUMN_FAMILIES.clear();
+
+    rocksDbDir = null;
   }
 
   @Override
@@ -173,11 +380,30 @@ public class RocksDBClient extends DB {
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      final byte[] values = rocksDb.get(cf, key.getBytes(UTF_8));
-      if(values == null) {
+      if(fieldLayout) {
+        return readFields(cf, key, fields, result);
+      }
+      if(fields == null) {
+        final byte[] values = rocksDb.get(cf, readOptions, key.getBytes(UTF_8));
+        if(values == null) {
+          return Status.NOT_FOUND;
+        }
+        deserializeValues(values, values.length, null, result);
+        return Status.OK;
+      }
+
+      // only some fields are returned, so read into the reused buffer and copy just those
+      final byte[] keyBytes = key.getBytes(UTF_8);
+      int length = rocksDb.get(cf, readOptions, keyBytes, readBuffer);
+      // the value may grow again by a concurrent update before it is read into the larger buffer
+      while(length > readBuffer.length) {
+        readBuffer = new byte[length];
+        length = rocksDb.get(cf, readOptions, keyBytes, readBuffer);
+      }
+      if(length == RocksDB.NOT_FOUND) {
         return Status.NOT_FOUND;
       }
-      deserializeValues(values, fields, result);
+      deserializeValues(readBuffer, length, fields, result);
       return Status.OK;
     } catch(final RocksDBException e) {
       LOGGER.error(e.getMessage(), e);
@@ -194,12 +420,19 @@ public class RocksDBClient extends DB {
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      try(final RocksIterator iterator = rocksDb.newIterator(cf)) {
+      if(fieldLayout) {
+        return scanFields(cf, startkey, recordcount, fields, result);
+      }
+      if(graph && table.equals(Node.NODE_IDENTIFIER)) {
+        return scanSubtree(cf, startkey, recordcount, fields, result);
+      }
+      try(final RocksIterator iterator = rocksDb.newIterator(cf, readOptions)) {
         int iterations = 0;
         for (iterator.seek(startkey.getBytes(UTF_8)); iterator.isValid() && iterations < recordcount;
              iterator.next()) {
           final HashMap<String, ByteIterator> values = new HashMap<>();
-          deserializeValues(iterator.value(), fields, values);
+          final byte[] value = iterator.value();
+          deserializeValues(value, value.length, fields, values);
           result.add(values);
           iterations++;
         }
@@ -214,30 +447,42 @@ public class RocksDBClient extends DB {
 
   @Override
   public Status update(final String table, final String key, final Map<String, ByteIterator> values) {
-    //TODO(AR) consider if this would be faster with merge operator
-
     try {
       if (!COLUMN_FAMILIES.containsKey(table)) {
         createColumnFamily(table);
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
+      if(fieldLayout) {
+        // a blind write, the fields not being updated are stored under their own keys
+        writeFields(cf, key, values);
+        return Status.OK;
+      }
+
       final Map<String, ByteIterator> result = new HashMap<>();
-      final byte[] currentValues = rocksDb.get(cf, key.getBytes(UTF_8));
+      final byte[] keyBytes = key.getBytes(UTF_8);
+      final byte[] currentValues = rocksDb.get(cf, readOptions, keyBytes);
       if(currentValues == null) {
         return Status.NOT_FOUND;
       }
-      deserializeValues(currentValues, null, result);
+      deserializeValues(currentValues, currentValues.length, null, result);
+
+      if(graph && table.equals(Edge.EDGE_IDENTIFIER)) {
+        final byte[] oldAdjacencyKey = adjacencyKey(key, result);
+        result.putAll(readable(values));
+        writeEdge(cf, keyBytes, result, oldAdjacencyKey);
+        return Status.OK;
+      }
 
       //update
       result.putAll(values);
 
       //store
-      rocksDb.put(cf, key.getBytes(UTF_8), serializeValues(result));
+      rocksDb.put(cf, writeOptions, keyBytes, serializeValues(result));
 
       return Status.OK;
 
-    } catch(final RocksDBException | IOException e) {
+    } catch(final RocksDBException e) {
       LOGGER.error(e.getMessage(), e);
       return Status.ERROR;
     }
@@ -251,7 +496,30 @@ public class RocksDBClient extends DB {
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      rocksDb.put(cf, key.getBytes(UTF_8), serializeValues(values));
+      if(graph && table.equals(Edge.EDGE_IDENTIFIER)) {
+        final Map<String, ByteIterator> edge = readable(values);
+        if(bulkLoad) {
+          final byte[] adjacencyKey = adjacencyKey(key, edge);
+          if(adjacencyKey != null) {
+            final BulkLoader adjacency = bulkLoader(ADJACENCY_COLUMN_FAMILY);
+            adjacency.add(adjacencyKey, adjacencyValue(edge));
+            spillIfFull(adjacency);
+          }
+          addToBulkLoad(table, key, edge);
+          return Status.BATCHED_OK;
+        }
+        writeEdge(cf, key.getBytes(UTF_8), edge, null);
+        return Status.OK;
+      }
+      if(bulkLoad) {
+        addToBulkLoad(table, key, values);
+        return Status.BATCHED_OK;
+      }
+      if(fieldLayout) {
+        writeFields(cf, key, values);
+        return Status.OK;
+      }
+      rocksDb.put(cf, writeOptions, key.getBytes(UTF_8), serializeValues(values));
 
       return Status.OK;
     } catch(final RocksDBException | IOException e) {
@@ -268,7 +536,29 @@ public class RocksDBClient extends DB {
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      rocksDb.delete(cf, key.getBytes(UTF_8));
+      if(fieldLayout) {
+        final byte[] end = fieldKey(key, "");
+        end[end.length - 1] = FIELD_SEPARATOR + 1;
+        rocksDb.deleteRange(cf, writeOptions, fieldKey(key, ""), end);
+        return Status.OK;
+      }
+      if(graph && table.equals(Edge.EDGE_IDENTIFIER)) {
+        final byte[] keyBytes = key.getBytes(UTF_8);
+        final byte[] currentValues = rocksDb.get(cf, readOptions, keyBytes);
+        if(currentValues != null) {
+          final byte[] adjacencyKey = adjacencyKey(key,
+              deserializeValues(currentValues, currentValues.length, null, new HashMap<String, ByteIterator>()));
+          if(adjacencyKey != null) {
+            try(final WriteBatch batch = new WriteBatch()) {
+              batch.delete(cf, keyBytes);
+              batch.remove(adjacency(), adjacencyKey);
+              rocksDb.write(writeOptions, batch);
+            }
+            return Status.OK;
+          }
+        }
+      }
+      rocksDb.delete(cf, writeOptions, key.getBytes(UTF_8));
 
       return Status.OK;
     } catch(final RocksDBException e) {
@@ -277,11 +567,419 @@ public class RocksDBClient extends DB {
     }
   }
 
+  /**
+   * Reads a record stored in the field layout, where each field is a separate key-value pair.
+   */
+  private Status readFields(final ColumnFamilyHandle cf, final String key, final Set<String> fields,
+      final Map<String, ByteIterator> result) throws RocksDBException {
+    if(fields != null) {
+      for(final String field : fields) {
+        final byte[] value = rocksDb.get(cf, readOptions, fieldKey(key, field));
+        if(value != null) {
+          result.put(field, new ByteArrayByteIterator(value));
+        }
+      }
+      return result.isEmpty() ? Status.NOT_FOUND : Status.OK;
+    }
+
+    final byte[] prefix = fieldKey(key, "");
+    try(final RocksIterator iterator = rocksDb.newIterator(cf, readOptions)) {
+      for(iterator.seek(prefix); iterator.isValid(); iterator.next()) {
+        final byte[] fieldKey = iterator.key();
+        if(!startsWith(fieldKey, prefix)) {
+          break;
+        }
+        result.put(new String(fieldKey, prefix.length, fieldKey.length - prefix.length, UTF_8),
+            new ByteArrayByteIterator(iterator.value()));
+      }
+    }
+    return result.isEmpty() ? Status.NOT_FOUND : Status.OK;
+  }
+
+  /**
+   * Scans records stored in the field layout. The fields of each record are adjacent, so a record ends where
+   * the key before the separator changes.
+   */
+  private Status scanFields(final ColumnFamilyHandle cf, final String startkey, final int recordcount,
+      final Set<String> fields, final Vector<HashMap<String, ByteIterator>> result) {
+    try(final RocksIterator iterator = rocksDb.newIterator(cf, readOptions)) {
+      String currentKey = null;
+      HashMap<String, ByteIterator> values = null;
+      for(iterator.seek(fieldKey(startkey, "")); iterator.isValid(); iterator.next()) {
+        final byte[] fieldKey = iterator.key();
+        int separator = 0;
+        while(separator < fieldKey.length && fieldKey[separator] != FIELD_SEPARATOR) {
+          separator++;
+        }
+        if(separator == fieldKey.length) {
+          // not stored in the field layout
+          continue;
+        }
+        final String key = new String(fieldKey, 0, separator, UTF_8);
+        if(!key.equals(currentKey)) {
+          if(result.size() == recordcount) {
+            break;
+          }
+          currentKey = key;
+          values = new HashMap<>();
+          result.add(values);
+        }
+        final String field = new String(fieldKey, separator + 1, fieldKey.length - separator - 1, UTF_8);
+        if(fields == null || fields.contains(field)) {
+          values.put(field, new ByteArrayByteIterator(iterator.value()));
+        }
+      }
+    }
+    return Status.OK;
+  }
+
+  /**
+   * Writes the fields of a record in the field layout, atomically but without reading the record first.
+   */
+  private void writeFields(final ColumnFamilyHandle cf, final String key, final Map<String, ByteIterator> values)
+      throws RocksDBException {
+    try(final WriteBatch batch = new WriteBatch()) {
+      for(final Map.Entry<String, ByteIterator> value : values.entrySet()) {
+        batch.put(cf, fieldKey(key, value.getKey()), value.getValue().toArray());
+      }
+      rocksDb.write(writeOptions, batch);
+    }
+  }
+
+  /**
+   * Buffers a record inserted in bulk load mode. Once enough data is buffered it is spilled, sorted by key, to
+   * a run file which is merged into the database when the last bulk loading client is cleaned up.
+   */
+  private void addToBulkLoad(final String table, final String key, final Map<String, ByteIterator> values)
+      throws RocksDBException, IOException {
+    final BulkLoader loader = bulkLoader(table);
+
+    if(fieldLayout) {
+      for(final Map.Entry<String, ByteIterator> value : values.entrySet()) {
+        loader.add(fieldKey(key, value.getKey()), value.getValue().toArray());
+      }
+    } else {
+      loader.add(key.getBytes(UTF_8), serializeValues(values));
+    }
+
+    spillIfFull(loader);
+  }
+
+  /**
+   * Spills the records of a loader to a run file once they reach the bulk load file size.
+   */
+  private void spillIfFull(final BulkLoader loader) throws IOException {
+    if(loader.size >= bulkLoadFileSize) {
+      loader.writeRun();
+    }
+  }
+
+  private BulkLoader bulkLoader(final String table) {
+    BulkLoader loader = bulkLoaders.get(table);
+    if(loader == null) {
+      loader = new BulkLoader(table);
+      bulkLoaders.put(table, loader);
+    }
+    return loader;
+  }
+
+  /**
+   * Spills the records this client still buffers. The last bulk loading client then merges the runs of all
+   * clients and ingests them.
+   */
+  @GuardedBy("RocksDBClient.class")
+  private void finishBulkLoad() throws RocksDBException, IOException {
+    try {
+      for(final BulkLoader loader : bulkLoaders.values()) {
+        loader.writeRun();
+      }
+      bulkLoaders.clear();
+    } finally {
+      bulkLoadClients--;
+    }
+    if(bulkLoadClients == 0) {
+      ingestBulkLoadRuns();
+    }
+  }
+
+  /**
+   * Merges the sorted runs of each column family into SST files with disjoint key ranges and ingests them in a
+   * single call, so RocksDB can place them in the bottommost level instead of stacking them up in L0.
+   */
+  @GuardedBy("RocksDBClient.class")
+  private void ingestBulkLoadRuns() throws RocksDBException, IOException {
+    try(final IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions()) {
+      ingestOptions.setMoveFiles(true);
+      for(final Map.Entry<String, List<Path>> runs : BULK_LOAD_RUNS.entrySet()) {
+        if(!COLUMN_FAMILIES.containsKey(runs.getKey())) {
+          createColumnFamily(runs.getKey());
+        }
+        final List<String> files = new ArrayList<>();
+        try {
+          mergeRuns(runs.getValue(), files);
+          rocksDb.ingestExternalFile(COLUMN_FAMILIES.get(runs.getKey()).getHandle(), files, ingestOptions);
+        } finally {
+          for(final String file : files) {
+            Files.deleteIfExists(Paths.get(file));
+          }
+          for(final Path run : runs.getValue()) {
+            Files.deleteIfExists(run);
+          }
+        }
+      }
+    } finally {
+      BULK_LOAD_RUNS.clear();
+    }
+  }
+
+  /**
+   * Merges sorted runs into SST files of about {@code rocksdb.bulkload.filesize} bytes. Of the records with the
+   * same key the one from the latest run is kept.
+   */
+  private void mergeRuns(final List<Path> runs, final List<String> files) throws RocksDBException, IOException {
+    final PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()));
+    final List<RunReader> readers = new ArrayList<>(runs.size());
+    SstFileWriter writer = null;
+    try(final EnvOptions envOptions = new EnvOptions();
+        final Options options = new Options()) {
+      for(int i = 0; i < runs.size(); i++) {
+        final RunReader reader = new RunReader(runs.get(i), i);
+        readers.add(reader);
+        if(reader.next()) {
+          queue.add(reader);
+        }
+      }
+
+      byte[] lastKey = null;
+      long fileSize = 0;
+      while(!queue.isEmpty()) {
+        final RunReader reader = queue.poll();
+        if(lastKey == null || compareBytes(lastKey, reader.key) != 0) {
+          if(writer == null) {
+            final String file = newBulkLoadFile(".sst").toString();
+            files.add(file);
+            writer = new SstFileWriter(envOptions, options);
+            writer.open(file);
+          }
+          writer.put(reader.key, reader.value);
+          lastKey = reader.key;
+          fileSize += reader.key.length + reader.value.length;
+          if(fileSize >= bulkLoadFileSize) {
+            writer.finish();
+            writer.close();
+            writer = null;
+            fileSize = 0;
+          }
+        }
+        if(reader.next()) {
+          queue.add(reader);
+        }
+      }
+      if(writer != null) {
+        writer.finish();
+      }
+    } finally {
+      if(writer != null) {
+        writer.close();
+      }
+      for(final RunReader reader : readers) {
+        reader.close();
+      }
+    }
+  }
+
+  private static Path newBulkLoadFile(final String suffix) throws IOException {
+    final Path dir;
+    synchronized(RocksDBClient.class) {
+      dir = rocksDbDir.resolve(BULK_LOAD_DIRNAME);
+    }
+    Files.createDirectories(dir);
+    return dir.resolve(BULK_LOAD_FILE_COUNTER.incrementAndGet() + suffix);
+  }
+
+  private ColumnFamilyHandle adjacency() throws RocksDBException {
+    if(!COLUMN_FAMILIES.containsKey(ADJACENCY_COLUMN_FAMILY)) {
+      createColumnFamily(ADJACENCY_COLUMN_FAMILY);
+    }
+    return COLUMN_FAMILIES.get(ADJACENCY_COLUMN_FAMILY).getHandle();
+  }
+
+  /**
+   * Writes an edge record together with its entry in the adjacency column family, replacing the entry under
+   * {@code oldAdjacencyKey} if the edge moved.
+   */
+  private void writeEdge(final ColumnFamilyHandle cf, final byte[] key, final Map<String, ByteIterator> edge,
+      final byte[] oldAdjacencyKey) throws RocksDBException {
+    // serializing consumes the values, so look at them first
+    final byte[] adjacencyKey = adjacencyKey(new String(key, UTF_8), edge);
+    try(final WriteBatch batch = new WriteBatch()) {
+      if(oldAdjacencyKey != null && !Arrays.equals(oldAdjacencyKey, adjacencyKey)) {
+        batch.remove(adjacency(), oldAdjacencyKey);
+      }
+      if(adjacencyKey != null) {
+        batch.put(adjacency(), adjacencyKey, adjacencyValue(edge));
+      }
+      batch.put(cf, key, serializeValues(edge));
+      rocksDb.write(writeOptions, batch);
+    }
+  }
+
+  /**
+   * Reads the nodes reachable from {@code startkey} breadth first, following the outgoing edges of each node
+   * with a single prefix iteration over the adjacency column family.
+   */
+  private Status scanSubtree(final ColumnFamilyHandle cf, final String startkey, final int recordcount,
+      final Set<String> fields, final Vector<HashMap<String, ByteIterator>> result) throws RocksDBException {
+    final long startId;
+    try {
+      startId = Long.parseLong(startkey);
+    } catch(final NumberFormatException e) {
+      return Status.BAD_REQUEST;
+    }
+
+    final ColumnFamilyHandle adjacency = adjacency();
+    final Deque<Long> queue = new ArrayDeque<>();
+    final Set<Long> visited = new HashSet<>();
+    queue.add(startId);
+    visited.add(startId);
+
+    try(final RocksIterator iterator = rocksDb.newIterator(adjacency, prefixReadOptions)) {
+      while(!queue.isEmpty() && result.size() < recordcount) {
+        final long nodeId = queue.poll();
+        final byte[] values = rocksDb.get(cf, readOptions, String.valueOf(nodeId).getBytes(UTF_8));
+        if(values == null) {
+          continue;
+        }
+        final HashMap<String, ByteIterator> node = new HashMap<>();
+        deserializeValues(values, values.length, fields, node);
+        result.add(node);
+
+        final byte[] prefix = new byte[NODE_ID_LENGTH];
+        writeLong(prefix, 0, nodeId);
+        for(iterator.seek(prefix); iterator.isValid() && startsWith(iterator.key(), prefix); iterator.next()) {
+          final long endId = readLong(iterator.value(), 0);
+          if(visited.add(endId)) {
+            queue.add(endId);
+          }
+        }
+      }
+    }
+    return Status.OK;
+  }
+
+  /**
+   * @return The key of an edge in the adjacency column family: the start node id, the label, a separator and
+   * the edge id, so the edges of a node are adjacent and grouped by label. Null if the edge has no numeric
+   * start node and id.
+   */
+  private static byte[] adjacencyKey(final String key, final Map<String, ByteIterator> edge) {
+    final ByteIterator start = edge.get(Edge.START_IDENTIFIER);
+    final ByteIterator label = edge.get(Edge.LABEL_IDENTIFIER);
+    if(start == null || label == null) {
+      return null;
+    }
+    final long startId;
+    final long edgeId;
+    try {
+      startId = Long.parseLong(peek(start));
+      edgeId = Long.parseLong(key);
+    } catch(final NumberFormatException e) {
+      return null;
+    }
+    final byte[] labelBytes = peek(label).getBytes(UTF_8);
+
+    final byte[] adjacencyKey = new byte[NODE_ID_LENGTH + labelBytes.length + 1 + 8];
+    writeLong(adjacencyKey, 0, startId);
+    System.arraycopy(labelBytes, 0, adjacencyKey, NODE_ID_LENGTH, labelBytes.length);
+    adjacencyKey[NODE_ID_LENGTH + labelBytes.length] = FIELD_SEPARATOR;
+    writeLong(adjacencyKey, NODE_ID_LENGTH + labelBytes.length + 1, edgeId);
+    return adjacencyKey;
+  }
+
+  /**
+   * @return The end node id of the edge, stored as the value of its adjacency entry.
+   */
+  private static byte[] adjacencyValue(final Map<String, ByteIterator> edge) {
+    final byte[] value = new byte[8];
+    final ByteIterator end = edge.get(Edge.END_IDENTIFIER);
+    if(end != null) {
+      try {
+        writeLong(value, 0, Long.parseLong(peek(end)));
+      } catch(final NumberFormatException e) {
+        writeLong(value, 0, -1);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * @return The values backed by arrays, so they can be read with {@link #peek(ByteIterator)} before being
+   * stored.
+   */
+  private static Map<String, ByteIterator> readable(final Map<String, ByteIterator> values) {
+    final Map<String, ByteIterator> readable = new HashMap<>(values.size());
+    for(final Map.Entry<String, ByteIterator> value : values.entrySet()) {
+      readable.put(value.getKey(), new ByteArrayByteIterator(value.getValue().toArray()));
+    }
+    return readable;
+  }
+
+  private static String peek(final ByteIterator value) {
+    final String string = value.toString();
+    value.reset();
+    return string;
+  }
+
+  private static long readLong(final byte[] bytes, final int offset) {
+    return (long) readInt(bytes, offset) << 32 | readInt(bytes, offset + 4) & 0xffffffffL;
+  }
+
+  private static void writeLong(final byte[] bytes, final int offset, final long value) {
+    writeInt(bytes, offset, (int) (value >>> 32));
+    writeInt(bytes, offset + 4, (int) value);
+  }
+
+  private static byte[] fieldKey(final String key, final String field) {
+    final byte[] keyBytes = key.getBytes(UTF_8);
+    final byte[] fieldBytes = field.getBytes(UTF_8);
+    final byte[] fieldKey = new byte[keyBytes.length + 1 + fieldBytes.length];
+    System.arraycopy(keyBytes, 0, fieldKey, 0, keyBytes.length);
+    fieldKey[keyBytes.length] = FIELD_SEPARATOR;
+    System.arraycopy(fieldBytes, 0, fieldKey, keyBytes.length + 1, fieldBytes.length);
+    return fieldKey;
+  }
+
+  private static int compareBytes(final byte[] a, final byte[] b) {
+    final int len = Math.min(a.length, b.length);
+    for(int i = 0; i < len; i++) {
+      final int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+      if(cmp != 0) {
+        return cmp;
+      }
+    }
+    return a.length - b.length;
+  }
+
+  private static boolean startsWith(final byte[] bytes, final byte[] prefix) {
+    if(bytes.length < prefix.length) {
+      return false;
+    }
+    for(int i = 0; i < prefix.length; i++) {
+      if(bytes[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private void saveColumnFamilyNames() throws IOException {
     final Path file = rocksDbDir.resolve(COLUMN_FAMILY_NAMES_FILENAME);
     try(final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, UTF_8))) {
       writer.println(new String(RocksDB.DEFAULT_COLUMN_FAMILY, UTF_8));
       for(final String cfName : COLUMN_FAMILIES.keySet()) {
+        if(cfName.equals(new String(RocksDB.DEFAULT_COLUMN_FAMILY, UTF_8))) {
+          continue;
+        }
         writer.println(cfName);
       }
     }
@@ -302,29 +1000,27 @@ public class RocksDBClient extends DB {
     return cfNames;
   }
 
-  private Map<String, ByteIterator> deserializeValues(final byte[] values, final Set<String> fields,
-      final Map<String, ByteIterator> result) {
-    final ByteBuffer buf = ByteBuffer.allocate(4);
-
+  /**
+   * Deserializes the fields in the first {@code length} bytes of {@code values}. The returned iterators share
+   * {@code values} when all fields are returned, and copy the selected fields otherwise.
+   */
+  private Map<String, ByteIterator> deserializeValues(final byte[] values, final int length,
+      final Set<String> fields, final Map<String, ByteIterator> result) {
     int offset = 0;
-    while(offset < values.length) {
-      buf.put(values, offset, 4);
-      buf.flip();
-      final int keyLen = buf.getInt();
-      buf.clear();
+    while(offset < length) {
+      final int keyLen = readInt(values, offset);
       offset += 4;
 
-      final String key = new String(values, offset, keyLen);
+      final String key = new String(values, offset, keyLen, UTF_8);
       offset += keyLen;
 
-      buf.put(values, offset, 4);
-      buf.flip();
-      final int valueLen = buf.getInt();
-      buf.clear();
+      final int valueLen = readInt(values, offset);
       offset += 4;
 
-      if(fields == null || fields.contains(key)) {
+      if(fields == null) {
         result.put(key, new ByteArrayByteIterator(values, offset, valueLen));
+      } else if(fields.contains(key)) {
+        result.put(key, new ByteArrayByteIterator(Arrays.copyOfRange(values, offset, offset + valueLen)));
       }
 
       offset += valueLen;
@@ -333,28 +1029,50 @@ public class RocksDBClient extends DB {
     return result;
   }
 
-  private byte[] serializeValues(final Map<String, ByteIterator> values) throws IOException {
-    try(final ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-      final ByteBuffer buf = ByteBuffer.allocate(4);
-
-      for(final Map.Entry<String, ByteIterator> value : values.entrySet()) {
-        final byte[] keyBytes = value.getKey().getBytes(UTF_8);
-        final byte[] valueBytes = value.getValue().toArray();
-
-        buf.putInt(keyBytes.length);
-        baos.write(buf.array());
-        baos.write(keyBytes);
-
-        buf.clear();
+  /**
+   * Serializes the fields into an array of exactly the needed size, writing the values straight from their
+   * iterators.
+   */
+  private byte[] serializeValues(final Map<String, ByteIterator> values) {
+    final List<byte[]> keys = new ArrayList<>(values.size());
+    int size = 0;
+    for(final Map.Entry<String, ByteIterator> value : values.entrySet()) {
+      final byte[] keyBytes = value.getKey().getBytes(UTF_8);
+      keys.add(keyBytes);
+      size += 4 + keyBytes.length + 4 + (int) value.getValue().bytesLeft();
+    }
 
-        buf.putInt(valueBytes.length);
-        baos.write(buf.array());
-        baos.write(valueBytes);
+    final byte[] serialized = new byte[size];
+    int offset = 0;
+    int i = 0;
+    for(final ByteIterator value : values.values()) {
+      final byte[] keyBytes = keys.get(i++);
+      writeInt(serialized, offset, keyBytes.length);
+      offset += 4;
+      System.arraycopy(keyBytes, 0, serialized, offset, keyBytes.length);
+      offset += keyBytes.length;
 
-        buf.clear();
+      final int valueLen = (int) value.bytesLeft();
+      writeInt(serialized, offset, valueLen);
+      offset += 4;
+      final int end = offset + valueLen;
+      while(offset < end) {
+        offset = value.nextBuf(serialized, offset);
       }
-      return baos.toByteArray();
     }
+    return serialized;
+  }
+
+  private static int readInt(final byte[] bytes, final int offset) {
+    return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16
+        | (bytes[offset + 2] & 0xff) << 8 | (bytes[offset + 3] & 0xff);
+  }
+
+  private static void writeInt(final byte[] bytes, final int offset, final int value) {
+    bytes[offset] = (byte) (value >>> 24);
+    bytes[offset + 1] = (byte) (value >>> 16);
+    bytes[offset + 2] = (byte) (value >>> 8);
+    bytes[offset + 3] = (byte) value;
   }
 
   private void createColumnFamily(final String name) throws RocksDBException {
@@ -364,7 +1082,7 @@ public class RocksDBClient extends DB {
     l.lock();
     try {
       if(!COLUMN_FAMILIES.containsKey(name)) {
-        final ColumnFamilyOptions cfOptions = new ColumnFamilyOptions().optimizeLevelStyleCompaction();
+        final ColumnFamilyOptions cfOptions = newColumnFamilyOptions(name);
         final ColumnFamilyHandle cfHandle = rocksDb.createColumnFamily(
             new ColumnFamilyDescriptor(name.getBytes(UTF_8), cfOptions)
         );
@@ -375,6 +1093,93 @@ public class RocksDBClient extends DB {
     }
   }
 
+  /**
+   * The records of one column family buffered in bulk load mode.
+   */
+  private static final class BulkLoader {
+    private final String columnFamily;
+    private final TreeMap<byte[], byte[]> records = new TreeMap<>(BYTEWISE_COMPARATOR);
+    private long size = 0;
+
+    private BulkLoader(final String columnFamily) {
+      this.columnFamily = columnFamily;
+    }
+
+    private void add(final byte[] key, final byte[] value) {
+      records.put(key, value);
+      size += key.length + value.length;
+    }
+
+    /**
+     * Writes the buffered records in key order to a run file: the record count, then the length-prefixed key and
+     * value of each record.
+     */
+    private void writeRun() throws IOException {
+      if(records.isEmpty()) {
+        return;
+      }
+
+      final Path run = newBulkLoadFile(".run");
+      try(final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+        out.writeInt(records.size());
+        for(final Map.Entry<byte[], byte[]> record : records.entrySet()) {
+          out.writeInt(record.getKey().length);
+          out.write(record.getKey());
+          out.writeInt(record.getValue().length);
+          out.write(record.getValue());
+        }
+      }
+      synchronized(RocksDBClient.class) {
+        BULK_LOAD_RUNS.computeIfAbsent(columnFamily, k -> new ArrayList<>()).add(run);
+      }
+      records.clear();
+      size = 0;
+    }
+  }
+
+  /**
+   * Reads a run file written by {@link BulkLoader#writeRun()} one record at a time.
+   */
+  private static final class RunReader implements Closeable, Comparable<RunReader> {
+    private final DataInputStream in;
+    private final int index;
+    private int remaining;
+    private byte[] key;
+    private byte[] value;
+
+    private RunReader(final Path run, final int index) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+      this.index = index;
+      this.remaining = in.readInt();
+    }
+
+    private boolean next() throws IOException {
+      if(remaining == 0) {
+        return false;
+      }
+      key = new byte[in.readInt()];
+      in.readFully(key);
+      value = new byte[in.readInt()];
+      in.readFully(value);
+      remaining--;
+      return true;
+    }
+
+    /**
+     * Orders by the current key, and of equal keys the one of the later run first.
+     */
+    @Override
+    public int compareTo(final RunReader other) {
+      final int c = compareBytes(key, other.key);
+      return c != 0 ? c : Integer.compare(other.index, index);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
   private static final class ColumnFamily {
     private final ColumnFamilyHandle handle;
     private final ColumnFamilyOptions options;
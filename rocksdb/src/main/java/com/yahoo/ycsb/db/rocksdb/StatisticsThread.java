@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db.rocksdb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.rocksdb.HistogramData;
+import org.rocksdb.HistogramType;
+import org.rocksdb.Statistics;
+import org.rocksdb.TickerType;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the RocksDB statistics every status interval into YCSB's {@link Measurements}, so engine stalls can be
+ * lined up with the client latencies of the same interval in the status output.
+ *
+ * <br>
+ * The tickers are added to counters, e.g. the microseconds writes were stalled or the bytes compacted. The
+ * durations of compactions, flushes and write stalls are recorded as measurements like the operation latencies.
+ * RocksDB only exposes the count and sum of its histograms, so every event of an interval is recorded with the
+ * average duration of the events of that interval.
+ */
+final class StatisticsThread extends Thread {
+
+  /**
+   * The tickers added to the counter named {@code ROCKSDB_<ticker>}.
+   */
+  private enum Ticker {
+    STALL_MICROS(TickerType.STALL_MICROS),
+    BLOOM_FILTER_USEFUL(TickerType.BLOOM_FILTER_USEFUL),
+    BLOCK_CACHE_HIT(TickerType.BLOCK_CACHE_HIT),
+    BLOCK_CACHE_MISS(TickerType.BLOCK_CACHE_MISS),
+    BYTES_READ(TickerType.BYTES_READ),
+    BYTES_WRITTEN(TickerType.BYTES_WRITTEN),
+    COMPACT_READ_BYTES(TickerType.COMPACT_READ_BYTES),
+    COMPACT_WRITE_BYTES(TickerType.COMPACT_WRITE_BYTES);
+
+    private final TickerType type;
+    private final String counter;
+
+    Ticker(final TickerType type) {
+      this.type = type;
+      this.counter = "ROCKSDB_" + name();
+    }
+  }
+
+  /**
+   * The histograms of durations in microseconds recorded as the measurement named {@code ROCKSDB_<histogram>}.
+   */
+  private enum Histogram {
+    COMPACTION_TIME(HistogramType.COMPACTION_TIME),
+    FLUSH_TIME(HistogramType.FLUSH_TIME),
+    WRITE_STALL(HistogramType.WRITE_STALL);
+
+    private final HistogramType type;
+    private final String measurement;
+
+    Histogram(final HistogramType type) {
+      this.type = type;
+      this.measurement = "ROCKSDB_" + name();
+    }
+  }
+
+  private final Statistics statistics;
+  private final long intervalMs;
+  private final Measurements measurements;
+
+  private final long[] lastTickers = new long[Ticker.values().length];
+  private final long[] lastCounts = new long[Histogram.values().length];
+  private final long[] lastSums = new long[Histogram.values().length];
+
+  StatisticsThread(final Statistics statistics, final int intervalSeconds, final Measurements measurements) {
+    super("RocksDBStatistics");
+    setDaemon(true);
+    this.statistics = statistics;
+    this.intervalMs = TimeUnit.SECONDS.toMillis(intervalSeconds);
+    this.measurements = measurements;
+  }
+
+  @Override
+  public void run() {
+    while (!isInterrupted()) {
+      try {
+        Thread.sleep(intervalMs);
+      } catch (final InterruptedException e) {
+        break;
+      }
+      sample();
+    }
+  }
+
+  /**
+   * Stops sampling and records what happened since the last sample, e.g. the flush when the database is closed.
+   */
+  void shutdown() throws InterruptedException {
+    interrupt();
+    join();
+    sample();
+  }
+
+  private void sample() {
+    for (final Ticker ticker : Ticker.values()) {
+      final long value = statistics.getTickerCount(ticker.type);
+      measurements.count(ticker.counter, value - lastTickers[ticker.ordinal()]);
+      lastTickers[ticker.ordinal()] = value;
+    }
+
+    for (final Histogram histogram : Histogram.values()) {
+      final HistogramData data = statistics.getHistogramData(histogram.type);
+      final long count = data.getCount() - lastCounts[histogram.ordinal()];
+      final long sum = data.getSum() - lastSums[histogram.ordinal()];
+      if (count > 0) {
+        final int average = (int) Math.min(sum / count, Integer.MAX_VALUE);
+        for (long i = 0; i < count; i++) {
+          measurements.measure(histogram.measurement, average);
+        }
+      }
+      lastCounts[histogram.ordinal()] = data.getCount();
+      lastSums[histogram.ordinal()] = data.getSum();
+    }
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db.rocksdb;
+
+import java.util.Properties;
+
+/**
+ * Runs the {@link RocksDBClientTest} tests with every field stored under its own key.
+ */
+public class RocksDBClientFieldLayoutTest extends RocksDBClientTest {
+
+  @Override
+  protected void configure(final Properties properties) {
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_LAYOUT, RocksDBClient.LAYOUT_FIELD);
+  }
+}
@@ -17,7 +17,9 @@
 
 package com.yahoo.ycsb.db.rocksdb;
 
+import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.RandomByteIterator;
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
 import com.yahoo.ycsb.workloads.CoreWorkload;
@@ -26,6 +28,7 @@ import org.junit.rules.TemporaryFolder;
 
 import java.util.*;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class RocksDBClientTest {
@@ -50,6 +53,7 @@ public class RocksDBClientTest {
   }
 
   private RocksDBClient instance;
+  private Properties properties;
 
   @Before
   public void setup() throws Exception {
@@ -57,11 +61,16 @@ public class RocksDBClientTest {
 
     final Properties properties = new Properties();
     properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_DIR, tmpFolder.getRoot().getAbsolutePath());
+    configure(properties);
     instance.setProperties(properties);
+    this.properties = properties;
 
     instance.init();
   }
 
+  protected void configure(final Properties properties) {
+  }
+
   @After
   public void tearDown() throws Exception {
     instance.cleanup();
@@ -120,4 +129,123 @@ public class RocksDBClientTest {
     final Status result = instance.scan(MOCK_TABLE, MOCK_KEY3, NUM_RECORDS, fields, resultParam);
     assertEquals(Status.OK, result);
   }
+
+  private static Map<String, ByteIterator> mockData() {
+    final Map<String, ByteIterator> data = new HashMap<>(NUM_RECORDS);
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      data.put(FIELD_PREFIX + i, new StringByteIterator("value" + i));
+    }
+    return data;
+  }
+
+  @Test
+  public void insertPartialUpdateAndRead() throws Exception {
+    final Status insertResult = instance.insert(MOCK_TABLE, MOCK_KEY2, mockData());
+    assertEquals(Status.OK, insertResult);
+
+    final Map<String, ByteIterator> newValues = new HashMap<>();
+    newValues.put(FIELD_PREFIX + 1, new StringByteIterator("newvalue1"));
+    assertEquals(Status.OK, instance.update(MOCK_TABLE, MOCK_KEY2, newValues));
+
+    final Map<String, ByteIterator> resultParam = new HashMap<>(NUM_RECORDS);
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, MOCK_KEY2, null, resultParam));
+    assertEquals(NUM_RECORDS, resultParam.size());
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      assertEquals((i == 1 ? "newvalue" : "value") + i, resultParam.get(FIELD_PREFIX + i).toString());
+    }
+
+    final Map<String, ByteIterator> fieldResult = new HashMap<>();
+    final Set<String> fields = Collections.singleton(FIELD_PREFIX + 1);
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, MOCK_KEY2, fields, fieldResult));
+    assertEquals(1, fieldResult.size());
+    assertEquals("newvalue1", fieldResult.get(FIELD_PREFIX + 1).toString());
+  }
+
+  @Test
+  public void insertDeleteAndRead() throws Exception {
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, MOCK_KEY1, mockData()));
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, MOCK_KEY1 + MOCK_KEY0, mockData()));
+    assertEquals(Status.OK, instance.delete(MOCK_TABLE, MOCK_KEY1));
+
+    assertEquals(Status.NOT_FOUND, instance.read(MOCK_TABLE, MOCK_KEY1, null, new HashMap<String, ByteIterator>()));
+    assertEquals(Status.OK,
+        instance.read(MOCK_TABLE, MOCK_KEY1 + MOCK_KEY0, null, new HashMap<String, ByteIterator>()));
+  }
+
+  @Test
+  public void insertAndScanRecords() throws Exception {
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      assertEquals(Status.OK, instance.insert(MOCK_TABLE, "key" + i, mockData()));
+    }
+
+    final Vector<HashMap<String, ByteIterator>> resultParam = new Vector<>(NUM_RECORDS);
+    assertEquals(Status.OK, instance.scan(MOCK_TABLE, "key3", 4, null, resultParam));
+    assertEquals(4, resultParam.size());
+    for (final HashMap<String, ByteIterator> record : resultParam) {
+      assertEquals(NUM_RECORDS, record.size());
+      assertEquals("value0", record.get(FIELD_PREFIX + 0).toString());
+    }
+  }
+
+  @Test
+  public void bulkLoadAndRead() throws Exception {
+    final RocksDBClient loader = bulkLoader();
+    final RocksDBClient otherLoader = bulkLoader();
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals(Status.BATCHED_OK, (i % 2 == 0 ? loader : otherLoader).insert(MOCK_TABLE, "bulk" + i, mockData()));
+    }
+    // the later insert of a key wins over the earlier one
+    final Map<String, ByteIterator> overwrite = mockData();
+    overwrite.put(FIELD_PREFIX + 3, new StringByteIterator("overwritten"));
+    assertEquals(Status.BATCHED_OK, loader.insert(MOCK_TABLE, "bulk0", overwrite));
+
+    // nothing is visible before the last loader has ingested the files
+    loader.cleanup();
+    assertEquals(Status.NOT_FOUND, instance.read(MOCK_TABLE, "bulk0", null, new HashMap<String, ByteIterator>()));
+    otherLoader.cleanup();
+
+    for (int i = 0; i < 100; i++) {
+      final Map<String, ByteIterator> resultParam = new HashMap<>(NUM_RECORDS);
+      assertEquals(Status.OK, instance.read(MOCK_TABLE, "bulk" + i, null, resultParam));
+      assertEquals(NUM_RECORDS, resultParam.size());
+      assertEquals(i == 0 ? "overwritten" : "value3", resultParam.get(FIELD_PREFIX + 3).toString());
+    }
+  }
+
+  private RocksDBClient bulkLoader() throws Exception {
+    final RocksDBClient loader = new RocksDBClient();
+    final Properties loaderProperties = new Properties();
+    loaderProperties.putAll(properties);
+    loaderProperties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_BULK_LOAD, "true");
+    loaderProperties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_BULK_LOAD_FILE_SIZE, "1000");
+    loader.setProperties(loaderProperties);
+    loader.init();
+    return loader;
+  }
+
+  @Test
+  public void insertAndReadLargeFields() throws Exception {
+    final Map<String, ByteIterator> values = new HashMap<>();
+    final byte[] large = new byte[3000];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (byte) i;
+    }
+    values.put(FIELD_PREFIX + 0, new ByteArrayByteIterator(large));
+    values.put(FIELD_PREFIX + 1, new RandomByteIterator(3000));
+    values.put(FIELD_PREFIX + 2, new RandomByteIterator(7));
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, MOCK_KEY0, values));
+
+    // larger than the initial read buffer
+    final Map<String, ByteIterator> resultParam = new HashMap<>();
+    final Set<String> fields = new HashSet<>(Arrays.asList(FIELD_PREFIX + 0, FIELD_PREFIX + 2));
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, MOCK_KEY0, fields, resultParam));
+    assertEquals(2, resultParam.size());
+    assertArrayEquals(large, resultParam.get(FIELD_PREFIX + 0).toArray());
+    assertEquals(7, resultParam.get(FIELD_PREFIX + 2).toArray().length);
+
+    final Map<String, ByteIterator> allFields = new HashMap<>();
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, MOCK_KEY0, null, allFields));
+    assertEquals(3000, allFields.get(FIELD_PREFIX + 1).toArray().length);
+  }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db.rocksdb;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.generator.graph.Edge;
+import com.yahoo.ycsb.generator.graph.Node;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RocksDBGraphTest {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private RocksDBClient instance;
+  private Properties properties;
+
+  @Before
+  public void setup() throws Exception {
+    properties = new Properties();
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_DIR, tmpFolder.getRoot().getAbsolutePath());
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_GRAPH, "true");
+
+    instance = new RocksDBClient();
+    instance.setProperties(properties);
+    instance.init();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    instance.cleanup();
+  }
+
+  private static Map<String, ByteIterator> node(final long id) {
+    final Map<String, ByteIterator> values = new HashMap<>();
+    values.put(Node.ID_IDENTIFIER, new StringByteIterator(String.valueOf(id)));
+    values.put(Node.LABEL_IDENTIFIER, new StringByteIterator("Product"));
+    values.put(Node.VALUE_IDENTIFIER, new StringByteIterator("value" + id));
+    return values;
+  }
+
+  private static Map<String, ByteIterator> edge(final long id, final long start, final long end) {
+    final Map<String, ByteIterator> values = new HashMap<>();
+    values.put(Edge.ID_IDENTIFIER, new StringByteIterator(String.valueOf(id)));
+    values.put(Edge.LABEL_IDENTIFIER, new StringByteIterator("contains"));
+    values.put(Edge.START_IDENTIFIER, new StringByteIterator(String.valueOf(start)));
+    values.put(Edge.END_IDENTIFIER, new StringByteIterator(String.valueOf(end)));
+    return values;
+  }
+
+  /**
+   * Inserts the tree 0 -> (1 -> (3, 4), 2 -> 5) and the single node 6.
+   */
+  private static void insertTree(final RocksDBClient client) {
+    for (long i = 0; i <= 6; i++) {
+      assertTrue(client.insert(Node.NODE_IDENTIFIER, String.valueOf(i), node(i)).isOk());
+    }
+    final long[][] edges = {{0, 1}, {0, 2}, {1, 3}, {1, 4}, {2, 5}};
+    for (int i = 0; i < edges.length; i++) {
+      assertTrue(client.insert(Edge.EDGE_IDENTIFIER, String.valueOf(i), edge(i, edges[i][0], edges[i][1])).isOk());
+    }
+  }
+
+  private Set<String> scan(final String start, final int count) {
+    final Vector<HashMap<String, ByteIterator>> result = new Vector<>();
+    assertEquals(Status.OK, instance.scan(Node.NODE_IDENTIFIER, start, count, null, result));
+    final Set<String> ids = new HashSet<>();
+    for (final HashMap<String, ByteIterator> values : result) {
+      ids.add(values.get(Node.ID_IDENTIFIER).toString());
+    }
+    return ids;
+  }
+
+  private static Set<String> ids(final String... ids) {
+    final Set<String> set = new HashSet<>();
+    for (final String id : ids) {
+      set.add(id);
+    }
+    return set;
+  }
+
+  @Test
+  public void scanTraversesSubtree() throws Exception {
+    insertTree(instance);
+
+    assertEquals(ids("0", "1", "2", "3", "4", "5"), scan("0", 10));
+    assertEquals(ids("1", "3", "4"), scan("1", 10));
+    // breadth first, the children before the grandchildren
+    assertEquals(ids("0", "1", "2"), scan("0", 3));
+    assertEquals(ids("6"), scan("6", 10));
+  }
+
+  @Test
+  public void updateAndDeleteMoveAdjacency() throws Exception {
+    insertTree(instance);
+
+    assertEquals(Status.OK, instance.update(Edge.EDGE_IDENTIFIER, "3", edge(3, 6, 4)));
+    assertEquals(ids("1", "3"), scan("1", 10));
+    assertEquals(ids("6", "4"), scan("6", 10));
+
+    final Map<String, ByteIterator> result = new HashMap<>();
+    assertEquals(Status.OK, instance.read(Edge.EDGE_IDENTIFIER, "3", null, result));
+    assertEquals("6", result.get(Edge.START_IDENTIFIER).toString());
+
+    assertEquals(Status.OK, instance.delete(Edge.EDGE_IDENTIFIER, "1"));
+    assertEquals(ids("0", "1", "3"), scan("0", 10));
+  }
+
+  @Test
+  public void bulkLoadedAdjacency() throws Exception {
+    final Properties loaderProperties = new Properties();
+    loaderProperties.putAll(properties);
+    loaderProperties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_BULK_LOAD, "true");
+    // every edge and adjacency entry is spilled to a run of its own and merged
+    loaderProperties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_BULK_LOAD_FILE_SIZE, "1");
+    final RocksDBClient loader = new RocksDBClient();
+    loader.setProperties(loaderProperties);
+    loader.init();
+    insertTree(loader);
+    loader.cleanup();
+
+    assertEquals(ids("0", "1", "2", "3", "4", "5"), scan("0", 10));
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db.rocksdb;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rocksdb.Env;
+import org.rocksdb.FlushOptions;
+import org.rocksdb.Options;
+import org.rocksdb.OptionsUtil;
+import org.rocksdb.RocksDB;
+import org.rocksdb.Statistics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RocksDBOptionsTest {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private static final String MOCK_TABLE = "ycsb";
+
+  private static RocksDBClient open(final Properties properties) throws DBException {
+    final RocksDBClient instance = new RocksDBClient();
+    instance.setProperties(properties);
+    instance.init();
+    return instance;
+  }
+
+  private static void insertAndRead(final RocksDBClient instance) {
+    final Map<String, ByteIterator> values = new HashMap<>();
+    values.put("field0", new StringByteIterator("value0"));
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, "key0", values));
+
+    final Map<String, ByteIterator> result = new HashMap<>();
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, "key0", null, result));
+    assertEquals("value0", result.get("field0").toString());
+  }
+
+  @Test
+  public void configuredOptionsAndStatistics() throws Exception {
+    Measurements.setProperties(new Properties());
+
+    final Properties properties = new Properties();
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_DIR, tmpFolder.getRoot().getAbsolutePath());
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_BLOCK_CACHE_SIZE, String.valueOf(16 * 1024 * 1024));
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_BLOOM_BITS, "10");
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_COMPRESSION, "none,none,snappy");
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_BACKGROUND_THREADS, "2");
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_STATISTICS, "true");
+
+    final RocksDBClient instance = open(properties);
+    insertAndRead(instance);
+    instance.cleanup();
+
+    // the tickers are sampled into counters shown in the status output
+    final String summary = Measurements.getMeasurements().getSummary();
+    assertTrue(summary, summary.contains("[ROCKSDB_BYTES_WRITTEN: Total="));
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    Measurements.getMeasurements().exportMeasurements(exporter);
+    exporter.close();
+    final String exported = out.toString("UTF-8");
+    assertTrue(exported, exported.contains("[ROCKSDB_BYTES_WRITTEN], Total, "));
+    assertTrue(exported, exported.contains("[ROCKSDB_STALL_MICROS], Total, 0"));
+    assertTrue(exported, exported.contains("[ROCKSDB_BLOCK_CACHE_MISS], Total, "));
+  }
+
+  @Test
+  public void statisticsHistogramsAreMeasured() throws Exception {
+    final Measurements measurements = Measurements.getMeasurements();
+    measurements.reset();
+    try (final Statistics statistics = new Statistics();
+         final Options options = new Options().setCreateIfMissing(true).setStatistics(statistics);
+         final RocksDB db = RocksDB.open(options, tmpFolder.getRoot().getAbsolutePath());
+         final FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
+      final StatisticsThread thread = new StatisticsThread(statistics, 3600, measurements);
+      thread.start();
+      db.put("key0".getBytes(UTF_8), "value0".getBytes(UTF_8));
+      db.flush(flushOptions);
+      thread.shutdown();
+    }
+
+    final String summary = measurements.getSummary();
+    assertTrue(summary, summary.contains("[ROCKSDB_FLUSH_TIME: Count=1,"));
+    assertTrue(summary, summary.contains("[ROCKSDB_BYTES_WRITTEN: Total="));
+  }
+
+  @Test(expected = DBException.class)
+  public void unknownCompression() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_DIR, tmpFolder.getRoot().getAbsolutePath());
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_COMPRESSION, "none,foo");
+    open(properties);
+  }
+
+  @Test
+  public void optionsFile() throws Exception {
+    // RocksDB writes the options it was opened with to an OPTIONS file in its directory
+    final File first = tmpFolder.newFolder();
+    final Properties properties = new Properties();
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_DIR, first.getAbsolutePath());
+    open(properties).cleanup();
+    final String optionsFile = OptionsUtil.getLatestOptionsFileName(first.getAbsolutePath(), Env.getDefault());
+
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_DIR, tmpFolder.newFolder().getAbsolutePath());
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_OPTIONS_FILE,
+        new File(first, optionsFile).getAbsolutePath());
+    final RocksDBClient instance = open(properties);
+    insertAndRead(instance);
+    instance.cleanup();
+  }
+}
@@ -25,6 +25,10 @@ import java.util.Vector;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.net.*;
 
@@ -38,7 +42,13 @@ import com.yahoo.ycsb.Status;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.*;
 import com.amazonaws.auth.*;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
 import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.GetObjectRequest;
@@ -71,12 +81,21 @@ import com.amazonaws.services.s3.model.PutObjectRequest;
  * The name of the file is determined by the parameter key.
  *This key is automatically generated by YCSB.
  *
+ * Objects of at least s3.multipartThreshold bytes are uploaded in parts of
+ * s3.partSize bytes, sent in parallel by s3.uploadThreads threads. Range
+ * reads fetch only a part of the object with a ranged GET.
+ *
  */
 public class S3Client extends DB {
 
+  private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
   private static AmazonS3Client s3Client;
   private static String sse;
   private static SSECustomerKey ssecKey;
+  private static long multipartThreshold;
+  private static int partSize;
+  private static ExecutorService uploadExecutor;
   private static final AtomicInteger INIT_COUNT = new AtomicInteger(0);
 
   /**
@@ -87,8 +106,14 @@ public class S3Client extends DB {
   public void cleanup() throws DBException {
     if (INIT_COUNT.decrementAndGet() == 0) {
       try {
-        s3Client.shutdown();
-        System.out.println("The client is shutdown successfully");
+        if (uploadExecutor != null) {
+          uploadExecutor.shutdown();
+          uploadExecutor = null;
+        }
+        if (s3Client != null) {
+          s3Client.shutdown();
+          System.out.println("The client is shutdown successfully");
+        }
       } catch (Exception e){
         System.err.println("Could not shutdown the S3Client: "+e.toString());
         e.printStackTrace();
@@ -151,16 +176,21 @@ public class S3Client extends DB {
         String maxErrorRetry = null;
         String maxConnections = null;
         String protocol = null;
+        String connectionTTL = null;
+        String connectionMaxIdleMillis = null;
+        String tcpKeepAlive = null;
+        String pathStyleAccess = null;
+        String uploadThreads = null;
         BasicAWSCredentials s3Credentials;
         ClientConfiguration clientConfig;
         if (s3Client != null) {
           System.out.println("Reusing the same client");
           return;
         }
+        Properties props = new Properties(System.getProperties());
         try {
           InputStream propFile = S3Client.class.getClassLoader()
               .getResourceAsStream("s3.properties");
-          Properties props = new Properties(System.getProperties());
           props.load(propFile);
           accessKeyId = props.getProperty("s3.accessKeyId");
           if (accessKeyId == null){
@@ -208,6 +238,18 @@ public class S3Client extends DB {
           System.err.println("The file properties doesn't exist "+e.toString());
           e.printStackTrace();
         }
+        connectionTTL = getProperty(props, propsCL, "s3.connectionTTL", null);
+        connectionMaxIdleMillis = getProperty(props, propsCL,
+            "s3.connectionMaxIdleMillis", null);
+        tcpKeepAlive = getProperty(props, propsCL, "s3.tcpKeepAlive", "false");
+        pathStyleAccess = getProperty(props, propsCL, "s3.pathStyleAccess",
+            "false");
+        multipartThreshold = Long.parseLong(getProperty(props, propsCL,
+            "s3.multipartThreshold", "0"));
+        partSize = Integer.parseInt(getProperty(props, propsCL, "s3.partSize",
+            String.valueOf(8 * 1024 * 1024)));
+        checkPartSize(partSize);
+        uploadThreads = getProperty(props, propsCL, "s3.uploadThreads", "10");
         try {
           System.out.println("Inizializing the S3 connection");
           s3Credentials = new BasicAWSCredentials(accessKeyId, secretKey);
@@ -221,9 +263,27 @@ public class S3Client extends DB {
           if(maxConnections != null) {
             clientConfig.setMaxConnections(Integer.parseInt(maxConnections));
           }
+          // keeping the connections open longer lets the threads reuse them
+          // instead of paying a new TCP and TLS handshake
+          if(connectionTTL != null) {
+            clientConfig.setConnectionTTL(Long.parseLong(connectionTTL));
+          }
+          if(connectionMaxIdleMillis != null) {
+            clientConfig.setConnectionMaxIdleMillis(
+                Long.parseLong(connectionMaxIdleMillis));
+          }
+          clientConfig.setUseTcpKeepAlive(Boolean.parseBoolean(tcpKeepAlive));
           s3Client = new AmazonS3Client(s3Credentials, clientConfig);
           s3Client.setRegion(Region.getRegion(Regions.fromName(region)));
           s3Client.setEndpoint(endPoint);
+          // local S3-compatible stores usually only serve the bucket in the
+          // path and not as a subdomain of the endpoint
+          s3Client.setS3ClientOptions(new S3ClientOptions()
+              .withPathStyleAccess(Boolean.parseBoolean(pathStyleAccess)));
+          if (multipartThreshold > 0) {
+            uploadExecutor = Executors.newFixedThreadPool(
+                Integer.parseInt(uploadThreads));
+          }
           System.out.println("Connection successfully initialized");
         } catch (Exception e){
           System.err.println("Could not connect to S3 storage: "+ e.toString());
@@ -282,6 +342,26 @@ public class S3Client extends DB {
     return readFromStorage(bucket, key, result, ssecKey);
   }
   /**
+  * Read a part of a file from the Bucket with a ranged GET.
+  *
+  * @param bucket
+  *            The name of the bucket
+  * @param key
+  *            The record key of the file to read.
+  * @param offset
+  *            The position of the first byte to read
+  * @param length
+  *            The number of bytes to read
+  * @param result
+  *          A HashMap where the bytes read are stored under the key
+  * @return OK on success, ERROR otherwise.
+  */
+  @Override
+  public Status readRange(String bucket, String key, long offset, int length,
+                          Map<String, ByteIterator> result) {
+    return readFromStorage(bucket, key, offset, length, result, ssecKey);
+  }
+  /**
   * Update a file in the database. Any field/value pairs in the specified
   * values HashMap will be written into the file with the specified file
   * key, overwriting any existing values with the same field name.
@@ -349,11 +429,17 @@ public class S3Client extends DB {
       totalSize = sizeArray*fieldCount;
     } else {
       try {
-        S3Object object = getS3ObjectAndMetadata(bucket, key, ssecLocal);
-        int sizeOfFile = (int)object.getObjectMetadata().getContentLength();
+        // a HEAD request, a GET closed before reading the object would
+        // abort its connection instead of returning it to the pool
+        GetObjectMetadataRequest metadataRequest =
+            new GetObjectMetadataRequest(bucket, key);
+        if (ssecLocal != null) {
+          metadataRequest.withSSECustomerKey(ssecLocal);
+        }
+        int sizeOfFile = (int)s3Client.getObjectMetadata(metadataRequest)
+            .getContentLength();
         fieldCount = sizeOfFile/sizeArray;
         totalSize = sizeOfFile;
-        object.close();
       } catch (Exception e){
         System.err.println("Not possible to get the object :"+key);
         e.printStackTrace();
@@ -366,6 +452,9 @@ public class S3Client extends DB {
       System.arraycopy(sourceArray, 0, destinationArray, offset, sizeArray);
       offset += sizeArray;
     }
+    if (multipartThreshold > 0 && totalSize >= multipartThreshold) {
+      return writeMultipart(bucket, key, destinationArray, sseLocal, ssecLocal);
+    }
     try (InputStream input = new ByteArrayInputStream(destinationArray)) {
       ObjectMetadata metadata = new ObjectMetadata();
       metadata.setContentLength(totalSize);
@@ -410,6 +499,78 @@ public class S3Client extends DB {
     return Status.OK;
   }
 
+  /**
+  * Upload an object in parts of s3.partSize bytes. The parts are sent in
+  * parallel by the upload threads, and the upload is aborted if one fails.
+  *
+  * @param bucket
+  *            The name of the bucket
+  * @param key
+  *            The file key of the object to upload/update.
+  * @param data
+  *            The content of the object
+  *
+  */
+  protected Status writeMultipart(String bucket, final String key, byte[] data,
+                                  String sseLocal, SSECustomerKey ssecLocal) {
+    ObjectMetadata metadata = new ObjectMetadata();
+    if (sseLocal.equals("true")) {
+      metadata.setSSEAlgorithm(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
+    }
+    InitiateMultipartUploadRequest initiateRequest =
+        new InitiateMultipartUploadRequest(bucket, key, metadata);
+    if (ssecLocal != null) {
+      initiateRequest.withSSECustomerKey(ssecLocal);
+    }
+    String uploadId;
+    try {
+      uploadId = s3Client.initiateMultipartUpload(initiateRequest).getUploadId();
+    } catch (Exception e) {
+      System.err.println("Not possible to start the upload of object :"+key);
+      e.printStackTrace();
+      return Status.ERROR;
+    }
+    try {
+      List<Future<PartETag>> parts = new ArrayList<Future<PartETag>>();
+      int partNumber = 1;
+      for (int offset = 0; offset < data.length; offset += partSize) {
+        int length = Math.min(partSize, data.length - offset);
+        final UploadPartRequest partRequest = new UploadPartRequest()
+            .withBucketName(bucket).withKey(key).withUploadId(uploadId)
+            .withPartNumber(partNumber++).withPartSize(length)
+            .withInputStream(new ByteArrayInputStream(data, offset, length))
+            .withLastPart(offset + length == data.length);
+        if (ssecLocal != null) {
+          partRequest.withSSECustomerKey(ssecLocal);
+        }
+        parts.add(uploadExecutor.submit(new Callable<PartETag>() {
+            @Override
+            public PartETag call() {
+              return s3Client.uploadPart(partRequest).getPartETag();
+            }
+          }));
+      }
+      List<PartETag> partETags = new ArrayList<PartETag>(parts.size());
+      for (Future<PartETag> part : parts) {
+        partETags.add(part.get());
+      }
+      s3Client.completeMultipartUpload(
+          new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags));
+    } catch (Exception e) {
+      System.err.println("Not possible to write object :"+key);
+      e.printStackTrace();
+      try {
+        s3Client.abortMultipartUpload(
+            new AbortMultipartUploadRequest(bucket, key, uploadId));
+      } catch (Exception abortException) {
+        System.err.println("Not possible to abort the upload of object :"+key);
+        abortException.printStackTrace();
+      }
+      return Status.ERROR;
+    }
+    return Status.OK;
+  }
+
   /**
   * Download an object from S3.
   *
@@ -423,8 +584,33 @@ public class S3Client extends DB {
   */
   protected Status readFromStorage(String bucket, String key,
                                    Map<String, ByteIterator> result, SSECustomerKey ssecLocal) {
+    return readFromStorage(bucket, key, 0, 0, result, ssecLocal);
+  }
+
+  /**
+  * Download a range of an object from S3.
+  *
+  * @param bucket
+  *            The name of the bucket
+  * @param key
+  *            The file key of the object to upload/update.
+  * @param offset
+  *            The position of the first byte to read
+  * @param length
+  *            The number of bytes to read, or 0 for the whole object
+  * @param result
+  *            The Hash map where data from the object are written
+  *
+  */
+  protected Status readFromStorage(String bucket, String key, long offset,
+                                   long length, Map<String, ByteIterator> result,
+                                   SSECustomerKey ssecLocal) {
     try {
-      S3Object object = getS3ObjectAndMetadata(bucket, key, ssecLocal);
+      GetObjectRequest getObjectRequest = getObjectRequest(bucket, key, ssecLocal);
+      if (length > 0) {
+        getObjectRequest.withRange(offset, offset + length - 1);
+      }
+      S3Object object = s3Client.getObject(getObjectRequest);
       InputStream objectData = object.getObjectContent(); //consuming the stream
       // writing the stream to bytes and to results
       result.put(key, new ByteArrayByteIterator(IOUtils.toByteArray(objectData)));
@@ -439,8 +625,8 @@ public class S3Client extends DB {
     return Status.OK;
   }
 
-  private S3Object getS3ObjectAndMetadata(String bucket,
-                                                                     String key, SSECustomerKey ssecLocal) {
+  private GetObjectRequest getObjectRequest(String bucket, String key,
+                                            SSECustomerKey ssecLocal) {
     GetObjectRequest getObjectRequest;
     if (ssecLocal != null) {
       getObjectRequest = new GetObjectRequest(bucket,
@@ -449,7 +635,27 @@ public class S3Client extends DB {
       getObjectRequest = new GetObjectRequest(bucket, key);
     }
 
-    return s3Client.getObject(getObjectRequest);
+    return getObjectRequest;
+  }
+
+  /**
+  * S3 rejects every part of a multipart upload but the last one if it is
+  * smaller than 5 MB.
+  */
+  private static void checkPartSize(int size) throws DBException {
+    if (size < MIN_PART_SIZE) {
+      throw new DBException("s3.partSize must be at least "
+          + MIN_PART_SIZE + " bytes, not " + size);
+    }
+  }
+
+  private static String getProperty(Properties props, Properties propsCL,
+                                    String name, String defaultValue) {
+    String value = props.getProperty(name);
+    if (value == null){
+      value = propsCL.getProperty(name, defaultValue);
+    }
+    return value;
   }
 
   /**
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.Status;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the multipart uploads and ranged reads of the S3 client against an
+ * in-memory S3 server.
+ */
+public class S3ClientTest {
+
+  private static final String BUCKET = "ycsb";
+  private static final int MB = 1024 * 1024;
+  private static final int FIELD_LENGTH = MB;
+  private static final int FIELD_COUNT = 11;
+
+  private S3MockServer server;
+  private S3Client client;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new S3MockServer();
+  }
+
+  @After
+  public void tearDown() throws DBException, IOException {
+    if (client != null) {
+      client.cleanup();
+    }
+    server.stop();
+  }
+
+  private Properties properties() {
+    Properties properties = new Properties();
+    properties.setProperty("recordcount", "1");
+    properties.setProperty("operationcount", "1");
+    properties.setProperty("s3.endPoint", server.getEndpoint());
+    properties.setProperty("s3.protocol", "HTTP");
+    properties.setProperty("s3.pathStyleAccess", "true");
+    properties.setProperty("s3.multipartThreshold", String.valueOf(6 * MB));
+    properties.setProperty("s3.partSize", String.valueOf(5 * MB));
+    properties.setProperty("s3.uploadThreads", "2");
+    return properties;
+  }
+
+  private void init(Properties properties) throws DBException {
+    client = new S3Client();
+    client.setProperties(properties);
+    client.init();
+  }
+
+  private static byte[] field() {
+    byte[] field = new byte[FIELD_LENGTH];
+    for (int i = 0; i < field.length; i++) {
+      field[i] = (byte) (i * 31 + i / 251);
+    }
+    return field;
+  }
+
+  /**
+   * @return The object written for a record, the first field repeated for
+   *         every field.
+   */
+  private static byte[] object() {
+    byte[] field = field();
+    byte[] object = new byte[FIELD_LENGTH * FIELD_COUNT];
+    for (int i = 0; i < FIELD_COUNT; i++) {
+      System.arraycopy(field, 0, object, i * FIELD_LENGTH, FIELD_LENGTH);
+    }
+    return object;
+  }
+
+  private static Map<String, ByteIterator> values() {
+    Map<String, ByteIterator> values = new LinkedHashMap<String, ByteIterator>();
+    for (int i = 0; i < FIELD_COUNT; i++) {
+      values.put("field" + i, new ByteArrayByteIterator(field()));
+    }
+    return values;
+  }
+
+  @Test
+  public void multipartUploadAndRead() throws DBException {
+    init(properties());
+
+    // 11 MB are sent as two parts of 5 MB and one of 1 MB
+    assertEquals(Status.OK, client.insert(BUCKET, "user1", values()));
+    assertEquals(3, server.getPartsUploaded());
+
+    Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertEquals(Status.OK, client.read(BUCKET, "user1", null, result));
+    assertArrayEquals(object(), result.get("user1").toArray());
+
+    // an update re-uploads the object in parts
+    assertEquals(Status.OK, client.update(BUCKET, "user1", values()));
+    assertEquals(6, server.getPartsUploaded());
+    result.clear();
+    assertEquals(Status.OK, client.read(BUCKET, "user1", null, result));
+    assertArrayEquals(object(), result.get("user1").toArray());
+  }
+
+  @Test
+  public void rangedRead() throws DBException {
+    init(properties());
+    assertEquals(Status.OK, client.insert(BUCKET, "user1", values()));
+
+    // a range across the boundary of the first and second part
+    long offset = 5 * MB - 100;
+    Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertEquals(Status.OK, client.readRange(BUCKET, "user1", offset, 300, result));
+    byte[] expected = Arrays.copyOfRange(object(), (int) offset, (int) offset + 300);
+    assertArrayEquals(expected, result.get("user1").toArray());
+    assertEquals(1, server.getRangedGets());
+  }
+
+  @Test
+  public void readIsWhole() throws DBException {
+    init(properties());
+    assertEquals(Status.OK, client.insert(BUCKET, "user1", values()));
+
+    // only range reads send ranged GETs
+    Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertEquals(Status.OK, client.read(BUCKET, "user1", null, result));
+    assertArrayEquals(object(), result.get("user1").toArray());
+    assertEquals(0, server.getRangedGets());
+  }
+
+  @Test
+  public void smallPartSizeRejected() {
+    Properties properties = properties();
+    properties.setProperty("s3.partSize", String.valueOf(5 * MB - 1));
+    try {
+      init(properties);
+      fail("a part size under 5 MB was accepted");
+    } catch (DBException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,347 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory S3 server for the tests, serving path style requests over
+ * plain HTTP with one request per connection. It implements just what the
+ * client uses: objects are put, read whole or by range, deleted, and uploaded
+ * in parts. Neither buckets nor signatures are checked.
+ *
+ * <p>The JDK's HTTP server is not used as it changes the case of the response
+ * headers, and the SDK looks up the ETag case-sensitively.
+ */
+final class S3MockServer implements Runnable {
+
+  private static final String STREAMING_PAYLOAD = "STREAMING-AWS4-HMAC-SHA256-PAYLOAD";
+
+  private final ServerSocket serverSocket;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final Map<String, byte[]> objects = new ConcurrentHashMap<String, byte[]>();
+  private final Map<String, Map<Integer, byte[]>> uploads =
+      new ConcurrentHashMap<String, Map<Integer, byte[]>>();
+  private final AtomicInteger uploadIds = new AtomicInteger();
+  private final AtomicInteger partsUploaded = new AtomicInteger();
+  private final AtomicInteger rangedGets = new AtomicInteger();
+
+  /**
+   * A parsed request.
+   */
+  private static final class Request {
+    private String method;
+    private String path;
+    private final Map<String, String> query = new TreeMap<String, String>();
+    private final Map<String, String> headers = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+    private byte[] body;
+  }
+
+  /**
+   * A response, with a body unless it is null.
+   */
+  private static final class Response {
+    private final int status;
+    private final Map<String, String> headers = new LinkedHashMap<String, String>();
+    private byte[] body;
+
+    private Response(int status) {
+      this.status = status;
+    }
+
+    private Response header(String name, String value) {
+      headers.put(name, value);
+      return this;
+    }
+
+    private Response body(byte[] content) {
+      this.body = content;
+      header("Content-Length", String.valueOf(content.length));
+      return this;
+    }
+  }
+
+  S3MockServer() throws IOException {
+    serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    executor.execute(this);
+  }
+
+  String getEndpoint() {
+    return "http://127.0.0.1:" + serverSocket.getLocalPort();
+  }
+
+  int getPartsUploaded() {
+    return partsUploaded.get();
+  }
+
+  int getRangedGets() {
+    return rangedGets.get();
+  }
+
+  void stop() throws IOException {
+    serverSocket.close();
+    executor.shutdownNow();
+  }
+
+  @Override
+  public void run() {
+    while (!serverSocket.isClosed()) {
+      final Socket connection;
+      try {
+        connection = serverSocket.accept();
+      } catch (IOException e) {
+        return;
+      }
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          serve(connection);
+        }
+      });
+    }
+  }
+
+  private void serve(Socket connection) {
+    try (Socket socket = connection) {
+      InputStream in = new BufferedInputStream(socket.getInputStream());
+      OutputStream out = socket.getOutputStream();
+      Request request = readRequest(in, out);
+      if (request != null) {
+        writeResponse(out, handle(request));
+      }
+    } catch (IOException e) {
+      // the client went away
+    }
+  }
+
+  private Response handle(Request request) {
+    String method = request.method;
+    if ("PUT".equals(method) && request.query.containsKey("partNumber")) {
+      Map<Integer, byte[]> parts = uploads.get(request.query.get("uploadId"));
+      if (parts == null) {
+        return new Response(404).body(new byte[0]);
+      }
+      parts.put(Integer.parseInt(request.query.get("partNumber")), request.body);
+      partsUploaded.incrementAndGet();
+      return new Response(200).header("ETag", '"' + md5(request.body) + '"').body(new byte[0]);
+    }
+    if ("PUT".equals(method)) {
+      objects.put(request.path, request.body);
+      return new Response(200).header("ETag", '"' + md5(request.body) + '"').body(new byte[0]);
+    }
+    if ("POST".equals(method) && request.query.containsKey("uploads")) {
+      String uploadId = String.valueOf(uploadIds.incrementAndGet());
+      uploads.put(uploadId, new TreeMap<Integer, byte[]>());
+      return xml("<InitiateMultipartUploadResult>" + bucketAndKey(request.path)
+          + "<UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+    }
+    if ("POST".equals(method) && request.query.containsKey("uploadId")) {
+      return completeUpload(request.path, request.query.get("uploadId"));
+    }
+    if ("DELETE".equals(method)) {
+      if (request.query.containsKey("uploadId")) {
+        uploads.remove(request.query.get("uploadId"));
+      } else {
+        objects.remove(request.path);
+      }
+      return new Response(204);
+    }
+    if ("GET".equals(method) || "HEAD".equals(method)) {
+      return get(request);
+    }
+    return new Response(405).body(new byte[0]);
+  }
+
+  private Response completeUpload(String path, String uploadId) {
+    Map<Integer, byte[]> parts = uploads.remove(uploadId);
+    if (parts == null) {
+      return new Response(404).body(new byte[0]);
+    }
+    ByteArrayOutputStream object = new ByteArrayOutputStream();
+    for (byte[] part : parts.values()) {
+      object.write(part, 0, part.length);
+    }
+    objects.put(path, object.toByteArray());
+    return xml("<CompleteMultipartUploadResult><Location>" + getEndpoint() + path + "</Location>"
+        + bucketAndKey(path) + "<ETag>\"" + multipartETag(path, parts.size()) + "\"</ETag>"
+        + "</CompleteMultipartUploadResult>");
+  }
+
+  private Response get(Request request) {
+    byte[] object = objects.get(request.path);
+    if (object == null) {
+      return new Response(404).body(new byte[0]);
+    }
+    byte[] content = object;
+    Response response;
+    String range = request.headers.get("Range");
+    if (range == null) {
+      response = new Response(200);
+    } else {
+      rangedGets.incrementAndGet();
+      String[] bounds = range.substring("bytes=".length()).split("-");
+      int first = Integer.parseInt(bounds[0]);
+      int last = Math.min(Integer.parseInt(bounds[1]), object.length - 1);
+      content = new byte[last - first + 1];
+      System.arraycopy(object, first, content, 0, content.length);
+      response = new Response(206).header("Content-Range", "bytes " + first + "-" + last + "/" + object.length);
+    }
+    // the SDK only checks the MD5 of objects with a plain ETag, not of the
+    // ones uploaded in parts
+    response.header("ETag", '"' + multipartETag(request.path, 1) + '"')
+        .header("Last-Modified", "Mon, 01 Jul 2019 00:00:00 GMT");
+    if ("HEAD".equals(request.method)) {
+      return response.header("Content-Length", String.valueOf(content.length));
+    }
+    return response.body(content);
+  }
+
+  private static Response xml(String xml) {
+    return new Response(200).header("Content-Type", "application/xml")
+        .body(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String bucketAndKey(String path) {
+    int slash = path.indexOf('/', 1);
+    return "<Bucket>" + path.substring(1, slash) + "</Bucket><Key>" + path.substring(slash + 1) + "</Key>";
+  }
+
+  private static String multipartETag(String path, int parts) {
+    return md5(path.getBytes(StandardCharsets.UTF_8)) + "-" + parts;
+  }
+
+  /**
+   * @return The request, or null if the connection was closed before one was
+   *         sent.
+   */
+  private static Request readRequest(InputStream in, OutputStream out) throws IOException {
+    String requestLine = readLine(in);
+    if (requestLine == null || requestLine.isEmpty()) {
+      return null;
+    }
+    Request request = new Request();
+    String[] parts = requestLine.split(" ");
+    request.method = parts[0];
+    String target = parts[1];
+    int question = target.indexOf('?');
+    request.path = question < 0 ? target : target.substring(0, question);
+    if (question >= 0) {
+      for (String parameter : target.substring(question + 1).split("&")) {
+        int equals = parameter.indexOf('=');
+        if (equals < 0) {
+          request.query.put(parameter, "");
+        } else {
+          request.query.put(parameter.substring(0, equals), parameter.substring(equals + 1));
+        }
+      }
+    }
+    for (String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+      int colon = line.indexOf(':');
+      request.headers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+    }
+
+    if ("100-continue".equalsIgnoreCase(request.headers.get("Expect"))) {
+      out.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+    }
+    String length = request.headers.get("Content-Length");
+    byte[] body = new byte[length == null ? 0 : Integer.parseInt(length)];
+    new DataInputStream(in).readFully(body);
+    request.body = STREAMING_PAYLOAD.equals(request.headers.get("x-amz-content-sha256")) ? unchunk(body) : body;
+    return request;
+  }
+
+  /**
+   * Removes the chunk headers of a streaming signed upload.
+   */
+  private static byte[] unchunk(byte[] body) {
+    ByteArrayOutputStream decoded = new ByteArrayOutputStream(body.length);
+    int position = 0;
+    while (position < body.length) {
+      int headerEnd = position;
+      while (body[headerEnd] != '\r') {
+        headerEnd++;
+      }
+      String header = new String(body, position, headerEnd - position, StandardCharsets.US_ASCII);
+      int size = Integer.parseInt(header.substring(0, header.indexOf(';')), 16);
+      decoded.write(body, headerEnd + 2, size);
+      position = headerEnd + 2 + size + 2;
+    }
+    return decoded.toByteArray();
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    StringBuilder line = new StringBuilder();
+    for (int c = in.read(); c != '\n'; c = in.read()) {
+      if (c < 0) {
+        return line.length() == 0 ? null : line.toString();
+      }
+      if (c != '\r') {
+        line.append((char) c);
+      }
+    }
+    return line.toString();
+  }
+
+  private static void writeResponse(OutputStream out, Response response) throws IOException {
+    StringBuilder head = new StringBuilder("HTTP/1.1 ").append(response.status).append(" S3Mock\r\n");
+    if (!response.headers.containsKey("Content-Length") && response.status != 204) {
+      response.header("Content-Length", "0");
+    }
+    response.header("Connection", "close");
+    for (Map.Entry<String, String> header : response.headers.entrySet()) {
+      head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+    }
+    head.append("\r\n");
+    out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+    if (response.body != null) {
+      out.write(response.body);
+    }
+    out.flush();
+  }
+
+  private static String md5(byte[] bytes) {
+    try {
+      StringBuilder hex = new StringBuilder();
+      for (byte b : MessageDigest.getInstance("MD5").digest(bytes)) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}